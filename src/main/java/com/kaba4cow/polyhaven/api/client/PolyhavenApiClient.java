@@ -3,18 +3,33 @@ package com.kaba4cow.polyhaven.api.client;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import com.kaba4cow.polyhaven.api.client.batch.BatchFetcher;
+import com.kaba4cow.polyhaven.api.client.batch.BatchResult;
 import com.kaba4cow.polyhaven.api.client.data.PolyhavenAuthor;
 import com.kaba4cow.polyhaven.api.client.data.assets.PolyhavenAsset;
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
 import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileTree;
+import com.kaba4cow.polyhaven.api.client.download.DownloadListener;
+import com.kaba4cow.polyhaven.api.client.download.FileDownloader;
+import com.kaba4cow.polyhaven.api.client.http.Endpoint;
+import com.kaba4cow.polyhaven.api.client.http.EndpointSelector;
 import com.kaba4cow.polyhaven.api.client.http.HttpException;
 import com.kaba4cow.polyhaven.api.client.http.HttpRequest;
 import com.kaba4cow.polyhaven.api.client.http.HttpResponse;
+import com.kaba4cow.polyhaven.api.client.store.ContentStore;
+import com.kaba4cow.polyhaven.api.client.store.LinkMode;
 
 /**
  * Client for interacting with the Polyhaven API to fetch assets, authors, and
@@ -30,6 +45,13 @@ import com.kaba4cow.polyhaven.api.client.http.HttpResponse;
  * API base URL: https://api.polyhaven.com/
  * </p>
  * 
+ * <p>
+ * Several base URLs, such as regional mirrors or a local caching proxy, may be
+ * given. Each request is routed to the best healthy endpoint as ranked by an
+ * {@link EndpointSelector}, and transparently fails over to the next endpoint
+ * when a connection fails or the endpoint responds with a server error.
+ * </p>
+ * 
  * @see PolyhavenAsset
  * @see PolyhavenAuthor
  * @see PolyhavenFileTree
@@ -40,15 +62,44 @@ public class PolyhavenApiClient {
 	private static final int RESPONSE_OK = 200;
 	private static final int RESPONSE_BAD_REQUEST = 400;
 	private static final int RESPONSE_NOT_FOUND = 404;
+	private static final int RESPONSE_SERVER_ERROR = 500;
+
+	private static final int DEFAULT_PARALLELISM = 8;
+	private static final long ASSET_LISTING_TTL = 10L * 60L * 1000L;
+
+	private final EndpointSelector endpoints;
 
-	private final String url;
+	private Map<String, PolyhavenAsset> assetListing;
+	private long assetListingTime;
+
+	private FileDownloader fileDownloader;
+	private ContentStore contentStore;
+	private LinkMode linkMode;
+
+	/**
+	 * Constructs a new {@code PolyhavenApiClient} that routes requests between the
+	 * endpoints of the specified selector.
+	 */
+	public PolyhavenApiClient(EndpointSelector endpoints) {
+		this.endpoints = endpoints;
+		this.linkMode = LinkMode.COPY;
+	}
 
 	/**
 	 * Constructs a new {@code PolyhavenApiClient} with specified URL to interact
 	 * with the Polyhaven API.
 	 */
 	public PolyhavenApiClient(String url) {
-		this.url = url;
+		this(new EndpointSelector(url));
+	}
+
+	/**
+	 * Constructs a new {@code PolyhavenApiClient} with specified URLs to interact
+	 * with the Polyhaven API. If several URLs are given, each request is routed to
+	 * the best healthy one.
+	 */
+	public PolyhavenApiClient(String... urls) {
+		this(new EndpointSelector(urls));
 	}
 
 	/**
@@ -68,7 +119,7 @@ public class PolyhavenApiClient {
 	 */
 	public String[] getAssetTypes() throws IOException, HttpException {
 		HttpRequest request = new HttpRequest("types");
-		HttpResponse response = new HttpResponse(url + request);
+		HttpResponse response = request(request);
 		switch (response.getCode()) {
 		case RESPONSE_OK:
 			JSONArray json = response.getJSONArray();
@@ -94,7 +145,7 @@ public class PolyhavenApiClient {
 	 */
 	public Map<String, PolyhavenAsset> getAssets(String type, String... categories) throws IOException, HttpException {
 		HttpRequest request = new HttpRequest("assets").add("t", type).add("c", categories);
-		HttpResponse response = new HttpResponse(url + request);
+		HttpResponse response = request(request);
 		switch (response.getCode()) {
 		case RESPONSE_OK:
 			JSONObject json = response.getJSONObject();
@@ -109,6 +160,75 @@ public class PolyhavenApiClient {
 		}
 	}
 
+	/**
+	 * Retrieves many assets by their unique IDs using up to
+	 * {@value #DEFAULT_PARALLELISM} concurrent requests.
+	 * 
+	 * @param ids the unique IDs/slugs of the assets
+	 * @return a {@code BatchResult} containing the resolved assets and per-ID
+	 *         failures
+	 * @see #getAssets(Collection, int)
+	 */
+	public BatchResult<PolyhavenAsset> getAssets(Collection<String> ids) {
+		return getAssets(ids, DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * Retrieves many assets by their unique IDs. Assets present in the cached
+	 * {@code /assets} listing are resolved without additional requests, the
+	 * remaining IDs are fetched from {@code /info} with at most
+	 * {@code parallelism} concurrent requests. Errors are reported per ID instead
+	 * of being thrown.
+	 * 
+	 * @param ids         the unique IDs/slugs of the assets
+	 * @param parallelism the maximum number of concurrent {@code /info} requests
+	 * @return a {@code BatchResult} containing the resolved assets and per-ID
+	 *         failures
+	 */
+	public BatchResult<PolyhavenAsset> getAssets(Collection<String> ids, int parallelism) {
+		Map<String, PolyhavenAsset> listing = getAssetListing();
+		Collection<String> distinct = new LinkedHashSet<>(ids);
+		List<String> missing = new ArrayList<>();
+		for (String id : distinct)
+			if (!listing.containsKey(id))
+				missing.add(id);
+		BatchResult<PolyhavenAsset> fetched = BatchFetcher.fetchAll(missing, parallelism, this::getAsset);
+		Map<String, PolyhavenAsset> results = new LinkedHashMap<>();
+		for (String id : distinct)
+			if (listing.containsKey(id))
+				results.put(id, listing.get(id));
+			else if (fetched.getResults().containsKey(id))
+				results.put(id, fetched.getResults().get(id));
+		return new BatchResult<>(results, new LinkedHashMap<>(fetched.getFailures()));
+	}
+
+	/**
+	 * Returns the cached listing of all assets, refreshing it when it is older than
+	 * the listing time-to-live. If the listing cannot be fetched, an empty map is
+	 * returned so that callers can fall back to individual requests.
+	 * 
+	 * @return a map of asset IDs to {@code PolyhavenAsset} objects
+	 */
+	private synchronized Map<String, PolyhavenAsset> getAssetListing() {
+		long time = System.currentTimeMillis();
+		if (assetListing == null || time - assetListingTime > ASSET_LISTING_TTL)
+			try {
+				assetListing = Collections.unmodifiableMap(getAssets("all"));
+				assetListingTime = time;
+			} catch (IOException | HttpException e) {
+				return Collections.emptyMap();
+			}
+		return assetListing;
+	}
+
+	/**
+	 * Clears the cached {@code /assets} listing used by
+	 * {@link #getAssets(Collection, int)}.
+	 */
+	public synchronized void clearCache() {
+		assetListing = null;
+	}
+
 	/**
 	 * Retrieves detailed information about a specific asset by its unique ID.
 	 * 
@@ -120,7 +240,7 @@ public class PolyhavenApiClient {
 	 */
 	public PolyhavenAsset getAsset(String id) throws IOException, HttpException {
 		HttpRequest request = new HttpRequest("info/" + id);
-		HttpResponse response = new HttpResponse(url + request);
+		HttpResponse response = request(request);
 		switch (response.getCode()) {
 		case RESPONSE_OK:
 			JSONObject json = response.getJSONObject();
@@ -146,7 +266,7 @@ public class PolyhavenApiClient {
 	 */
 	public PolyhavenFileTree getAssetFileTree(String id) throws IOException, HttpException {
 		HttpRequest request = new HttpRequest("files/" + id);
-		HttpResponse response = new HttpResponse(url + request);
+		HttpResponse response = request(request);
 		switch (response.getCode()) {
 		case RESPONSE_OK:
 			JSONObject json = response.getJSONObject();
@@ -170,7 +290,7 @@ public class PolyhavenApiClient {
 	 */
 	public PolyhavenAuthor getAuthor(String id) throws IOException, HttpException {
 		HttpRequest request = new HttpRequest("author/" + id);
-		HttpResponse response = new HttpResponse(url + request);
+		HttpResponse response = request(request);
 		switch (response.getCode()) {
 		case RESPONSE_OK:
 			JSONObject json = response.getJSONObject();
@@ -197,7 +317,7 @@ public class PolyhavenApiClient {
 	 */
 	public Map<String, Integer> getAssetCategories(String type, String... in) throws IOException, HttpException {
 		HttpRequest request = new HttpRequest("categories/" + type).add("in", in);
-		HttpResponse response = new HttpResponse(url + request);
+		HttpResponse response = request(request);
 		switch (response.getCode()) {
 		case RESPONSE_OK:
 			JSONObject json = response.getJSONObject();
@@ -212,6 +332,138 @@ public class PolyhavenApiClient {
 		}
 	}
 
+	/**
+	 * Downloads a file to the specified path and verifies its MD5 checksum.
+	 * 
+	 * @param file   the file to download
+	 * @param target the path to write the file to
+	 * @throws IOException   if an I/O error occurs or the checksum does not match
+	 * @throws HttpException if the server responds with an error code
+	 * @see FileDownloader
+	 */
+	public void downloadFile(PolyhavenFileObject file, Path target) throws IOException, HttpException {
+		getFileDownloader().download(file, target);
+	}
+
+	/**
+	 * Downloads a file to the specified path and verifies its MD5 checksum,
+	 * reporting the progress to the specified listener.
+	 * 
+	 * @param file     the file to download
+	 * @param target   the path to write the file to
+	 * @param listener the listener notified about the download progress
+	 * @throws IOException   if an I/O error occurs or the checksum does not match
+	 * @throws HttpException if the server responds with an error code
+	 * @see FileDownloader
+	 */
+	public void downloadFile(PolyhavenFileObject file, Path target, DownloadListener listener)
+			throws IOException, HttpException {
+		getFileDownloader().download(file, target, listener);
+	}
+
+	/**
+	 * Returns the downloader used by this client, creating one with
+	 * {@value #DEFAULT_PARALLELISM} segment threads on first use.
+	 * 
+	 * @return the {@code FileDownloader} of this client
+	 */
+	public synchronized FileDownloader getFileDownloader() {
+		if (fileDownloader == null)
+			setFileDownloader(new FileDownloader(DEFAULT_PARALLELISM));
+		return fileDownloader;
+	}
+
+	/**
+	 * Replaces the downloader used by this client. The content store of this
+	 * client, if any, is applied to the new downloader.
+	 * 
+	 * @param fileDownloader the {@code FileDownloader} to use
+	 */
+	public synchronized void setFileDownloader(FileDownloader fileDownloader) {
+		this.fileDownloader = fileDownloader;
+		if (contentStore != null)
+			fileDownloader.setContentStore(contentStore, linkMode);
+	}
+
+	/**
+	 * Returns the content store that every download through this client checks
+	 * first.
+	 * 
+	 * @return the content store, or {@code null} if none is set
+	 */
+	public synchronized ContentStore getContentStore() {
+		return contentStore;
+	}
+
+	/**
+	 * Sets the content store that every download through this client checks
+	 * first. Files found in the store are copied to their target without any
+	 * network request.
+	 * 
+	 * @param contentStore the content store, or {@code null} to disable it
+	 */
+	public void setContentStore(ContentStore contentStore) {
+		setContentStore(contentStore, LinkMode.COPY);
+	}
+
+	/**
+	 * Sets the content store that every download through this client checks
+	 * first, and the way stored files are placed at their targets. The store is
+	 * kept by this client and applied to any downloader set later.
+	 * 
+	 * @param contentStore the content store, or {@code null} to disable it
+	 * @param linkMode     how stored files are placed at target paths
+	 * @see FileDownloader#setContentStore(ContentStore, LinkMode)
+	 */
+	public synchronized void setContentStore(ContentStore contentStore, LinkMode linkMode) {
+		this.contentStore = contentStore;
+		this.linkMode = linkMode;
+		if (fileDownloader != null)
+			fileDownloader.setContentStore(contentStore, linkMode);
+	}
+
+	/**
+	 * Returns the selector used to route requests between the endpoints of this
+	 * client.
+	 * 
+	 * @return the {@code EndpointSelector} of this client
+	 */
+	public EndpointSelector getEndpointSelector() {
+		return endpoints;
+	}
+
+	/**
+	 * Sends the request to the best endpoint, failing over to the next endpoint on
+	 * connection errors and server errors. If every endpoint fails, the last
+	 * server error response is returned, or the last connection error is thrown.
+	 * Every discarded server error response is disconnected.
+	 */
+	private HttpResponse request(HttpRequest request) throws IOException {
+		HttpResponse failed = null;
+		IOException exception = null;
+		for (Endpoint endpoint : endpoints.getEndpoints()) {
+			long start = System.nanoTime();
+			try {
+				HttpResponse response = new HttpResponse(endpoint.getUrl() + request);
+				double latency = (System.nanoTime() - start) / 1000000d;
+				if (response.getCode() < RESPONSE_SERVER_ERROR) {
+					endpoints.recordSuccess(endpoint, latency);
+					return response;
+				}
+				endpoints.recordFailure(endpoint, latency);
+				if (failed != null)
+					failed.disconnect();
+				failed = response;
+			} catch (IOException e) {
+				endpoints.recordFailure(endpoint, (System.nanoTime() - start) / 1000000d);
+				exception = e;
+			}
+		}
+		if (failed != null)
+			return failed;
+		throw exception;
+	}
+
 	/**
 	 * Downloads an image from the specified URL.
 	 * 
@@ -0,0 +1,162 @@
+package com.kaba4cow.polyhaven.api.client.authors;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.kaba4cow.polyhaven.api.client.PolyhavenApiClient;
+import com.kaba4cow.polyhaven.api.client.batch.BatchFetcher;
+import com.kaba4cow.polyhaven.api.client.batch.BatchResult;
+import com.kaba4cow.polyhaven.api.client.data.PolyhavenAuthor;
+import com.kaba4cow.polyhaven.api.client.data.assets.PolyhavenAsset;
+import com.kaba4cow.polyhaven.api.client.http.HttpException;
+
+/**
+ * An in-memory directory of {@link PolyhavenAuthor} objects that resolves each
+ * author at most once.
+ * 
+ * <p>
+ * The distinct author IDs of a set of assets can be prefetched in parallel with
+ * {@link #prefetch(Collection, int)}. Later lookups through
+ * {@link #getAuthor(String)} are served from memory, and the directory keeps
+ * track of how many lookups were hits and misses.
+ * </p>
+ */
+public class AuthorDirectory {
+
+	private final PolyhavenApiClient client;
+	private final Map<String, PolyhavenAuthor> authors;
+
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+
+	/**
+	 * Constructs an empty {@code AuthorDirectory} that resolves authors with the
+	 * given client.
+	 *
+	 * @param client the client used to fetch authors
+	 */
+	public AuthorDirectory(PolyhavenApiClient client) {
+		this.client = client;
+		this.authors = new ConcurrentHashMap<>();
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+	}
+
+	/**
+	 * Fetches every author of the given assets that is not yet in the directory,
+	 * running at most {@code parallelism} requests at a time.
+	 *
+	 * @param assets      the assets whose authors should be prefetched
+	 * @param parallelism the maximum number of concurrent requests
+	 * @return a {@code BatchResult} containing the newly fetched authors and the
+	 *         failures
+	 */
+	public BatchResult<PolyhavenAuthor> prefetch(Collection<? extends PolyhavenAsset> assets, int parallelism) {
+		Set<String> ids = new LinkedHashSet<>();
+		for (PolyhavenAsset asset : assets)
+			for (String id : asset.getAuthors().keySet())
+				if (!authors.containsKey(id))
+					ids.add(id);
+		BatchResult<PolyhavenAuthor> result = BatchFetcher.fetchAll(ids, parallelism, client::getAuthor);
+		authors.putAll(result.getResults());
+		return result;
+	}
+
+	/**
+	 * Returns the author with the given ID, fetching it from the API if it is not
+	 * yet in the directory.
+	 *
+	 * @param id the unique ID of the author
+	 * @return the {@code PolyhavenAuthor} with the given ID
+	 * @throws IOException   if an I/O error occurs
+	 * @throws HttpException if the API responds with an error code
+	 */
+	public PolyhavenAuthor getAuthor(String id) throws IOException, HttpException {
+		PolyhavenAuthor author = authors.get(id);
+		if (author != null) {
+			hits.incrementAndGet();
+			return author;
+		}
+		misses.incrementAndGet();
+		author = client.getAuthor(id);
+		PolyhavenAuthor previous = authors.putIfAbsent(id, author);
+		return previous == null ? author : previous;
+	}
+
+	/**
+	 * Returns the author with the given ID if it is already in the directory,
+	 * without contacting the API. The lookup is not counted as a hit or miss.
+	 *
+	 * @param id the unique ID of the author
+	 * @return the cached {@code PolyhavenAuthor}, or {@code null} if it is not in
+	 *         the directory
+	 */
+	public PolyhavenAuthor getCachedAuthor(String id) {
+		return authors.get(id);
+	}
+
+	/**
+	 * Returns the number of authors in the directory.
+	 *
+	 * @return the number of cached authors
+	 */
+	public int getSize() {
+		return authors.size();
+	}
+
+	/**
+	 * Returns the number of lookups that were served from memory.
+	 *
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of lookups that required an API request.
+	 *
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the fraction of lookups that were served from memory.
+	 *
+	 * @return the hit rate between 0 and 1, or 0 if there were no lookups
+	 */
+	public double getHitRate() {
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		return total == 0L ? 0d : (double) hitCount / total;
+	}
+
+	/**
+	 * Removes every author from the directory and resets the hit and miss counts.
+	 */
+	public void clear() {
+		authors.clear();
+		hits.set(0L);
+		misses.set(0L);
+	}
+
+	/**
+	 * Returns a string representation of the directory, including its size and
+	 * hit and miss counts.
+	 *
+	 * @return a string representation of the {@code AuthorDirectory}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [size=%s, hits=%s, misses=%s]", getClass().getName(), authors.size(), hits.get(),
+				misses.get());
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.kaba4cow.polyhaven.api.client.batch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.kaba4cow.polyhaven.api.client.http.HttpException;
+
+/**
+ * Resolves a single ID into a value, typically by performing a blocking API
+ * request. Batches of IDs can be resolved with bounded parallelism using
+ * {@link #fetchAll(Collection, int, BatchFetcher)}.
+ *
+ * @param <T> the type of the resolved values
+ */
+@FunctionalInterface
+public interface BatchFetcher<T> {
+
+	/**
+	 * Resolves the value for the given ID.
+	 *
+	 * @param id the ID to resolve
+	 * @return the resolved value
+	 * @throws IOException   if an I/O error occurs
+	 * @throws HttpException if the API responds with an error code
+	 */
+	public T fetch(String id) throws IOException, HttpException;
+
+	/**
+	 * Resolves every given ID using the specified fetcher, running at most
+	 * {@code parallelism} requests at a time. Duplicate IDs are resolved once.
+	 * Failures are collected per ID instead of aborting the batch.
+	 *
+	 * @param <T>         the type of the resolved values
+	 * @param ids         the IDs to resolve
+	 * @param parallelism the maximum number of concurrent requests
+	 * @param fetcher     the fetcher used to resolve each ID
+	 * @return a {@code BatchResult} containing the resolved values in the order of
+	 *         the given IDs and the failures
+	 * @throws IllegalArgumentException if {@code parallelism} is less than 1
+	 */
+	public static <T> BatchResult<T> fetchAll(Collection<String> ids, int parallelism, BatchFetcher<T> fetcher) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive");
+		Collection<String> distinct = new LinkedHashSet<>(ids);
+		Map<String, T> fetched = new ConcurrentHashMap<>();
+		Map<String, Exception> failures = new ConcurrentHashMap<>();
+		if (!distinct.isEmpty()) {
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (String id : distinct)
+				tasks.add(() -> {
+					try {
+						T value = fetcher.fetch(id);
+						if (value == null)
+							failures.put(id, new IOException("No value resolved for id " + id));
+						else
+							fetched.put(id, value);
+					} catch (Exception e) {
+						failures.put(id, e);
+					}
+					return null;
+				});
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, distinct.size()));
+			try {
+				executor.invokeAll(tasks);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (String id : distinct)
+					if (!fetched.containsKey(id))
+						failures.putIfAbsent(id, e);
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		Map<String, T> results = new LinkedHashMap<>();
+		Map<String, Exception> orderedFailures = new LinkedHashMap<>();
+		for (String id : distinct)
+			if (fetched.containsKey(id))
+				results.put(id, fetched.get(id));
+			else if (failures.containsKey(id))
+				orderedFailures.put(id, failures.get(id));
+		return new BatchResult<>(results, orderedFailures);
+	}
+
+}
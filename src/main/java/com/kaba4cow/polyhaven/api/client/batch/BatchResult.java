@@ -0,0 +1,75 @@
+package com.kaba4cow.polyhaven.api.client.batch;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Represents the outcome of a batch operation that resolves many IDs at once.
+ * Successfully resolved values and per-ID failures are reported separately, so
+ * a single failing request does not abort the whole batch.
+ *
+ * @param <T> the type of the resolved values
+ */
+public class BatchResult<T> {
+
+	/**
+	 * A map of IDs to their successfully resolved values.
+	 */
+	private final Map<String, T> results;
+
+	/**
+	 * A map of IDs to the exceptions that prevented them from being resolved.
+	 */
+	private final Map<String, Exception> failures;
+
+	/**
+	 * Constructs a {@code BatchResult} from the given results and failures.
+	 *
+	 * @param results  a map of IDs to their resolved values
+	 * @param failures a map of IDs to the exceptions thrown while resolving them
+	 */
+	public BatchResult(Map<String, T> results, Map<String, Exception> failures) {
+		this.results = Collections.unmodifiableMap(results);
+		this.failures = Collections.unmodifiableMap(failures);
+	}
+
+	/**
+	 * Returns a map of IDs to their successfully resolved values.
+	 *
+	 * @return an unmodifiable map of resolved values
+	 */
+	public Map<String, T> getResults() {
+		return results;
+	}
+
+	/**
+	 * Returns a map of IDs to the exceptions that prevented them from being
+	 * resolved.
+	 *
+	 * @return an unmodifiable map of failures
+	 */
+	public Map<String, Exception> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Indicates whether every requested ID was resolved successfully.
+	 *
+	 * @return true if there are no failures, false otherwise
+	 */
+	public boolean isComplete() {
+		return failures.isEmpty();
+	}
+
+	/**
+	 * Returns a string representation of the batch result, including the number of
+	 * results and failures.
+	 *
+	 * @return a string representation of the {@code BatchResult}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [results=%s, failures=%s]", getClass().getName(), results.size(), failures);
+	}
+
+}
@@ -2,6 +2,7 @@ package com.kaba4cow.polyhaven.api.client.data.files;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.json.JSONObject;
 
@@ -97,6 +98,19 @@ public class PolyhavenFileObject {
 		return includes;
 	}
 
+	/**
+	 * Returns the files that should be included when downloading this file, keyed
+	 * by their path relative to this file (e.g. {@code textures/name_4k.jpg}).
+	 *
+	 * @return a sorted map of relative paths to dependent file objects
+	 */
+	public Map<String, PolyhavenFileObject> getIncludedFiles() {
+		Map<String, PolyhavenFileObject> includedFiles = new TreeMap<>();
+		for (PolyhavenFileTree include : includes.values())
+			includedFiles.putAll(include.getAllFiles());
+		return includedFiles;
+	}
+
 	/**
 	 * Returns a string representation of the file object, including the URL, MD5
 	 * checksum, size, and included files.
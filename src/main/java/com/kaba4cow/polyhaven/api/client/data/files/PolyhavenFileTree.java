@@ -2,6 +2,7 @@ package com.kaba4cow.polyhaven.api.client.data.files;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.json.JSONObject;
 
@@ -59,6 +60,26 @@ public class PolyhavenFileTree {
 		return trees;
 	}
 
+	/**
+	 * Returns every file object contained in this file tree and its nested trees,
+	 * keyed by the path of tree names leading to the file joined with {@code /}
+	 * (e.g. {@code Diffuse/4k/png}).
+	 *
+	 * @return a sorted map of file paths to file objects
+	 */
+	public Map<String, PolyhavenFileObject> getAllFiles() {
+		Map<String, PolyhavenFileObject> allFiles = new TreeMap<>();
+		collectFiles("", allFiles);
+		return allFiles;
+	}
+
+	private void collectFiles(String prefix, Map<String, PolyhavenFileObject> allFiles) {
+		for (Map.Entry<String, PolyhavenFileObject> file : files.entrySet())
+			allFiles.put(prefix + file.getKey(), file.getValue());
+		for (Map.Entry<String, PolyhavenFileTree> tree : trees.entrySet())
+			tree.getValue().collectFiles(prefix + tree.getKey() + "/", allFiles);
+	}
+
 	/**
 	 * Returns a string representation of the file tree, including the files and
 	 * nested trees it contains.
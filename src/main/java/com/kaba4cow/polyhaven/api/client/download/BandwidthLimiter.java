@@ -0,0 +1,97 @@
+package com.kaba4cow.polyhaven.api.client.download;
+
+/**
+ * A token bucket limiting the combined bandwidth of all downloads that share
+ * it. Tokens represent bytes and are refilled continuously at the configured
+ * rate, up to the configured burst size.
+ */
+public class BandwidthLimiter {
+
+	private final long bytesPerSecond;
+	private final long burst;
+
+	private double tokens;
+	private long lastRefill;
+
+	/**
+	 * Constructs a {@code BandwidthLimiter} with the given rate and burst size.
+	 *
+	 * @param bytesPerSecond the sustained rate in bytes per second
+	 * @param burst          the maximum number of bytes that may be consumed at
+	 *                       once after an idle period
+	 * @throws IllegalArgumentException if the rate or burst size is not positive
+	 */
+	public BandwidthLimiter(long bytesPerSecond, long burst) {
+		if (bytesPerSecond <= 0L || burst <= 0L)
+			throw new IllegalArgumentException("rate and burst must be positive");
+		this.bytesPerSecond = bytesPerSecond;
+		this.burst = burst;
+		this.tokens = burst;
+		this.lastRefill = System.nanoTime();
+	}
+
+	/**
+	 * Constructs a {@code BandwidthLimiter} with the given rate and a burst size of
+	 * one second worth of bytes.
+	 *
+	 * @param bytesPerSecond the sustained rate in bytes per second
+	 */
+	public BandwidthLimiter(long bytesPerSecond) {
+		this(bytesPerSecond, bytesPerSecond);
+	}
+
+	/**
+	 * Takes the given number of bytes from the bucket, blocking until enough
+	 * tokens are available. Requests larger than the burst size are allowed and
+	 * leave the bucket in debt.
+	 *
+	 * @param bytes the number of bytes to consume
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public void acquire(long bytes) throws InterruptedException {
+		long wait;
+		synchronized (this) {
+			refill();
+			tokens -= bytes;
+			wait = tokens >= 0d ? 0L : (long) (-tokens * 1000000000d / bytesPerSecond);
+		}
+		if (wait > 0L)
+			Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+	}
+
+	private void refill() {
+		long time = System.nanoTime();
+		tokens = Math.min(burst, tokens + (time - lastRefill) * bytesPerSecond / 1000000000d);
+		lastRefill = time;
+	}
+
+	/**
+	 * Returns the sustained rate in bytes per second.
+	 *
+	 * @return the rate in bytes per second
+	 */
+	public long getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	/**
+	 * Returns the maximum number of bytes that may be consumed at once.
+	 *
+	 * @return the burst size in bytes
+	 */
+	public long getBurst() {
+		return burst;
+	}
+
+	/**
+	 * Returns a string representation of the limiter, including its rate and
+	 * burst size.
+	 *
+	 * @return a string representation of the {@code BandwidthLimiter}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [bytesPerSecond=%s, burst=%s]", getClass().getName(), bytesPerSecond, burst);
+	}
+
+}
@@ -0,0 +1,241 @@
+package com.kaba4cow.polyhaven.api.client.download;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.kaba4cow.polyhaven.api.client.PolyhavenApiClient;
+import com.kaba4cow.polyhaven.api.client.batch.BatchFetcher;
+import com.kaba4cow.polyhaven.api.client.batch.BatchResult;
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileTree;
+import com.kaba4cow.polyhaven.api.client.selection.FileVariant;
+import com.kaba4cow.polyhaven.api.client.selection.VariantEnumerator;
+import com.kaba4cow.polyhaven.api.client.store.ContentStore;
+import com.kaba4cow.polyhaven.api.client.store.LibraryVerifier;
+import com.kaba4cow.polyhaven.api.client.store.LinkMode;
+
+/**
+ * Downloads bundles of asset variants together with the closure of their
+ * dependent files.
+ * 
+ * <p>
+ * Each picked variant is laid out under {@code directory/asset/}, using the
+ * relative paths that the variant's files expect (e.g.
+ * {@code textures/name_4k.jpg} next to a {@code .gltf} file). Files with the
+ * same MD5 checksum are downloaded once across all picks and then copied to
+ * every other path that needs them. When the client has a content store, the
+ * other paths are placed from the store with the file downloader's
+ * {@link LinkMode}, so files are only hard or symbolically linked when that
+ * mode asks for it. Files that already exist with the expected size and MD5
+ * checksum are not downloaded again. Variants with a relative path that
+ * resolves outside of their asset directory are rejected.
+ * </p>
+ */
+public class BundleDownloader {
+
+	private final PolyhavenApiClient client;
+	private final int parallelism;
+
+	/**
+	 * Constructs a {@code BundleDownloader} that downloads at most
+	 * {@code parallelism} files at a time.
+	 *
+	 * @param client      the client used to fetch file trees and files
+	 * @param parallelism the maximum number of concurrent file downloads
+	 */
+	public BundleDownloader(PolyhavenApiClient client, int parallelism) {
+		this.client = client;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Resolves the given picks into variants by fetching the file trees of their
+	 * assets in parallel.
+	 *
+	 * @param picks the picks to resolve
+	 * @return a {@code BatchResult} mapping pick keys to variants, and the failures
+	 */
+	public BatchResult<FileVariant> resolve(Collection<BundlePick> picks) {
+		Set<String> assets = new LinkedHashSet<>();
+		for (BundlePick pick : picks)
+			assets.add(pick.getAsset());
+		BatchResult<PolyhavenFileTree> trees = BatchFetcher.fetchAll(assets, parallelism, client::getAssetFileTree);
+		Map<String, FileVariant> variants = new LinkedHashMap<>();
+		Map<String, Exception> failures = new LinkedHashMap<>();
+		for (BundlePick pick : picks) {
+			PolyhavenFileTree tree = trees.getResults().get(pick.getAsset());
+			if (tree == null) {
+				failures.put(pick.getKey(), trees.getFailures().get(pick.getAsset()));
+				continue;
+			}
+			FileVariant variant = VariantEnumerator.find(VariantEnumerator.getVariants(pick.getAsset(), tree),
+					pick.getResolution(), pick.getFormat());
+			if (variant == null)
+				failures.put(pick.getKey(), new IOException("No files found for " + pick.getKey()));
+			else
+				variants.put(pick.getKey(), variant);
+		}
+		return new BatchResult<>(variants, failures);
+	}
+
+	/**
+	 * Resolves and downloads the given picks into the given directory.
+	 *
+	 * @param picks     the picks to download
+	 * @param directory the directory to lay out the bundle in
+	 * @param listener  the listener notified about the aggregate progress
+	 * @return a {@code BatchResult} mapping pick keys to downloaded variants, and
+	 *         the failures
+	 */
+	public BatchResult<FileVariant> download(Collection<BundlePick> picks, Path directory, BundleListener listener) {
+		BatchResult<FileVariant> resolved = resolve(picks);
+		BatchResult<FileVariant> downloaded = download(resolved.getResults(), directory, listener);
+		Map<String, Exception> failures = new LinkedHashMap<>(resolved.getFailures());
+		failures.putAll(downloaded.getFailures());
+		return new BatchResult<>(new LinkedHashMap<>(downloaded.getResults()), failures);
+	}
+
+	/**
+	 * Downloads the given variants into the given directory, downloading each
+	 * distinct file once.
+	 *
+	 * @param variants  the variants to download, keyed by an arbitrary key
+	 * @param directory the directory to lay out the bundle in
+	 * @param listener  the listener notified about the aggregate progress
+	 * @return a {@code BatchResult} mapping the keys to downloaded variants, and
+	 *         the failures
+	 */
+	public BatchResult<FileVariant> download(Map<String, FileVariant> variants, Path directory,
+			BundleListener listener) {
+		Map<String, PolyhavenFileObject> blobs = new LinkedHashMap<>();
+		Map<String, List<Path>> targets = new HashMap<>();
+		Map<String, Exception> failures = new LinkedHashMap<>();
+		Path root = directory.toAbsolutePath().normalize();
+		for (Map.Entry<String, FileVariant> variant : variants.entrySet()) {
+			Map<Path, PolyhavenFileObject> layout;
+			try {
+				layout = getLayout(root, variant.getValue());
+			} catch (IOException e) {
+				failures.put(variant.getKey(), e);
+				continue;
+			}
+			for (Map.Entry<Path, PolyhavenFileObject> file : layout.entrySet()) {
+				String md5 = file.getValue().getMd5();
+				blobs.putIfAbsent(md5, file.getValue());
+				List<Path> paths = targets.computeIfAbsent(md5, key -> new ArrayList<>());
+				if (!paths.contains(file.getKey()))
+					paths.add(file.getKey());
+			}
+		}
+		long total = 0L;
+		for (PolyhavenFileObject file : blobs.values())
+			total += file.getSize();
+		long size = total;
+		AtomicLong progress = new AtomicLong();
+		ContentStore store = client.getContentStore();
+		LinkMode mode = client.getFileDownloader().getLinkMode();
+		BatchResult<Path> files = BatchFetcher.fetchAll(blobs.keySet(), parallelism, md5 -> {
+			PolyhavenFileObject file = blobs.get(md5);
+			List<Path> paths = targets.get(md5);
+			Map<Path, Boolean> complete = new HashMap<>();
+			Path source = findExisting(paths, file, complete);
+			if (source == null) {
+				source = paths.get(0);
+				client.downloadFile(file, source, new DownloadListener() {
+					@Override
+					public void bytesDownloaded(long bytes) {
+						listener.bytesDownloaded(bytes);
+						listener.progressUpdated(progress.addAndGet(bytes), size);
+					}
+
+					@Override
+					public void bytesReused(long bytes) {
+						listener.progressUpdated(progress.addAndGet(bytes), size);
+					}
+				});
+			} else
+				listener.progressUpdated(progress.addAndGet(file.getSize()), size);
+			for (Path path : paths)
+				if (!path.equals(source) && !isComplete(path, file, complete)) {
+					if (store != null && store.contains(md5))
+						store.materialize(md5, path, mode);
+					else
+						copy(source, path);
+				}
+			return source;
+		});
+		Map<String, FileVariant> results = new LinkedHashMap<>();
+		for (Map.Entry<String, FileVariant> variant : variants.entrySet()) {
+			if (failures.containsKey(variant.getKey()))
+				continue;
+			Exception failure = null;
+			for (PolyhavenFileObject file : variant.getValue().getFiles().values())
+				if (files.getFailures().containsKey(file.getMd5()))
+					failure = files.getFailures().get(file.getMd5());
+			if (failure == null)
+				results.put(variant.getKey(), variant.getValue());
+			else
+				failures.put(variant.getKey(), failure);
+		}
+		return new BatchResult<>(results, failures);
+	}
+
+	/**
+	 * Resolves the paths of the files of a variant under its asset directory,
+	 * rejecting paths that would place a file outside of it.
+	 */
+	private static Map<Path, PolyhavenFileObject> getLayout(Path root, FileVariant variant) throws IOException {
+		Path base = root.resolve(variant.getAsset()).normalize();
+		if (!base.startsWith(root) || base.equals(root))
+			throw new IOException("Invalid asset name " + variant.getAsset());
+		Map<Path, PolyhavenFileObject> layout = new LinkedHashMap<>();
+		for (Map.Entry<String, PolyhavenFileObject> file : variant.getFiles().entrySet()) {
+			Path target = base.resolve(file.getKey()).normalize();
+			if (!target.startsWith(base) || target.equals(base))
+				throw new IOException("Path " + file.getKey() + " of " + variant.getAsset() + " is outside of "
+						+ base);
+			layout.put(target, file.getValue());
+		}
+		return layout;
+	}
+
+	private static Path findExisting(List<Path> paths, PolyhavenFileObject file, Map<Path, Boolean> complete)
+			throws IOException {
+		for (Path path : paths)
+			if (isComplete(path, file, complete))
+				return path;
+		return null;
+	}
+
+	/**
+	 * Checks whether the path holds the file, hashing every path at most once per
+	 * download.
+	 */
+	private static boolean isComplete(Path path, PolyhavenFileObject file, Map<Path, Boolean> complete)
+			throws IOException {
+		Boolean cached = complete.get(path);
+		if (cached == null) {
+			cached = Files.isRegularFile(path) && Files.size(path) == file.getSize()
+					&& LibraryVerifier.hash(path).equalsIgnoreCase(file.getMd5());
+			complete.put(path, cached);
+		}
+		return cached;
+	}
+
+	private static void copy(Path source, Path target) throws IOException {
+		Files.createDirectories(target.toAbsolutePath().getParent());
+		Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.kaba4cow.polyhaven.api.client.download;
+
+/**
+ * Listener notified about the aggregate progress of a bundle download. It may
+ * be called concurrently from several download threads.
+ */
+@FunctionalInterface
+public interface BundleListener {
+
+	/**
+	 * Called after a chunk of any file of the bundle has been written to disk.
+	 *
+	 * @param downloaded the number of bytes of the bundle downloaded so far
+	 * @param total      the total number of bytes of the bundle
+	 */
+	public void progressUpdated(long downloaded, long total);
+
+	/**
+	 * Called after a chunk of any file of the bundle has been downloaded, with
+	 * the size of that chunk. Unlike the progress, this does not include files
+	 * that were already present or reused. Does nothing by default.
+	 *
+	 * @param bytes the number of bytes downloaded
+	 */
+	public default void bytesDownloaded(long bytes) {
+	}
+
+}
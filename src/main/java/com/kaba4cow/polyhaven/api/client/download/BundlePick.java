@@ -0,0 +1,86 @@
+package com.kaba4cow.polyhaven.api.client.download;
+
+/**
+ * Represents one asset variant requested from a {@link BundleDownloader},
+ * identified by the asset ID, resolution and format.
+ */
+public class BundlePick {
+
+	/**
+	 * The unique ID/slug of the asset
+	 */
+	private final String asset;
+
+	/**
+	 * The resolution of the variant (e.g. {@code 4k})
+	 */
+	private final String resolution;
+
+	/**
+	 * The format of the variant (e.g. {@code gltf})
+	 */
+	private final String format;
+
+	/**
+	 * Constructs a {@code BundlePick} for the given asset variant.
+	 *
+	 * @param asset      the unique ID/slug of the asset
+	 * @param resolution the resolution of the variant
+	 * @param format     the format of the variant
+	 */
+	public BundlePick(String asset, String resolution, String format) {
+		this.asset = asset;
+		this.resolution = resolution;
+		this.format = format;
+	}
+
+	/**
+	 * Returns the unique ID/slug of the asset.
+	 *
+	 * @return the asset ID
+	 */
+	public String getAsset() {
+		return asset;
+	}
+
+	/**
+	 * Returns the resolution of the variant.
+	 *
+	 * @return the resolution
+	 */
+	public String getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * Returns the format of the variant.
+	 *
+	 * @return the format
+	 */
+	public String getFormat() {
+		return format;
+	}
+
+	/**
+	 * Returns a key identifying this pick, in the form
+	 * {@code asset/resolution/format}.
+	 *
+	 * @return the key of this pick
+	 */
+	public String getKey() {
+		return asset + "/" + resolution + "/" + format;
+	}
+
+	/**
+	 * Returns a string representation of the pick, including the asset,
+	 * resolution and format.
+	 *
+	 * @return a string representation of the {@code BundlePick}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [asset=%s, resolution=%s, format=%s]", getClass().getName(), asset, resolution,
+				format);
+	}
+
+}
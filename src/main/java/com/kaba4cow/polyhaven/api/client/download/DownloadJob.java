@@ -0,0 +1,114 @@
+package com.kaba4cow.polyhaven.api.client.download;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
+
+/**
+ * Represents a download scheduled by a {@link DownloadScheduler}.
+ */
+public class DownloadJob {
+
+	/**
+	 * The unique ID of this job
+	 */
+	private final String id;
+
+	/**
+	 * The order in which this job was submitted
+	 */
+	private final long sequence;
+
+	/**
+	 * The priority class of this job
+	 */
+	private final DownloadPriority priority;
+
+	/**
+	 * The file to download
+	 */
+	private final PolyhavenFileObject file;
+
+	/**
+	 * The path to write the file to
+	 */
+	private final Path target;
+
+	/**
+	 * The future completed when the download finishes
+	 */
+	private final CompletableFuture<Path> future;
+
+	DownloadJob(String id, long sequence, DownloadPriority priority, PolyhavenFileObject file, Path target) {
+		this.id = id;
+		this.sequence = sequence;
+		this.priority = priority;
+		this.file = file;
+		this.target = target;
+		this.future = new CompletableFuture<>();
+	}
+
+	/**
+	 * Returns the unique ID of this job.
+	 *
+	 * @return the job ID
+	 */
+	public String getId() {
+		return id;
+	}
+
+	long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Returns the priority class of this job.
+	 *
+	 * @return the priority
+	 */
+	public DownloadPriority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Returns the file to download.
+	 *
+	 * @return the file object
+	 */
+	public PolyhavenFileObject getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the path to write the file to.
+	 *
+	 * @return the target path
+	 */
+	public Path getTarget() {
+		return target;
+	}
+
+	/**
+	 * Returns the future completed with the target path when the download
+	 * finishes, or completed exceptionally when it fails.
+	 *
+	 * @return the future of this job
+	 */
+	public CompletableFuture<Path> getFuture() {
+		return future;
+	}
+
+	/**
+	 * Returns a string representation of the job, including its ID, priority, URL
+	 * and target.
+	 *
+	 * @return a string representation of the {@code DownloadJob}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [id=%s, priority=%s, url=%s, target=%s]", getClass().getName(), id, priority,
+				file.getUrl(), target);
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.kaba4cow.polyhaven.api.client.download;
+
+/**
+ * Listener notified about the progress of a download. It may be called
+ * concurrently from several download threads.
+ */
+@FunctionalInterface
+public interface DownloadListener {
+
+	/**
+	 * Called after a chunk of the download has been written to disk.
+	 *
+	 * @param bytes the number of bytes written
+	 */
+	public void bytesDownloaded(long bytes);
+
+	/**
+	 * Called for bytes of the file that did not have to be downloaded, either
+	 * because they were kept from an interrupted download or because the file
+	 * was taken from a content store. Called with a negative number when kept
+	 * bytes are discarded again because the server ignored the requested range.
+	 * Does nothing by default.
+	 *
+	 * @param bytes the number of bytes reused, negative if discarded
+	 */
+	public default void bytesReused(long bytes) {
+	}
+
+}
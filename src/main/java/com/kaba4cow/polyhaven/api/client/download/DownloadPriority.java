@@ -0,0 +1,25 @@
+package com.kaba4cow.polyhaven.api.client.download;
+
+/**
+ * Defines the priority classes of downloads in a {@link DownloadScheduler}.
+ * Jobs of a higher priority are always started before jobs of a lower
+ * priority.
+ */
+public enum DownloadPriority {
+
+	/**
+	 * Downloads requested by a user who is waiting for them.
+	 */
+	INTERACTIVE,
+
+	/**
+	 * Regular downloads.
+	 */
+	NORMAL,
+
+	/**
+	 * Background downloads such as overnight syncs.
+	 */
+	BULK
+
+}
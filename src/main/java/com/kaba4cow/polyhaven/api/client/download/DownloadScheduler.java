@@ -0,0 +1,367 @@
+package com.kaba4cow.polyhaven.api.client.download;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
+import com.kaba4cow.polyhaven.api.client.store.LibraryVerifier;
+
+/**
+ * Schedules downloads of {@link PolyhavenFileObject}s by priority and records
+ * their state in a crash-safe journal.
+ * 
+ * <p>
+ * Jobs are started in order of their {@link DownloadPriority} and then in the
+ * order they were submitted. At most {@code hostLimit} jobs run against the
+ * same host at a time. Unless only one worker is available, one worker is
+ * always kept free for {@link DownloadPriority#INTERACTIVE} jobs, and unless
+ * the host limit is one, so is one slot of every host, so interactive jobs
+ * never wait behind bulk downloads from the same host. The combined bandwidth
+ * can be capped with a {@link BandwidthLimiter}.
+ * </p>
+ * 
+ * <p>
+ * Every submitted, completed and failed job is appended to a journal of JSON
+ * lines. When a scheduler is created with an existing journal, the jobs that
+ * were submitted but never completed are queued again, and the
+ * {@link FileDownloader} resumes their partial files. A job whose target
+ * already exists with the expected MD5 checksum, for example because the
+ * process stopped after moving the file into place but before journaling it,
+ * completes without downloading.
+ * </p>
+ */
+public class DownloadScheduler {
+
+	private static final Comparator<DownloadJob> ORDER = Comparator.comparing(DownloadJob::getPriority)
+			.thenComparingLong(DownloadJob::getSequence);
+
+	private final FileDownloader downloader;
+	private final Path journal;
+	private final int workers;
+	private final int hostLimit;
+
+	private final ReentrantLock lock;
+	private final Condition changed;
+	private final TreeSet<DownloadJob> queue;
+	private final Map<String, Integer> activeHosts;
+	private final Map<String, Integer> sharedHosts;
+	private final List<Thread> threads;
+
+	private FileChannel journalChannel;
+	private long sequence;
+	private int activeShared;
+	private volatile boolean shutdown;
+
+	/**
+	 * Constructs a {@code DownloadScheduler}, replays the given journal and starts
+	 * the worker threads.
+	 *
+	 * @param downloader the downloader used to download files
+	 * @param journal    the path of the journal file
+	 * @param workers    the maximum number of concurrent downloads
+	 * @param hostLimit  the maximum number of concurrent downloads per host
+	 * @param limiter    the bandwidth limiter shared by all downloads, or
+	 *                   {@code null} for unlimited bandwidth
+	 * @throws IOException if the journal cannot be read or written
+	 */
+	public DownloadScheduler(FileDownloader downloader, Path journal, int workers, int hostLimit,
+			BandwidthLimiter limiter) throws IOException {
+		this.downloader = downloader;
+		this.journal = journal.toAbsolutePath();
+		this.workers = workers;
+		this.hostLimit = hostLimit;
+		this.lock = new ReentrantLock();
+		this.changed = lock.newCondition();
+		this.queue = new TreeSet<>(ORDER);
+		this.activeHosts = new HashMap<>();
+		this.sharedHosts = new HashMap<>();
+		this.threads = new ArrayList<>();
+		this.sequence = 0L;
+		this.activeShared = 0;
+		this.shutdown = false;
+		if (limiter != null)
+			downloader.setBandwidthLimiter(limiter);
+		replay();
+		for (int i = 0; i < workers; i++) {
+			Thread thread = new Thread(this::work, "polyhaven-scheduler-" + i);
+			thread.setDaemon(true);
+			threads.add(thread);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Schedules a download of the given file.
+	 *
+	 * @param file     the file to download
+	 * @param target   the path to write the file to
+	 * @param priority the priority class of the download
+	 * @return the scheduled {@code DownloadJob}
+	 * @throws IOException if the job cannot be written to the journal
+	 */
+	public DownloadJob submit(PolyhavenFileObject file, Path target, DownloadPriority priority) throws IOException {
+		lock.lock();
+		try {
+			if (shutdown)
+				throw new IllegalStateException("scheduler is shut down");
+			DownloadJob job = new DownloadJob(UUID.randomUUID().toString(), sequence++, priority, file,
+					target.toAbsolutePath());
+			append(createAddRecord(job));
+			queue.add(job);
+			changed.signalAll();
+			return job;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the jobs that are waiting to be started, in the order they will be
+	 * started.
+	 *
+	 * @return a list of queued jobs
+	 */
+	public List<DownloadJob> getQueuedJobs() {
+		lock.lock();
+		try {
+			return new ArrayList<>(queue);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the worker threads. Downloads in progress are interrupted, remain in
+	 * the journal and are resumed by the next scheduler using the same journal.
+	 *
+	 * @throws IOException if the journal cannot be closed
+	 */
+	public void shutdown() throws IOException {
+		lock.lock();
+		try {
+			shutdown = true;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		for (Thread thread : threads)
+			thread.interrupt();
+		for (Thread thread : threads)
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		lock.lock();
+		try {
+			journalChannel.close();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void work() {
+		while (true) {
+			DownloadJob job;
+			try {
+				job = take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (job == null)
+				return;
+			try {
+				if (!isComplete(job))
+					downloader.download(job.getFile(), job.getTarget());
+				finish(job, createRecord("done", job));
+				job.getFuture().complete(job.getTarget());
+			} catch (Exception e) {
+				if (shutdown) {
+					release(job);
+					return;
+				}
+				finish(job, createRecord("failed", job).put("error", String.valueOf(e.getMessage())));
+				job.getFuture().completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the highest priority job that may be started under the host and
+	 * interactive reservation limits. Shared jobs may use all but one worker and
+	 * all but one slot of their host.
+	 */
+	private DownloadJob take() throws InterruptedException {
+		lock.lock();
+		try {
+			while (!shutdown) {
+				Iterator<DownloadJob> iterator = queue.iterator();
+				while (iterator.hasNext()) {
+					DownloadJob job = iterator.next();
+					String host = getHost(job);
+					boolean shared = job.getPriority() != DownloadPriority.INTERACTIVE;
+					if (activeHosts.getOrDefault(host, 0) >= hostLimit)
+						continue;
+					if (shared && workers > 1 && activeShared >= workers - 1)
+						continue;
+					if (shared && hostLimit > 1 && sharedHosts.getOrDefault(host, 0) >= hostLimit - 1)
+						continue;
+					iterator.remove();
+					activeHosts.merge(host, 1, Integer::sum);
+					if (shared) {
+						sharedHosts.merge(host, 1, Integer::sum);
+						activeShared++;
+					}
+					return job;
+				}
+				changed.await();
+			}
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Checks whether the target of the job already holds the expected file.
+	 */
+	private static boolean isComplete(DownloadJob job) throws IOException {
+		Path target = job.getTarget();
+		PolyhavenFileObject file = job.getFile();
+		return Files.isRegularFile(target) && Files.size(target) == file.getSize()
+				&& LibraryVerifier.hash(target).equalsIgnoreCase(file.getMd5());
+	}
+
+	private void finish(DownloadJob job, JSONObject record) {
+		lock.lock();
+		try {
+			append(record);
+		} catch (IOException e) {
+			// the job is replayed and its completed file is verified again
+		} finally {
+			lock.unlock();
+		}
+		release(job);
+	}
+
+	private void release(DownloadJob job) {
+		lock.lock();
+		try {
+			String host = getHost(job);
+			activeHosts.merge(host, -1, Integer::sum);
+			if (job.getPriority() != DownloadPriority.INTERACTIVE) {
+				sharedHosts.merge(host, -1, Integer::sum);
+				activeShared--;
+			}
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads the journal, queues every job that was not finished and rewrites the
+	 * journal so that it only contains those jobs.
+	 */
+	private void replay() throws IOException {
+		Map<String, JSONObject> pending = new LinkedHashMap<>();
+		if (Files.exists(journal))
+			try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					JSONObject record;
+					try {
+						record = new JSONObject(line);
+					} catch (JSONException e) {
+						continue;
+					}
+					if (record.getString("op").equals("add"))
+						pending.put(record.getString("id"), record);
+					else
+						pending.remove(record.getString("id"));
+				}
+			}
+		Path temp = journal.resolveSibling(journal.getFileName() + ".tmp");
+		StringBuilder lines = new StringBuilder();
+		for (JSONObject record : pending.values()) {
+			JSONObject json = new JSONObject();
+			json.put("url", record.getString("url"));
+			json.put("md5", record.getString("md5"));
+			json.put("size", record.getLong("size"));
+			DownloadJob job = new DownloadJob(record.getString("id"), sequence++,
+					DownloadPriority.valueOf(record.getString("priority")), new PolyhavenFileObject(json),
+					Paths.get(record.getString("target")));
+			queue.add(job);
+			lines.append(record).append('\n');
+		}
+		Files.write(temp, lines.toString().getBytes(StandardCharsets.UTF_8));
+		Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		journalChannel = FileChannel.open(journal, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	private void append(JSONObject record) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+		while (buffer.hasRemaining())
+			journalChannel.write(buffer);
+		journalChannel.force(false);
+	}
+
+	private static JSONObject createAddRecord(DownloadJob job) {
+		JSONObject record = createRecord("add", job);
+		record.put("priority", job.getPriority().name());
+		record.put("url", job.getFile().getUrl());
+		record.put("md5", job.getFile().getMd5());
+		record.put("size", job.getFile().getSize());
+		record.put("target", job.getTarget().toString());
+		return record;
+	}
+
+	private static JSONObject createRecord(String op, DownloadJob job) {
+		JSONObject record = new JSONObject();
+		record.put("op", op);
+		record.put("id", job.getId());
+		return record;
+	}
+
+	private static String getHost(DownloadJob job) {
+		String host = URI.create(job.getFile().getUrl()).getHost();
+		return host == null ? "" : host;
+	}
+
+	/**
+	 * Returns a string representation of the scheduler, including its journal,
+	 * worker count and host limit.
+	 *
+	 * @return a string representation of the {@code DownloadScheduler}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [journal=%s, workers=%s, hostLimit=%s]", getClass().getName(), journal, workers,
+				hostLimit);
+	}
+
+}
@@ -0,0 +1,600 @@
+package com.kaba4cow.polyhaven.api.client.download;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
+import com.kaba4cow.polyhaven.api.client.http.HttpException;
+import com.kaba4cow.polyhaven.api.client.http.HttpResponse;
+import com.kaba4cow.polyhaven.api.client.store.Checksums;
+import com.kaba4cow.polyhaven.api.client.store.ContentStore;
+import com.kaba4cow.polyhaven.api.client.store.LinkMode;
+
+/**
+ * Downloads {@link PolyhavenFileObject}s to disk and verifies their MD5
+ * checksum while the bytes arrive.
+ * 
+ * <p>
+ * Files of at least {@link #getSegmentThreshold()} bytes are split into HTTP
+ * range segments that are fetched in parallel and written in place with
+ * positional {@link FileChannel} writes. The data is written to a
+ * {@code .part} file next to the target, and the number of bytes written for
+ * each segment is recorded in a {@code .part.state} file, so an interrupted
+ * download resumes from where every segment stopped.
+ * </p>
+ * 
+ * <p>
+ * The MD5 digest is computed in file order from the downloaded chunks
+ * themselves, so the file is never read back. Chunks that arrive ahead of the
+ * hashed prefix are kept in memory until the prefix reaches them, and a segment
+ * does not start while it would be more than {@code parallelism} segments
+ * ahead of the prefix, which bounds that memory. The digest state is saved in
+ * the {@code .part.state} file as well, so a resumed download does not hash its
+ * prefix again; only bytes that an interrupted run wrote ahead of its prefix
+ * are read back. Once the checksum matches, the {@code .part} file is moved
+ * over the target.
+ * </p>
+ * 
+ * <p>
+ * If a {@link ContentStore} is set, files already stored under their MD5
+ * checksum are materialized from the store without any network request, and
+ * every completed download is added to the store. Files are placed as copies
+ * unless another {@link LinkMode} is set: with symbolic links a completed
+ * download is replaced by a link to the stored file, and with hard links the
+ * target shares the stored file.
+ * </p>
+ */
+public class FileDownloader {
+
+	private static final int RESPONSE_OK = 200;
+	private static final int RESPONSE_PARTIAL_CONTENT = 206;
+
+	private static final long DEFAULT_SEGMENT_SIZE = 4L * 1024L * 1024L;
+	private static final long DEFAULT_SEGMENT_THRESHOLD = 32L * 1024L * 1024L;
+	private static final int BUFFER_SIZE = 256 * 1024;
+	private static final int STATE_HEADER_SIZE = 16;
+
+	private final ExecutorService executor;
+	private final int parallelism;
+	private final long segmentSize;
+	private final long segmentThreshold;
+
+	private volatile ContentStore contentStore;
+	private volatile LinkMode linkMode;
+	private volatile BandwidthLimiter bandwidthLimiter;
+
+	/**
+	 * Constructs a {@code FileDownloader} that fetches at most
+	 * {@code parallelism} segments at a time.
+	 *
+	 * @param parallelism      the maximum number of concurrent segment requests
+	 * @param segmentSize      the size in bytes of each segment
+	 * @param segmentThreshold the minimum file size in bytes for a file to be
+	 *                         split into segments
+	 */
+	public FileDownloader(int parallelism, long segmentSize, long segmentThreshold) {
+		this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, "polyhaven-download");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.parallelism = parallelism;
+		this.segmentSize = segmentSize;
+		this.segmentThreshold = segmentThreshold;
+		this.contentStore = null;
+		this.linkMode = LinkMode.COPY;
+		this.bandwidthLimiter = null;
+	}
+
+	/**
+	 * Constructs a {@code FileDownloader} that fetches at most
+	 * {@code parallelism} segments at a time with the default segment size.
+	 *
+	 * @param parallelism the maximum number of concurrent segment requests
+	 */
+	public FileDownloader(int parallelism) {
+		this(parallelism, DEFAULT_SEGMENT_SIZE, DEFAULT_SEGMENT_THRESHOLD);
+	}
+
+	/**
+	 * Returns the size in bytes of each segment.
+	 *
+	 * @return the segment size
+	 */
+	public long getSegmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * Returns the minimum file size in bytes for a file to be split into
+	 * segments.
+	 *
+	 * @return the segment threshold
+	 */
+	public long getSegmentThreshold() {
+		return segmentThreshold;
+	}
+
+	/**
+	 * Returns the content store checked before downloading.
+	 *
+	 * @return the content store, or {@code null} if none is set
+	 */
+	public ContentStore getContentStore() {
+		return contentStore;
+	}
+
+	/**
+	 * Returns the way stored files are placed at target paths.
+	 *
+	 * @return the link mode, {@link LinkMode#COPY} unless set otherwise
+	 */
+	public LinkMode getLinkMode() {
+		return linkMode;
+	}
+
+	/**
+	 * Sets the content store checked before downloading and the way stored files
+	 * are placed at target paths. {@link LinkMode#HARD_LINK} makes every target
+	 * share the stored file, so editing one in place changes the stored file and
+	 * every other target linked to it.
+	 *
+	 * @param contentStore the content store, or {@code null} to disable it
+	 * @param linkMode     how stored files are placed at target paths
+	 */
+	public void setContentStore(ContentStore contentStore, LinkMode linkMode) {
+		this.contentStore = contentStore;
+		this.linkMode = linkMode;
+	}
+
+	/**
+	 * Returns the limiter shared by all downloads of this downloader.
+	 *
+	 * @return the bandwidth limiter, or {@code null} if the bandwidth is not
+	 *         limited
+	 */
+	public BandwidthLimiter getBandwidthLimiter() {
+		return bandwidthLimiter;
+	}
+
+	/**
+	 * Sets the limiter shared by all downloads of this downloader.
+	 *
+	 * @param bandwidthLimiter the bandwidth limiter, or {@code null} to remove the
+	 *                         limit
+	 */
+	public void setBandwidthLimiter(BandwidthLimiter bandwidthLimiter) {
+		this.bandwidthLimiter = bandwidthLimiter;
+	}
+
+	/**
+	 * Downloads the file to the given target path.
+	 *
+	 * @param file   the file to download
+	 * @param target the path to write the file to
+	 * @throws IOException   if an I/O error occurs or the MD5 checksum does not
+	 *                       match
+	 * @throws HttpException if the server responds with an error code
+	 */
+	public void download(PolyhavenFileObject file, Path target) throws IOException, HttpException {
+		download(file, target, bytes -> {
+		});
+	}
+
+	/**
+	 * Downloads the file to the given target path, resuming a previously
+	 * interrupted download of the same file if possible.
+	 *
+	 * @param file     the file to download
+	 * @param target   the path to write the file to
+	 * @param listener the listener notified about the download progress
+	 * @throws IOException   if an I/O error occurs or the MD5 checksum does not
+	 *                       match
+	 * @throws HttpException if the server responds with an error code
+	 */
+	public void download(PolyhavenFileObject file, Path target, DownloadListener listener)
+			throws IOException, HttpException {
+		ContentStore store = contentStore;
+		LinkMode mode = linkMode;
+		if (store != null && store.contains(file.getMd5())) {
+			store.materialize(file.getMd5(), target, mode);
+			listener.bytesReused(file.getSize());
+			return;
+		}
+		Path absolute = target.toAbsolutePath();
+		if (absolute.getParent() != null)
+			Files.createDirectories(absolute.getParent());
+		Path part = absolute.resolveSibling(absolute.getFileName() + ".part");
+		Path statePath = absolute.resolveSibling(absolute.getFileName() + ".part.state");
+		long size = file.getSize();
+		long segmentLength = size >= segmentThreshold && supportsRanges(file.getUrl()) ? segmentSize
+				: Math.max(size, 1L);
+		int count = (int) Math.max(1L, (size + segmentLength - 1L) / segmentLength);
+		try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+				FileChannel state = FileChannel.open(statePath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+						StandardOpenOption.WRITE)) {
+			Segment[] segments = createSegments(size, segmentLength, count, state);
+			long reused = 0L;
+			for (Segment segment : segments)
+				reused += segment.written.get();
+			if (reused > 0L)
+				listener.bytesReused(reused);
+			Verifier verifier = new Verifier(channel, state, segments, size, parallelism * segmentLength);
+			List<Future<Void>> futures = new ArrayList<>();
+			for (Segment segment : segments)
+				if (!segment.isComplete())
+					futures.add(executor.submit(() -> {
+						downloadSegment(file.getUrl(), segment, count > 1, channel, state, verifier, listener,
+								bandwidthLimiter);
+						return null;
+					}));
+			await(futures);
+			String md5 = verifier.finish();
+			if (!md5.equalsIgnoreCase(file.getMd5())) {
+				channel.truncate(0L);
+				state.truncate(0L);
+				throw new IOException(
+						String.format("MD5 mismatch for %s: expected %s, got %s", file.getUrl(), file.getMd5(), md5));
+			}
+			channel.force(true);
+		}
+		Files.move(part, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		Files.deleteIfExists(statePath);
+		if (store != null) {
+			store.put(file.getMd5(), absolute, mode);
+			if (mode == LinkMode.SYMBOLIC_LINK)
+				store.materialize(file.getMd5(), absolute, mode);
+		}
+	}
+
+	/**
+	 * Shuts down the download threads. Downloads in progress are interrupted and
+	 * can be resumed later.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private boolean supportsRanges(String url) throws IOException {
+		HttpResponse response = new HttpResponse(url, Collections.singletonMap("Range", "bytes=0-0"));
+		response.disconnect();
+		return response.getCode() == RESPONSE_PARTIAL_CONTENT;
+	}
+
+	/**
+	 * Creates the segments of a download, restoring the number of bytes written
+	 * for each segment from the state file if it belongs to the same layout.
+	 */
+	private static Segment[] createSegments(long size, long segmentLength, int count, FileChannel state)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(STATE_HEADER_SIZE + 8 * count + ResumableMd5.STATE_SIZE);
+		boolean valid = state.size() == buffer.capacity();
+		if (valid) {
+			while (buffer.hasRemaining() && state.read(buffer, buffer.position()) >= 0)
+				;
+			buffer.flip();
+			valid = buffer.getLong() == size && buffer.getLong() == segmentLength;
+		}
+		if (!valid) {
+			state.truncate(0L);
+			buffer.clear();
+			buffer.putLong(size).putLong(segmentLength);
+			while (buffer.hasRemaining())
+				buffer.putLong(0L);
+			buffer.flip();
+			while (buffer.hasRemaining())
+				state.write(buffer, buffer.position());
+			buffer.position(STATE_HEADER_SIZE);
+		}
+		Segment[] segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			long start = i * segmentLength;
+			long length = Math.min(segmentLength, size - start);
+			long written = Math.max(0L, Math.min(length, buffer.getLong()));
+			segments[i] = new Segment(i, start, length, written);
+		}
+		return segments;
+	}
+
+	private static void downloadSegment(String url, Segment segment, boolean ranged, FileChannel channel,
+			FileChannel state, Verifier verifier, DownloadListener listener, BandwidthLimiter limiter)
+			throws IOException, HttpException {
+		long from = segment.start + segment.written.get();
+		long to = segment.start + segment.length - 1L;
+		try {
+			verifier.awaitWindow(from);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Download interrupted: " + url, e);
+		}
+		boolean partial = ranged || from > 0L;
+		HttpResponse response = partial
+				? new HttpResponse(url, Collections.singletonMap("Range", "bytes=" + from + "-" + to))
+				: new HttpResponse(url);
+		if (!ranged && response.getCode() == RESPONSE_OK && from > 0L) {
+			response.disconnect();
+			segment.written.set(0L);
+			verifier.restart();
+			listener.bytesReused(-from);
+			from = segment.start;
+			response = new HttpResponse(url);
+			if (response.getCode() != RESPONSE_OK)
+				throw new HttpException(response, "Could not download " + url);
+		} else if (response.getCode() != (partial ? RESPONSE_PARTIAL_CONTENT : RESPONSE_OK))
+			throw new HttpException(response, "Could not download " + url);
+		byte[] array = new byte[BUFFER_SIZE];
+		ByteBuffer counter = ByteBuffer.allocate(8);
+		try (InputStream input = response.getInputStream()) {
+			long position = from;
+			long end = to + 1L;
+			while (position < end) {
+				if (Thread.currentThread().isInterrupted())
+					throw new IOException("Download interrupted: " + url);
+				int read = input.read(array, 0, (int) Math.min(array.length, end - position));
+				if (read < 0)
+					throw new IOException("Unexpected end of stream: " + url);
+				if (limiter != null)
+					try {
+						limiter.acquire(read);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException("Download interrupted: " + url, e);
+					}
+				ByteBuffer buffer = ByteBuffer.wrap(array, 0, read);
+				long offset = position;
+				while (buffer.hasRemaining())
+					offset += channel.write(buffer, offset);
+				segment.written.addAndGet(read);
+				counter.clear();
+				counter.putLong(segment.written.get()).flip();
+				state.write(counter, STATE_HEADER_SIZE + 8L * segment.index);
+				verifier.advance(position, array, read);
+				listener.bytesDownloaded(read);
+				position += read;
+			}
+		}
+	}
+
+	private static void await(List<Future<Void>> futures) throws IOException, HttpException {
+		try {
+			for (Future<Void> future : futures)
+				future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Download interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof HttpException)
+				throw (HttpException) cause;
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			throw new IOException(cause);
+		} finally {
+			for (Future<Void> future : futures)
+				future.cancel(true);
+		}
+	}
+
+	private static class Segment {
+
+		private final int index;
+		private final long start;
+		private final long length;
+		private final AtomicLong written;
+
+		private Segment(int index, long start, long length, long written) {
+			this.index = index;
+			this.start = start;
+			this.length = length;
+			this.written = new AtomicLong(written);
+		}
+
+		private boolean isComplete() {
+			return written.get() >= length;
+		}
+
+	}
+
+	/**
+	 * Computes the MD5 digest of a download in file order. Chunks ahead of the
+	 * hashed prefix wait in memory; whichever thread gets the hash lock hashes
+	 * every chunk that continues the prefix, the others return immediately.
+	 */
+	private static class Verifier {
+
+		private final FileChannel channel;
+		private final FileChannel state;
+		private final long stateOffset;
+		private final Segment[] segments;
+		private final long[] resumed;
+		private final long size;
+		private final long window;
+		private final ResumableMd5 digest;
+		private final Map<Long, byte[]> pending;
+		private final ReentrantLock lock;
+		private final ByteBuffer buffer;
+
+		private long hashed;
+
+		private Verifier(FileChannel channel, FileChannel state, Segment[] segments, long size, long window)
+				throws IOException {
+			this.channel = channel;
+			this.state = state;
+			this.stateOffset = STATE_HEADER_SIZE + 8L * segments.length;
+			this.segments = segments;
+			this.resumed = new long[segments.length];
+			for (int i = 0; i < segments.length; i++)
+				resumed[i] = segments[i].written.get();
+			this.size = size;
+			this.window = window;
+			this.digest = new ResumableMd5();
+			this.pending = new HashMap<>();
+			this.lock = new ReentrantLock();
+			this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			this.hashed = restore();
+		}
+
+		/**
+		 * Restores the saved digest state if it covers no more than the
+		 * contiguous prefix that is already on disk.
+		 */
+		private long restore() throws IOException {
+			ByteBuffer saved = ByteBuffer.allocate(ResumableMd5.STATE_SIZE);
+			while (saved.hasRemaining() && state.read(saved, stateOffset + saved.position()) > 0)
+				;
+			saved.flip();
+			if (saved.remaining() < ResumableMd5.STATE_SIZE)
+				return 0L;
+			digest.restore(saved);
+			long prefix = 0L;
+			for (Segment segment : segments) {
+				prefix += segment.written.get();
+				if (!segment.isComplete())
+					break;
+			}
+			if (digest.getSavedLength() <= 0L || digest.getSavedLength() > prefix) {
+				digest.reset();
+				return 0L;
+			}
+			return digest.getSavedLength();
+		}
+
+		/**
+		 * Forgets the hashed prefix and the bytes of the interrupted run, used
+		 * when a server ignores the range of a resumed single-segment download.
+		 */
+		private void restart() {
+			lock.lock();
+			try {
+				synchronized (pending) {
+					digest.reset();
+					pending.clear();
+					hashed = 0L;
+				}
+				Arrays.fill(resumed, 0L);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void awaitWindow(long position) throws InterruptedException {
+			synchronized (pending) {
+				while (position - hashed > window)
+					pending.wait();
+			}
+		}
+
+		private void advance(long position, byte[] array, int length) throws IOException {
+			synchronized (pending) {
+				if (position + length <= hashed)
+					return;
+				int skip = (int) Math.max(0L, hashed - position);
+				pending.put(position + skip, Arrays.copyOfRange(array, skip, length));
+			}
+			while (lock.tryLock()) {
+				try {
+					hashAvailable();
+				} finally {
+					lock.unlock();
+				}
+				synchronized (pending) {
+					if (!pending.containsKey(hashed))
+						return;
+				}
+			}
+		}
+
+		private String finish() throws IOException {
+			lock.lock();
+			try {
+				hashAvailable();
+				if (hashed != size)
+					throw new IOException("Incomplete download: " + hashed + " of " + size + " bytes");
+				return Checksums.toHex(digest.digest());
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void hashAvailable() throws IOException {
+			long start = hashed;
+			while (hashed < size) {
+				byte[] chunk;
+				synchronized (pending) {
+					chunk = pending.remove(hashed);
+				}
+				int count;
+				if (chunk != null) {
+					digest.update(chunk, 0, chunk.length);
+					count = chunk.length;
+				} else if ((count = readResumed()) == 0)
+					break;
+				synchronized (pending) {
+					hashed += count;
+					pending.notifyAll();
+				}
+			}
+			if (hashed != start)
+				save();
+		}
+
+		/**
+		 * Hashes bytes at the prefix that an interrupted run wrote ahead of its
+		 * own prefix, reading them back from the file.
+		 */
+		private int readResumed() throws IOException {
+			int index = (int) (hashed / segments[0].length);
+			long end = segments[index].start + resumed[index];
+			if (hashed >= end)
+				return 0;
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), end - hashed));
+			int read = channel.read(buffer, hashed);
+			if (read <= 0)
+				return 0;
+			digest.update(buffer.array(), 0, read);
+			return read;
+		}
+
+		private void save() throws IOException {
+			ByteBuffer saved = ByteBuffer.allocate(ResumableMd5.STATE_SIZE);
+			digest.save(saved);
+			saved.flip();
+			while (saved.hasRemaining())
+				state.write(saved, stateOffset + saved.position());
+		}
+
+	}
+
+	/**
+	 * Returns a string representation of the downloader, including its segment
+	 * size and threshold.
+	 *
+	 * @return a string representation of the {@code FileDownloader}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [segmentSize=%s, segmentThreshold=%s]", getClass().getName(), segmentSize,
+				segmentThreshold);
+	}
+
+}
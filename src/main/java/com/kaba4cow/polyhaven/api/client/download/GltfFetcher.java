@@ -0,0 +1,279 @@
+package com.kaba4cow.polyhaven.api.client.download;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.kaba4cow.polyhaven.api.client.PolyhavenApiClient;
+import com.kaba4cow.polyhaven.api.client.batch.BatchFetcher;
+import com.kaba4cow.polyhaven.api.client.batch.BatchResult;
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileTree;
+import com.kaba4cow.polyhaven.api.client.http.HttpException;
+import com.kaba4cow.polyhaven.api.client.http.HttpResponse;
+import com.kaba4cow.polyhaven.api.client.selection.FileVariant;
+import com.kaba4cow.polyhaven.api.client.selection.VariantEnumerator;
+
+/**
+ * Fetches {@code .gltf} models with only the buffers and images they actually
+ * use, instead of the full {@code include} map of the file tree.
+ * 
+ * <p>
+ * The {@code .gltf} JSON is downloaded first. Images rejected by the image
+ * filter (for example displacement maps) are removed together with the
+ * textures and material slots that point at them, and the remaining images and
+ * textures are re-indexed. Images not used by any material are dropped as
+ * well. Optionally, image URIs are rewritten to a different texture resolution
+ * when the file tree contains that image. Only the buffers and images still
+ * referenced are downloaded, and the rewritten {@code .gltf} is written next to
+ * them.
+ * </p>
+ */
+public class GltfFetcher {
+
+	private static final int RESPONSE_OK = 200;
+
+	private final PolyhavenApiClient client;
+	private final int parallelism;
+
+	/**
+	 * Constructs a {@code GltfFetcher} that downloads at most {@code parallelism}
+	 * files at a time.
+	 *
+	 * @param client      the client used to download files
+	 * @param parallelism the maximum number of concurrent downloads
+	 */
+	public GltfFetcher(PolyhavenApiClient client, int parallelism) {
+		this.client = client;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Fetches the {@code .gltf} model of the given resolution and the files it
+	 * references into {@code directory/asset/}.
+	 *
+	 * @param asset             the unique ID/slug of the asset
+	 * @param tree              the file tree of the asset
+	 * @param resolution        the resolution of the model (e.g. {@code 4k})
+	 * @param textureResolution the resolution to rewrite image URIs to, or
+	 *                          {@code null} to keep the model's resolution
+	 * @param imageFilter       the filter deciding which image URIs to keep
+	 * @param directory         the directory to write the model to
+	 * @return a {@code FileVariant} containing the downloaded buffers and images
+	 * @throws IOException   if an I/O error occurs or a referenced file is not
+	 *                       part of the file tree
+	 * @throws HttpException if the server responds with an error code
+	 */
+	public FileVariant fetch(String asset, PolyhavenFileTree tree, String resolution, String textureResolution,
+			Predicate<String> imageFilter, Path directory) throws IOException, HttpException {
+		Map<String, PolyhavenFileObject> files = tree.getAllFiles();
+		PolyhavenFileObject model = files.get("gltf/" + resolution + "/gltf");
+		if (model == null)
+			throw new IOException("No gltf model found for " + asset + " at " + resolution);
+		Map<String, PolyhavenFileObject> available = new HashMap<>();
+		for (Map.Entry<String, PolyhavenFileObject> file : files.entrySet())
+			if (file.getKey().startsWith("gltf/"))
+				available.putAll(file.getValue().getIncludedFiles());
+		HttpResponse response = new HttpResponse(model.getUrl());
+		if (response.getCode() != RESPONSE_OK)
+			throw new HttpException(response, "Could not download " + model.getUrl());
+		JSONObject gltf = response.getJSONObject();
+		prune(gltf, imageFilter);
+		if (textureResolution != null && !textureResolution.equalsIgnoreCase(resolution))
+			rewriteImages(gltf, resolution, textureResolution, available);
+		Path base = directory.normalize();
+		Path root = base.resolve(asset).normalize();
+		if (!root.startsWith(base) || root.equals(base))
+			throw new IOException("Invalid asset name " + asset);
+		Map<String, PolyhavenFileObject> referenced = new LinkedHashMap<>();
+		Map<String, Path> targets = new HashMap<>();
+		for (String uri : getUris(gltf)) {
+			String key = available.containsKey(uri) ? uri : decodeUri(uri);
+			PolyhavenFileObject file = available.get(key);
+			if (file == null)
+				throw new IOException("Referenced file " + uri + " is not part of " + asset);
+			Path target = root.resolve(key).normalize();
+			if (!target.startsWith(root) || target.equals(root))
+				throw new IOException("Referenced file " + uri + " of " + asset + " is outside of " + root);
+			referenced.put(key, file);
+			targets.put(key, target);
+		}
+		BatchResult<PolyhavenFileObject> downloaded = BatchFetcher.fetchAll(referenced.keySet(), parallelism,
+				key -> {
+					client.downloadFile(referenced.get(key), targets.get(key));
+					return referenced.get(key);
+				});
+		if (!downloaded.isComplete()) {
+			Exception failure = downloaded.getFailures().values().iterator().next();
+			if (failure instanceof HttpException)
+				throw (HttpException) failure;
+			throw new IOException("Could not download files of " + asset, failure);
+		}
+		Files.createDirectories(root);
+		Files.write(root.resolve(VariantEnumerator.getFileName(model.getUrl())),
+				gltf.toString(2).getBytes(StandardCharsets.UTF_8));
+		return new FileVariant(asset, textureResolution == null ? resolution : textureResolution, "gltf",
+				referenced);
+	}
+
+	/**
+	 * Decodes the percent escapes of a relative URI. Unlike form decoding, a
+	 * literal {@code +} is kept. URIs that cannot be parsed are returned as they
+	 * are.
+	 */
+	private static String decodeUri(String uri) {
+		try {
+			String path = new URI(uri).getPath();
+			return path == null ? uri : path;
+		} catch (URISyntaxException e) {
+			return uri;
+		}
+	}
+
+	/**
+	 * Removes rejected and unused images from the model, together with the
+	 * textures and material slots referring to them, and re-indexes the
+	 * remaining images and textures.
+	 */
+	private static void prune(JSONObject gltf, Predicate<String> imageFilter) {
+		JSONArray images = gltf.optJSONArray("images");
+		JSONArray textures = gltf.optJSONArray("textures");
+		if (images == null || textures == null)
+			return;
+		Set<Integer> keptTextures = new TreeSet<>();
+		for (int i = 0; i < textures.length(); i++) {
+			int source = textures.getJSONObject(i).optInt("source", -1);
+			if (source < 0 || source >= images.length())
+				continue;
+			String uri = images.getJSONObject(source).optString("uri", null);
+			if (uri == null || imageFilter.test(uri))
+				keptTextures.add(i);
+		}
+		Set<Integer> usedTextures = new TreeSet<>();
+		JSONArray materials = gltf.optJSONArray("materials");
+		if (materials != null)
+			for (int i = 0; i < materials.length(); i++)
+				collectTextures(materials.getJSONObject(i), keptTextures, usedTextures);
+		Map<Integer, Integer> textureIndices = new HashMap<>();
+		Map<Integer, Integer> imageIndices = new LinkedHashMap<>();
+		JSONArray newTextures = new JSONArray();
+		JSONArray newImages = new JSONArray();
+		for (int index : usedTextures) {
+			JSONObject texture = textures.getJSONObject(index);
+			int source = texture.getInt("source");
+			if (!imageIndices.containsKey(source)) {
+				imageIndices.put(source, newImages.length());
+				newImages.put(images.getJSONObject(source));
+			}
+			texture.put("source", imageIndices.get(source));
+			textureIndices.put(index, newTextures.length());
+			newTextures.put(texture);
+		}
+		if (materials != null)
+			for (int i = 0; i < materials.length(); i++)
+				remapTextures(materials.getJSONObject(i), textureIndices);
+		gltf.put("textures", newTextures);
+		gltf.put("images", newImages);
+	}
+
+	/**
+	 * Removes texture references to textures that are not kept and collects the
+	 * indices of the referenced textures that are kept.
+	 */
+	private static void collectTextures(JSONObject json, Set<Integer> kept, Set<Integer> used) {
+		Iterator<String> keys = json.keys();
+		List<String> removed = new ArrayList<>();
+		while (keys.hasNext()) {
+			String key = keys.next();
+			Object value = json.get(key);
+			if (value instanceof JSONObject) {
+				JSONObject object = (JSONObject) value;
+				if (isTextureInfo(key, object)) {
+					if (kept.contains(object.getInt("index")))
+						used.add(object.getInt("index"));
+					else
+						removed.add(key);
+				} else
+					collectTextures(object, kept, used);
+			}
+		}
+		for (String key : removed)
+			json.remove(key);
+	}
+
+	private static void remapTextures(JSONObject json, Map<Integer, Integer> indices) {
+		for (String key : json.keySet()) {
+			Object value = json.get(key);
+			if (value instanceof JSONObject) {
+				JSONObject object = (JSONObject) value;
+				if (isTextureInfo(key, object))
+					object.put("index", indices.get(object.getInt("index")));
+				else
+					remapTextures(object, indices);
+			}
+		}
+	}
+
+	private static boolean isTextureInfo(String key, JSONObject object) {
+		return key.endsWith("Texture") && object.has("index");
+	}
+
+	/**
+	 * Rewrites image URIs from the model's resolution to the texture resolution
+	 * wherever the file tree contains the rewritten image.
+	 */
+	private static void rewriteImages(JSONObject gltf, String resolution, String textureResolution,
+			Map<String, PolyhavenFileObject> available) {
+		JSONArray images = gltf.optJSONArray("images");
+		if (images == null)
+			return;
+		String from = "_" + resolution;
+		String to = "_" + textureResolution;
+		for (int i = 0; i < images.length(); i++) {
+			JSONObject image = images.getJSONObject(i);
+			String uri = image.optString("uri", null);
+			if (uri == null)
+				continue;
+			int index = uri.lastIndexOf(from);
+			if (index < 0)
+				continue;
+			String rewritten = uri.substring(0, index) + to + uri.substring(index + from.length());
+			if (available.containsKey(rewritten) || available.containsKey(decodeUri(rewritten)))
+				image.put("uri", rewritten);
+		}
+	}
+
+	/**
+	 * Returns the URIs of every external buffer and image of the model. Data URIs
+	 * embedded in the model are skipped.
+	 */
+	private static Set<String> getUris(JSONObject gltf) {
+		Set<String> uris = new TreeSet<>();
+		for (String key : new String[] { "buffers", "images" }) {
+			JSONArray array = gltf.optJSONArray(key);
+			if (array != null)
+				for (int i = 0; i < array.length(); i++) {
+					String uri = array.getJSONObject(i).optString("uri", null);
+					if (uri != null && !uri.startsWith("data:"))
+						uris.add(uri);
+				}
+		}
+		return uris;
+	}
+
+}
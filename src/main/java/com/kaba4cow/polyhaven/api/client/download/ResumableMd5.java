@@ -0,0 +1,185 @@
+package com.kaba4cow.polyhaven.api.client.download;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MD5 digest (RFC 1321) whose intermediate state can be saved and restored, so
+ * that an interrupted download does not have to hash its prefix again when it
+ * resumes. The state is saved at the last complete 64-byte block.
+ */
+final class ResumableMd5 {
+
+	static final int STATE_SIZE = 24;
+
+	private static final int[] SHIFTS = { //
+			7, 12, 17, 22, 7, 12, 17, 22, 7, 12, 17, 22, 7, 12, 17, 22, //
+			5, 9, 14, 20, 5, 9, 14, 20, 5, 9, 14, 20, 5, 9, 14, 20, //
+			4, 11, 16, 23, 4, 11, 16, 23, 4, 11, 16, 23, 4, 11, 16, 23, //
+			6, 10, 15, 21, 6, 10, 15, 21, 6, 10, 15, 21, 6, 10, 15, 21 };
+
+	private static final int[] CONSTANTS = { //
+			0xD76AA478, 0xE8C7B756, 0x242070DB, 0xC1BDCEEE, //
+			0xF57C0FAF, 0x4787C62A, 0xA8304613, 0xFD469501, //
+			0x698098D8, 0x8B44F7AF, 0xFFFF5BB1, 0x895CD7BE, //
+			0x6B901122, 0xFD987193, 0xA679438E, 0x49B40821, //
+			0xF61E2562, 0xC040B340, 0x265E5A51, 0xE9B6C7AA, //
+			0xD62F105D, 0x02441453, 0xD8A1E681, 0xE7D3FBC8, //
+			0x21E1CDE6, 0xC33707D6, 0xF4D50D87, 0x455A14ED, //
+			0xA9E3E905, 0xFCEFA3F8, 0x676F02D9, 0x8D2A4C8A, //
+			0xFFFA3942, 0x8771F681, 0x6D9D6122, 0xFDE5380C, //
+			0xA4BEEA44, 0x4BDECFA9, 0xF6BB4B60, 0xBEBFBC70, //
+			0x289B7EC6, 0xEAA127FA, 0xD4EF3085, 0x04881D05, //
+			0xD9D4D039, 0xE6DB99E5, 0x1FA27CF8, 0xC4AC5665, //
+			0xF4292244, 0x432AFF97, 0xAB9423A7, 0xFC93A039, //
+			0x655B59C3, 0x8F0CCC92, 0xFFEFF47D, 0x85845DD1, //
+			0x6FA87E4F, 0xFE2CE6E0, 0xA3014314, 0x4E0811A1, //
+			0xF7537E82, 0xBD3AF235, 0x2AD7D2BB, 0xEB86D391 };
+
+	private final int[] words;
+	private final byte[] block;
+
+	private int a;
+	private int b;
+	private int c;
+	private int d;
+	private long blocks;
+	private int blockLength;
+
+	ResumableMd5() {
+		this.words = new int[16];
+		this.block = new byte[64];
+		reset();
+	}
+
+	void reset() {
+		a = 0x67452301;
+		b = 0xEFCDAB89;
+		c = 0x98BADCFE;
+		d = 0x10325476;
+		blocks = 0L;
+		blockLength = 0;
+	}
+
+	/**
+	 * Returns the number of bytes covered by the saved state, which is the
+	 * number of bytes hashed rounded down to a whole block.
+	 */
+	long getSavedLength() {
+		return blocks * 64L;
+	}
+
+	/**
+	 * Writes the state at the last complete block as {@value #STATE_SIZE} bytes.
+	 */
+	void save(ByteBuffer buffer) {
+		buffer.putLong(blocks).putInt(a).putInt(b).putInt(c).putInt(d);
+	}
+
+	/**
+	 * Restores a state written by {@link #save(ByteBuffer)}; hashing continues
+	 * at {@link #getSavedLength()}.
+	 */
+	void restore(ByteBuffer buffer) {
+		blocks = buffer.getLong();
+		a = buffer.getInt();
+		b = buffer.getInt();
+		c = buffer.getInt();
+		d = buffer.getInt();
+		blockLength = 0;
+	}
+
+	void update(byte[] data, int offset, int length) {
+		if (blockLength > 0) {
+			int count = Math.min(length, 64 - blockLength);
+			System.arraycopy(data, offset, block, blockLength, count);
+			blockLength += count;
+			offset += count;
+			length -= count;
+			if (blockLength < 64)
+				return;
+			transform(block, 0);
+			blockLength = 0;
+		}
+		while (length >= 64) {
+			transform(data, offset);
+			offset += 64;
+			length -= 64;
+		}
+		System.arraycopy(data, offset, block, 0, length);
+		blockLength = length;
+	}
+
+	/**
+	 * Returns the digest of the bytes hashed so far without changing the state.
+	 */
+	byte[] digest() {
+		long bits = (blocks * 64L + blockLength) * 8L;
+		int savedA = a;
+		int savedB = b;
+		int savedC = c;
+		int savedD = d;
+		byte[] tail = new byte[blockLength < 56 ? 64 : 128];
+		System.arraycopy(block, 0, tail, 0, blockLength);
+		tail[blockLength] = (byte) 0x80;
+		for (int i = 0; i < 8; i++)
+			tail[tail.length - 8 + i] = (byte) (bits >>> (8 * i));
+		for (int offset = 0; offset < tail.length; offset += 64)
+			transform(tail, offset);
+		byte[] digest = new byte[16];
+		int[] state = { a, b, c, d };
+		for (int i = 0; i < 16; i++)
+			digest[i] = (byte) (state[i >> 2] >>> (8 * (i & 3)));
+		blocks -= tail.length / 64;
+		a = savedA;
+		b = savedB;
+		c = savedC;
+		d = savedD;
+		return digest;
+	}
+
+	private void transform(byte[] data, int offset) {
+		for (int i = 0; i < 16; i++, offset += 4)
+			words[i] = (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 | (data[offset + 2] & 0xFF) << 16
+					| (data[offset + 3] & 0xFF) << 24;
+		int a = this.a;
+		int b = this.b;
+		int c = this.c;
+		int d = this.d;
+		int i = 0;
+		for (; i < 16; i++) {
+			int rotated = Integer.rotateLeft(a + ((b & c) | (~b & d)) + CONSTANTS[i] + words[i], SHIFTS[i]);
+			a = d;
+			d = c;
+			c = b;
+			b += rotated;
+		}
+		for (; i < 32; i++) {
+			int rotated = Integer.rotateLeft(a + ((d & b) | (~d & c)) + CONSTANTS[i] + words[(5 * i + 1) & 15],
+					SHIFTS[i]);
+			a = d;
+			d = c;
+			c = b;
+			b += rotated;
+		}
+		for (; i < 48; i++) {
+			int rotated = Integer.rotateLeft(a + (b ^ c ^ d) + CONSTANTS[i] + words[(3 * i + 5) & 15], SHIFTS[i]);
+			a = d;
+			d = c;
+			c = b;
+			b += rotated;
+		}
+		for (; i < 64; i++) {
+			int rotated = Integer.rotateLeft(a + (c ^ (b | ~d)) + CONSTANTS[i] + words[(7 * i) & 15], SHIFTS[i]);
+			a = d;
+			d = c;
+			c = b;
+			b += rotated;
+		}
+		this.a += a;
+		this.b += b;
+		this.c += c;
+		this.d += d;
+		blocks++;
+	}
+
+}
@@ -0,0 +1,228 @@
+package com.kaba4cow.polyhaven.api.client.download;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.kaba4cow.polyhaven.api.client.PolyhavenApiClient;
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
+import com.kaba4cow.polyhaven.api.client.http.HttpException;
+import com.kaba4cow.polyhaven.api.client.http.HttpResponse;
+import com.kaba4cow.polyhaven.api.client.selection.FileVariant;
+import com.kaba4cow.polyhaven.api.client.store.Checksums;
+import com.kaba4cow.polyhaven.api.client.store.ContentStore;
+
+/**
+ * Exports asset variants as a ZIP archive by streaming every file straight from
+ * its HTTP response into a {@link ZipOutputStream}, without temporary files.
+ * 
+ * <p>
+ * Entries are laid out as {@code asset/path}, the same layout written by
+ * {@link BundleDownloader}. Files are copied through a fixed-size buffer, so
+ * memory use does not depend on the file sizes. Files already present in the
+ * client's {@link ContentStore} are read from disk instead of the network, and
+ * are checked against their MD5 checksum before their entry is written; those
+ * in formats that are already compressed are written as {@link ZipEntry#STORED}
+ * entries. Files streamed from the network are checked while they are streamed,
+ * and since their CRC is not known in advance, compressed formats are deflated
+ * at level 0, which only adds the framing of stored deflate blocks.
+ * </p>
+ * 
+ * <p>
+ * If a checksum does not match, the export fails before the archive is
+ * finished, so a partial archive has no central directory. When exporting to a
+ * file, the partial file is deleted.
+ * </p>
+ */
+public class ZipExporter {
+
+	private static final int RESPONSE_OK = 200;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final List<String> COMPRESSED_FORMATS = Arrays.asList("jpg", "jpeg", "png", "webp", "zip", "gz");
+
+	private final PolyhavenApiClient client;
+
+	/**
+	 * Constructs a {@code ZipExporter} that uses the content store of the given
+	 * client.
+	 *
+	 * @param client the client whose content store is checked before downloading
+	 */
+	public ZipExporter(PolyhavenApiClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * Exports the given variants as a ZIP archive written to the given file. The
+	 * archive is written next to the file and moved over it once it is complete;
+	 * if the export fails, nothing is left behind.
+	 *
+	 * @param variants the variants to export
+	 * @param target   the path of the archive
+	 * @param listener the listener notified about the number of bytes exported
+	 * @throws IOException   if an I/O error occurs or a checksum does not match
+	 * @throws HttpException if the server responds with an error code
+	 */
+	public void export(Collection<FileVariant> variants, Path target, DownloadListener listener)
+			throws IOException, HttpException {
+		Path absolute = target.toAbsolutePath();
+		Path part = absolute.resolveSibling(absolute.getFileName() + ".part");
+		try {
+			try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(part), BUFFER_SIZE)) {
+				export(variants, output, listener);
+			}
+			Files.move(part, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(part);
+		}
+	}
+
+	/**
+	 * Exports the given variants as a ZIP archive written to the given channel.
+	 * The channel is not closed.
+	 *
+	 * @param variants the variants to export
+	 * @param channel  the channel to write the archive to
+	 * @param listener the listener notified about the number of bytes exported
+	 * @throws IOException   if an I/O error occurs or a checksum does not match
+	 * @throws HttpException if the server responds with an error code
+	 */
+	public void export(Collection<FileVariant> variants, WritableByteChannel channel, DownloadListener listener)
+			throws IOException, HttpException {
+		export(variants, Channels.newOutputStream(channel), listener);
+	}
+
+	/**
+	 * Exports the given variants as a ZIP archive written to the given stream.
+	 * The archive is finished but the stream is not closed. If the export fails,
+	 * the archive is left unfinished.
+	 *
+	 * @param variants the variants to export
+	 * @param output   the stream to write the archive to
+	 * @param listener the listener notified about the number of bytes exported
+	 * @throws IOException   if an I/O error occurs or a checksum does not match
+	 * @throws HttpException if the server responds with an error code
+	 */
+	public void export(Collection<FileVariant> variants, OutputStream output, DownloadListener listener)
+			throws IOException, HttpException {
+		ZipOutputStream zip = new ZipOutputStream(output);
+		byte[] buffer = new byte[BUFFER_SIZE];
+		Set<String> names = new HashSet<>();
+		ContentStore store = client.getContentStore();
+		for (FileVariant variant : variants)
+			for (Map.Entry<String, PolyhavenFileObject> file : variant.getFiles().entrySet()) {
+				String name = variant.getAsset() + "/" + file.getKey();
+				if (!names.add(name))
+					continue;
+				if (store != null && store.contains(file.getValue().getMd5()))
+					writeStored(name, file.getValue(), store.getPath(file.getValue().getMd5()), zip, buffer,
+							listener);
+				else
+					writeStreamed(name, file.getValue(), zip, buffer, listener);
+			}
+		zip.finish();
+		zip.flush();
+	}
+
+	/**
+	 * Writes a file from the content store, checking its MD5 checksum and
+	 * computing its CRC before the entry is started.
+	 */
+	private void writeStored(String name, PolyhavenFileObject file, Path path, ZipOutputStream zip, byte[] buffer,
+			DownloadListener listener) throws IOException {
+		MessageDigest digest = createDigest();
+		CRC32 crc = new CRC32();
+		long size = 0L;
+		try (InputStream input = Files.newInputStream(path)) {
+			int read;
+			while ((read = input.read(buffer)) >= 0) {
+				digest.update(buffer, 0, read);
+				crc.update(buffer, 0, read);
+				size += read;
+			}
+		}
+		checkMd5(file, digest);
+		ZipEntry entry = new ZipEntry(name);
+		if (isCompressed(name)) {
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(size);
+			entry.setCompressedSize(size);
+			entry.setCrc(crc.getValue());
+		} else
+			zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+		zip.putNextEntry(entry);
+		try (InputStream input = Files.newInputStream(path)) {
+			copy(input, zip, buffer, listener);
+		}
+		zip.closeEntry();
+	}
+
+	/**
+	 * Streams a file from the network, checking its MD5 checksum once it has
+	 * been written.
+	 */
+	private void writeStreamed(String name, PolyhavenFileObject file, ZipOutputStream zip, byte[] buffer,
+			DownloadListener listener) throws IOException, HttpException {
+		MessageDigest digest = createDigest();
+		HttpResponse response = new HttpResponse(file.getUrl());
+		if (response.getCode() != RESPONSE_OK)
+			throw new HttpException(response, "Could not download " + file.getUrl());
+		zip.setLevel(isCompressed(name) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+		zip.putNextEntry(new ZipEntry(name));
+		try (InputStream input = new DigestInputStream(response.getInputStream(), digest)) {
+			copy(input, zip, buffer, listener);
+		}
+		checkMd5(file, digest);
+		zip.closeEntry();
+	}
+
+	private static void copy(InputStream input, OutputStream output, byte[] buffer, DownloadListener listener)
+			throws IOException {
+		int read;
+		while ((read = input.read(buffer)) >= 0) {
+			output.write(buffer, 0, read);
+			listener.bytesDownloaded(read);
+		}
+	}
+
+	private static MessageDigest createDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static void checkMd5(PolyhavenFileObject file, MessageDigest digest) throws IOException {
+		String md5 = Checksums.toHex(digest.digest());
+		if (!md5.equalsIgnoreCase(file.getMd5()))
+			throw new IOException(
+					String.format("MD5 mismatch for %s: expected %s, got %s", file.getUrl(), file.getMd5(), md5));
+	}
+
+	private static boolean isCompressed(String name) {
+		int index = name.lastIndexOf('.');
+		return index >= 0 && COMPRESSED_FORMATS.contains(name.substring(index + 1).toLowerCase());
+	}
+
+}
@@ -0,0 +1,134 @@
+package com.kaba4cow.polyhaven.api.client.http;
+
+/**
+ * Represents a single API base URL tracked by an {@link EndpointSelector},
+ * together with exponentially weighted moving averages (EWMA) of its latency
+ * and error rate.
+ */
+public class Endpoint {
+
+	/**
+	 * The base URL of this endpoint
+	 */
+	private final String url;
+
+	/**
+	 * The EWMA of the request latency in milliseconds
+	 */
+	private double latency;
+
+	/**
+	 * The EWMA of the error rate between 0 and 1
+	 */
+	private double errorRate;
+
+	/**
+	 * The number of requests recorded for this endpoint
+	 */
+	private long requests;
+
+	/**
+	 * The time in milliseconds of the last recorded failure
+	 */
+	private long lastFailureTime;
+
+	/**
+	 * The time in milliseconds of the last recorded request
+	 */
+	private long lastRecordTime;
+
+	/**
+	 * Constructs an {@code Endpoint} with the given base URL and no recorded
+	 * requests.
+	 *
+	 * @param url the base URL of the endpoint
+	 */
+	public Endpoint(String url) {
+		this.url = url;
+		this.latency = 0d;
+		this.errorRate = 0d;
+		this.requests = 0L;
+		this.lastFailureTime = 0L;
+		this.lastRecordTime = 0L;
+	}
+
+	synchronized void record(double latency, boolean failure, double alpha, long halfLife, long time) {
+		if (requests == 0L)
+			this.latency = latency;
+		else
+			this.latency += alpha * (latency - this.latency);
+		this.errorRate = getErrorRate(halfLife, time);
+		this.errorRate += alpha * ((failure ? 1d : 0d) - errorRate);
+		if (failure)
+			lastFailureTime = time;
+		lastRecordTime = time;
+		requests++;
+	}
+
+	/**
+	 * Returns the error rate decayed by the time passed since the last recorded
+	 * request, halving every {@code halfLife} milliseconds.
+	 */
+	synchronized double getErrorRate(long halfLife, long time) {
+		long elapsed = Math.max(0L, time - lastRecordTime);
+		return errorRate * Math.pow(0.5d, (double) elapsed / halfLife);
+	}
+
+	/**
+	 * Returns the base URL of this endpoint.
+	 *
+	 * @return the base URL
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * Returns the EWMA of the request latency.
+	 *
+	 * @return the latency in milliseconds, or 0 if no requests were recorded
+	 */
+	public synchronized double getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Returns the EWMA of the error rate as of the last recorded request.
+	 *
+	 * @return the error rate between 0 and 1
+	 */
+	public synchronized double getErrorRate() {
+		return errorRate;
+	}
+
+	/**
+	 * Returns the number of requests recorded for this endpoint.
+	 *
+	 * @return the number of recorded requests
+	 */
+	public synchronized long getRequests() {
+		return requests;
+	}
+
+	/**
+	 * Returns the time of the last recorded failure.
+	 *
+	 * @return the time in milliseconds, or 0 if no failure was recorded
+	 */
+	public synchronized long getLastFailureTime() {
+		return lastFailureTime;
+	}
+
+	/**
+	 * Returns a string representation of the endpoint, including its URL, latency
+	 * and error rate.
+	 *
+	 * @return a string representation of the {@code Endpoint}
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("%s [url=%s, latency=%.1f, errorRate=%.3f, requests=%s]", getClass().getName(), url,
+				latency, errorRate, requests);
+	}
+
+}
@@ -0,0 +1,176 @@
+package com.kaba4cow.polyhaven.api.client.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Selects the best of several API base URLs based on their observed latency and
+ * error rate.
+ * 
+ * <p>
+ * Every request outcome is recorded into exponentially weighted moving averages
+ * of the endpoint's latency and error rate. An endpoint whose error rate
+ * exceeds {@value #UNHEALTHY_ERROR_RATE} is considered unhealthy until
+ * {@value #RETRY_DELAY} milliseconds have passed since its last failure, after
+ * which it is probed again. Healthy endpoints are ranked by their latency plus a
+ * penalty proportional to their error rate, so that an endpoint failing fast is
+ * not mistaken for a fast one. Endpoints without recorded requests are
+ * preferred so that each endpoint is measured at least once.
+ * </p>
+ * 
+ * <p>
+ * The error rate of an endpoint also decays with time, halving every
+ * {@value #ERROR_HALF_LIFE} milliseconds without requests. An endpoint that
+ * stopped receiving requests after failing therefore regains its rank once it
+ * has been quiet long enough, instead of staying behind slower endpoints
+ * forever.
+ * </p>
+ * 
+ * <p>
+ * The clock is supplied by the caller, so the selection logic can be exercised
+ * deterministically against local stand-in servers.
+ * </p>
+ */
+public class EndpointSelector {
+
+	/**
+	 * The error rate above which an endpoint is considered unhealthy.
+	 */
+	public static final double UNHEALTHY_ERROR_RATE = 0.5d;
+
+	/**
+	 * The time in milliseconds after a failure during which an unhealthy endpoint
+	 * is not preferred.
+	 */
+	public static final long RETRY_DELAY = 30000L;
+
+	/**
+	 * The time in milliseconds in which the error rate of an endpoint halves
+	 * without requests.
+	 */
+	public static final long ERROR_HALF_LIFE = 30000L;
+
+	private static final double DEFAULT_ALPHA = 0.2d;
+	private static final double ERROR_PENALTY = 5000d;
+
+	private final List<Endpoint> endpoints;
+	private final double alpha;
+	private final LongSupplier clock;
+
+	/**
+	 * Constructs an {@code EndpointSelector} for the given base URLs.
+	 *
+	 * @param alpha the EWMA smoothing factor between 0 and 1
+	 * @param clock the supplier of the current time in milliseconds
+	 * @param urls  the base URLs to select from
+	 * @throws IllegalArgumentException if no URL is given
+	 */
+	public EndpointSelector(double alpha, LongSupplier clock, String... urls) {
+		if (urls.length == 0)
+			throw new IllegalArgumentException("at least one url is required");
+		List<Endpoint> endpoints = new ArrayList<>();
+		for (String url : urls)
+			endpoints.add(new Endpoint(url));
+		this.endpoints = Collections.unmodifiableList(endpoints);
+		this.alpha = alpha;
+		this.clock = clock;
+	}
+
+	/**
+	 * Constructs an {@code EndpointSelector} for the given base URLs using the
+	 * system clock and the default smoothing factor.
+	 *
+	 * @param urls the base URLs to select from
+	 */
+	public EndpointSelector(String... urls) {
+		this(DEFAULT_ALPHA, System::currentTimeMillis, urls);
+	}
+
+	/**
+	 * Returns every endpoint in order of preference: healthy endpoints first,
+	 * ordered by their score, followed by unhealthy endpoints. The scores are
+	 * read once before sorting, so concurrent updates cannot reorder endpoints
+	 * while they are being sorted.
+	 *
+	 * @return a list of endpoints in order of preference
+	 */
+	public List<Endpoint> getEndpoints() {
+		long time = clock.getAsLong();
+		Map<Endpoint, Boolean> healthy = new IdentityHashMap<>();
+		Map<Endpoint, Double> scores = new IdentityHashMap<>();
+		for (Endpoint endpoint : endpoints) {
+			healthy.put(endpoint, isHealthy(endpoint, time));
+			scores.put(endpoint, getScore(endpoint, time));
+		}
+		List<Endpoint> ordered = new ArrayList<>(endpoints);
+		ordered.sort(Comparator.comparing((Endpoint endpoint) -> !healthy.get(endpoint))
+				.thenComparingDouble(scores::get));
+		return ordered;
+	}
+
+	/**
+	 * Returns the most preferred endpoint.
+	 *
+	 * @return the best endpoint
+	 */
+	public Endpoint getBestEndpoint() {
+		return getEndpoints().get(0);
+	}
+
+	/**
+	 * Records a successful request to the given endpoint.
+	 *
+	 * @param endpoint the endpoint the request was sent to
+	 * @param latency  the latency of the request in milliseconds
+	 */
+	public void recordSuccess(Endpoint endpoint, double latency) {
+		endpoint.record(latency, false, alpha, ERROR_HALF_LIFE, clock.getAsLong());
+	}
+
+	/**
+	 * Records a failed request to the given endpoint.
+	 *
+	 * @param endpoint the endpoint the request was sent to
+	 * @param latency  the time in milliseconds until the request failed
+	 */
+	public void recordFailure(Endpoint endpoint, double latency) {
+		endpoint.record(latency, true, alpha, ERROR_HALF_LIFE, clock.getAsLong());
+	}
+
+	/**
+	 * Checks whether the given endpoint is healthy at the current time.
+	 *
+	 * @param endpoint the endpoint to check
+	 * @return true if the endpoint is healthy, false otherwise
+	 */
+	public boolean isHealthy(Endpoint endpoint) {
+		return isHealthy(endpoint, clock.getAsLong());
+	}
+
+	private boolean isHealthy(Endpoint endpoint, long time) {
+		return endpoint.getErrorRate(ERROR_HALF_LIFE, time) <= UNHEALTHY_ERROR_RATE
+				|| time - endpoint.getLastFailureTime() >= RETRY_DELAY;
+	}
+
+	private double getScore(Endpoint endpoint, long time) {
+		if (endpoint.getRequests() == 0L)
+			return Double.NEGATIVE_INFINITY;
+		return endpoint.getLatency() + ERROR_PENALTY * endpoint.getErrorRate(ERROR_HALF_LIFE, time);
+	}
+
+	/**
+	 * Returns a string representation of the selector, including its endpoints.
+	 *
+	 * @return a string representation of the {@code EndpointSelector}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [endpoints=%s]", getClass().getName(), endpoints);
+	}
+
+}
@@ -1,5 +1,6 @@
 package com.kaba4cow.polyhaven.api.client.http;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -7,8 +8,14 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -32,8 +39,23 @@ public class HttpResponse {
 	 *                     connection
 	 */
 	public HttpResponse(String url) throws IOException {
+		this(url, Collections.emptyMap());
+	}
+
+	/**
+	 * Constructs an {@code HttpResponse} by sending a GET request with the
+	 * specified request headers to the specified URL.
+	 *
+	 * @param url     the URL to send the GET request to
+	 * @param headers the request headers to send, such as {@code Range}
+	 * @throws IOException if an I/O error occurs when creating or receiving the
+	 *                     connection
+	 */
+	public HttpResponse(String url, Map<String, String> headers) throws IOException {
 		this.connection = (HttpURLConnection) new URL(url).openConnection();
 		this.connection.setRequestMethod("GET");
+		for (Map.Entry<String, String> header : headers.entrySet())
+			this.connection.setRequestProperty(header.getKey(), header.getValue());
 		this.code = connection.getResponseCode();
 	}
 
@@ -46,6 +68,34 @@ public class HttpResponse {
 		return code;
 	}
 
+	/**
+	 * Returns the value of the specified response header.
+	 *
+	 * @param name the name of the header
+	 * @return the value of the header, or {@code null} if it is not present
+	 */
+	public String getHeader(String name) {
+		return connection.getHeaderField(name);
+	}
+
+	/**
+	 * Returns the length of the response body as reported by the
+	 * {@code Content-Length} header.
+	 *
+	 * @return the length in bytes, or -1 if it is not known
+	 */
+	public long getContentLength() {
+		return connection.getContentLengthLong();
+	}
+
+	/**
+	 * Closes the connection of this response without reading the rest of the
+	 * response body.
+	 */
+	public void disconnect() {
+		connection.disconnect();
+	}
+
 	/**
 	 * Returns the input stream of the response, which can be used to read the
 	 * response body.
@@ -104,4 +154,90 @@ public class HttpResponse {
 		return ImageIO.read(getInputStream());
 	}
 
+	/**
+	 * Reads the response body as an image scaled down close to the given target
+	 * size. The image is decoded with the largest source subsampling that keeps
+	 * it at least as large as the target size, so that only every n-th pixel of
+	 * every n-th row is read and the full-resolution raster is never allocated.
+	 * Images smaller than the target size are read at full resolution.
+	 *
+	 * @param width  the target width, or a non-positive value to derive it from
+	 *               the height
+	 * @param height the target height, or a non-positive value to derive it from
+	 *               the width
+	 * @return the response body as a {@code BufferedImage}, or {@code null} if no
+	 *         registered reader supports the image format
+	 * @throws IOException if an I/O error occurs when reading the input stream or
+	 *                     parsing the image
+	 * @see #getImage(int, int, Rectangle)
+	 */
+	public BufferedImage getImage(int width, int height) throws IOException {
+		return getImage(width, height, null);
+	}
+
+	/**
+	 * Reads a region of the response body as an image that is at least as large
+	 * as the given target size. Only the pixels of the region are decoded, with
+	 * source subsampling applied as in {@link #getImage(int, int)}.
+	 *
+	 * @param width  the target width, or a non-positive value to derive it from
+	 *               the height
+	 * @param height the target height, or a non-positive value to derive it from
+	 *               the width
+	 * @param region the region of the source image to read, in source pixels, or
+	 *               {@code null} to read the whole image
+	 * @return the response body as a {@code BufferedImage}, or {@code null} if no
+	 *         registered reader supports the image format
+	 * @throws IOException if an I/O error occurs when reading the input stream or
+	 *                     parsing the image
+	 */
+	public BufferedImage getImage(int width, int height, Rectangle region) throws IOException {
+		try (ImageInputStream input = ImageIO.createImageInputStream(getInputStream())) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+			if (!readers.hasNext())
+				return null;
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(input, true, true);
+				return reader.read(0, getReadParam(reader, width, height, region));
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Creates read parameters for the first image of the input of the given
+	 * reader, selecting the given source region and the largest source
+	 * subsampling that keeps the decoded image at least as large as the target
+	 * size.
+	 *
+	 * @param reader the reader whose input is set
+	 * @param width  the target width, or a non-positive value to derive it from
+	 *               the height
+	 * @param height the target height, or a non-positive value to derive it from
+	 *               the width
+	 * @param region the region of the source image to read, in source pixels, or
+	 *               {@code null} to read the whole image
+	 * @return the read parameters
+	 * @throws IOException if an I/O error occurs when reading the image header
+	 */
+	public static ImageReadParam getReadParam(ImageReader reader, int width, int height, Rectangle region)
+			throws IOException {
+		ImageReadParam param = reader.getDefaultReadParam();
+		Rectangle source = new Rectangle(0, 0, reader.getWidth(0), reader.getHeight(0));
+		if (region != null) {
+			source = source.intersection(region);
+			if (source.isEmpty())
+				throw new IllegalArgumentException("region is outside of the image");
+			param.setSourceRegion(source);
+		}
+		int horizontal = width > 0 ? source.width / width : Integer.MAX_VALUE;
+		int vertical = height > 0 ? source.height / height : Integer.MAX_VALUE;
+		int subsampling = Math.min(horizontal, vertical);
+		if (subsampling != Integer.MAX_VALUE && subsampling > 1)
+			param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+		return param;
+	}
+
 }
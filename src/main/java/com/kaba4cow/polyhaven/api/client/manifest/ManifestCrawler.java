@@ -0,0 +1,105 @@
+package com.kaba4cow.polyhaven.api.client.manifest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.kaba4cow.polyhaven.api.client.PolyhavenApiClient;
+import com.kaba4cow.polyhaven.api.client.batch.BatchFetcher;
+import com.kaba4cow.polyhaven.api.client.batch.BatchResult;
+import com.kaba4cow.polyhaven.api.client.data.assets.PolyhavenAsset;
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileTree;
+import com.kaba4cow.polyhaven.api.client.http.HttpException;
+
+/**
+ * Crawls the file trees of many assets in parallel and records every file,
+ * including dependent files, in a {@link ManifestIndex}.
+ * 
+ * <p>
+ * The crawl is resumable: assets already present in the index with an
+ * unchanged files hash are skipped, and each asset is persisted as soon as its
+ * file tree has been fetched, so an interrupted crawl only repeats the assets
+ * that were in flight.
+ * </p>
+ */
+public class ManifestCrawler {
+
+	private final PolyhavenApiClient client;
+	private final ManifestIndex index;
+
+	/**
+	 * Constructs a {@code ManifestCrawler} that fetches file trees with the given
+	 * client and records them in the given index.
+	 *
+	 * @param client the client used to fetch file trees
+	 * @param index  the index to record files in
+	 */
+	public ManifestCrawler(PolyhavenApiClient client, ManifestIndex index) {
+		this.client = client;
+		this.index = index;
+	}
+
+	/**
+	 * Crawls every asset available on Polyhaven.
+	 *
+	 * @param parallelism the maximum number of concurrent file tree requests
+	 * @return a {@code BatchResult} mapping crawled asset IDs to the number of
+	 *         recorded files, and the failures
+	 * @throws IOException   if an I/O error occurs while fetching the asset list
+	 * @throws HttpException if the API responds with an error code
+	 */
+	public BatchResult<Integer> crawl(int parallelism) throws IOException, HttpException {
+		return crawl(client.getAssets("all").values(), parallelism);
+	}
+
+	/**
+	 * Crawls the given assets, skipping assets whose files are already indexed.
+	 *
+	 * @param assets      the assets to crawl
+	 * @param parallelism the maximum number of concurrent file tree requests
+	 * @return a {@code BatchResult} mapping crawled asset IDs to the number of
+	 *         recorded files, and the failures
+	 */
+	public BatchResult<Integer> crawl(Collection<PolyhavenAsset> assets, int parallelism) {
+		Map<String, PolyhavenAsset> pending = new HashMap<>();
+		for (PolyhavenAsset asset : assets)
+			if (!index.contains(asset.getId(), asset.getFilesHash()))
+				pending.put(asset.getId(), asset);
+		return BatchFetcher.fetchAll(pending.keySet(), parallelism, id -> {
+			PolyhavenAsset asset = pending.get(id);
+			List<ManifestEntry> entries = createEntries(asset, client.getAssetFileTree(id));
+			index.put(id, asset.getFilesHash(), entries);
+			return entries.size();
+		});
+	}
+
+	/**
+	 * Creates manifest entries for every file of the given file tree, including
+	 * dependent files.
+	 *
+	 * @param asset the asset the file tree belongs to
+	 * @param tree  the file tree of the asset
+	 * @return a list of manifest entries
+	 */
+	public static List<ManifestEntry> createEntries(PolyhavenAsset asset, PolyhavenFileTree tree) {
+		List<ManifestEntry> entries = new ArrayList<>();
+		for (Map.Entry<String, PolyhavenFileObject> file : tree.getAllFiles().entrySet()) {
+			String path = file.getKey();
+			entries.add(createEntry(asset, path, "", file.getValue()));
+			for (Map.Entry<String, PolyhavenFileObject> include : file.getValue().getIncludedFiles().entrySet())
+				entries.add(createEntry(asset, path, include.getKey(), include.getValue()));
+		}
+		return entries;
+	}
+
+	private static ManifestEntry createEntry(PolyhavenAsset asset, String path, String includePath,
+			PolyhavenFileObject file) {
+		return new ManifestEntry(asset.getId(), asset.getType(), path, includePath, file.getSize(), file.getMd5(),
+				file.getUrl());
+	}
+
+}
@@ -0,0 +1,198 @@
+package com.kaba4cow.polyhaven.api.client.manifest;
+
+/**
+ * Represents a single downloadable file recorded in a {@link ManifestIndex},
+ * containing the asset it belongs to, its path within the asset's file tree,
+ * and its size, MD5 checksum and URL.
+ * 
+ * <p>
+ * Files that are dependencies of another file (see
+ * {@code PolyhavenFileObject.getIncludes()}) are recorded with the path of the
+ * including file and their own relative include path.
+ * </p>
+ */
+public class ManifestEntry {
+
+	/**
+	 * The unique ID/slug of the asset this file belongs to
+	 */
+	private final String asset;
+
+	/**
+	 * The type of the asset this file belongs to
+	 */
+	private final int type;
+
+	/**
+	 * The path of tree names leading to the file (e.g. {@code Diffuse/4k/png})
+	 */
+	private final String path;
+
+	/**
+	 * The path of this file relative to the including file, or an empty string if
+	 * this file is not an include
+	 */
+	private final String includePath;
+
+	/**
+	 * Size of the file in bytes
+	 */
+	private final long size;
+
+	/**
+	 * MD5 checksum for verifying file integrity
+	 */
+	private final String md5;
+
+	/**
+	 * Direct URL to download this file
+	 */
+	private final String url;
+
+	/**
+	 * Constructs a {@code ManifestEntry} with the given attributes.
+	 *
+	 * @param asset       the unique ID/slug of the asset
+	 * @param type        the type of the asset
+	 * @param path        the path of tree names leading to the file
+	 * @param includePath the path relative to the including file, or an empty
+	 *                    string
+	 * @param size        the size of the file in bytes
+	 * @param md5         the MD5 checksum of the file
+	 * @param url         the download URL of the file
+	 */
+	public ManifestEntry(String asset, int type, String path, String includePath, long size, String md5,
+			String url) {
+		this.asset = asset;
+		this.type = type;
+		this.path = path;
+		this.includePath = includePath;
+		this.size = size;
+		this.md5 = md5;
+		this.url = url;
+	}
+
+	/**
+	 * Returns the unique ID/slug of the asset this file belongs to.
+	 *
+	 * @return the asset ID
+	 */
+	public String getAsset() {
+		return asset;
+	}
+
+	/**
+	 * Returns the type of the asset this file belongs to.
+	 *
+	 * @return the asset type
+	 */
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the path of tree names leading to the file.
+	 *
+	 * @return the file path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the path of this file relative to the including file.
+	 *
+	 * @return the include path, or an empty string if this file is not an include
+	 */
+	public String getIncludePath() {
+		return includePath;
+	}
+
+	/**
+	 * Indicates whether this file is a dependency of another file.
+	 *
+	 * @return true if this file is an include, false otherwise
+	 */
+	public boolean isInclude() {
+		return !includePath.isEmpty();
+	}
+
+	/**
+	 * Returns the resolution of the file, taken from the first path element that
+	 * looks like a resolution (e.g. {@code 4k}).
+	 *
+	 * @return the resolution, or an empty string if the path contains none
+	 */
+	public String getResolution() {
+		for (String element : path.split("/"))
+			if (isResolution(element))
+				return element;
+		return "";
+	}
+
+	/**
+	 * Returns the format of the file. For regular files this is the last path
+	 * element, for includes it is the extension of the include path.
+	 *
+	 * @return the lower-case file format
+	 */
+	public String getFormat() {
+		if (isInclude()) {
+			int index = includePath.lastIndexOf('.');
+			return index < 0 ? "" : includePath.substring(index + 1).toLowerCase();
+		}
+		int index = path.lastIndexOf('/');
+		return path.substring(index + 1).toLowerCase();
+	}
+
+	/**
+	 * Returns the size of the file in bytes.
+	 *
+	 * @return the size of the file in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the MD5 checksum of the file.
+	 *
+	 * @return the MD5 checksum of the file
+	 */
+	public String getMd5() {
+		return md5;
+	}
+
+	/**
+	 * Returns the URL to download the file.
+	 *
+	 * @return the download URL of the file
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * Checks whether the given string is a resolution such as {@code 1k} or
+	 * {@code 16k}.
+	 *
+	 * @param string the string to check
+	 * @return true if the string is a resolution, false otherwise
+	 */
+	public static boolean isResolution(String string) {
+		return string.matches("\\d+k");
+	}
+
+	/**
+	 * Returns a string representation of the manifest entry, including all of its
+	 * attributes.
+	 *
+	 * @return a string representation of the {@code ManifestEntry}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [asset=%s, type=%s, path=%s, includePath=%s, size=%s, md5=%s, url=%s]",
+				getClass().getName(), asset, type, path, includePath, size, md5, url);
+	}
+
+}
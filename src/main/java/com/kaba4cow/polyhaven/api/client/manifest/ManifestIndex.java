@@ -0,0 +1,279 @@
+package com.kaba4cow.polyhaven.api.client.manifest;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A persistent on-disk index of the files of many assets, used to answer
+ * aggregate size queries without contacting the API.
+ * 
+ * <p>
+ * The index is stored as an append-only sequence of length-prefixed asset
+ * records. Each record contains every {@link ManifestEntry} of one asset along
+ * with the asset's files hash. When an asset is recorded again, the newer
+ * record replaces the older one on load. A truncated trailing record, left
+ * behind by an interrupted write, is discarded when the index is opened.
+ * </p>
+ */
+public class ManifestIndex {
+
+	private static final int MAGIC = 0x50484D49;
+	private static final int VERSION = 1;
+
+	private final Path file;
+	private final Map<String, AssetRecord> records;
+
+	private ManifestIndex(Path file) {
+		this.file = file;
+		this.records = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Opens the index stored in the given file, creating the file if it does not
+	 * exist.
+	 *
+	 * @param file the path of the index file
+	 * @return the opened {@code ManifestIndex}
+	 * @throws IOException if an I/O error occurs or the file is not a manifest
+	 *                     index
+	 */
+	public static ManifestIndex open(Path file) throws IOException {
+		ManifestIndex index = new ManifestIndex(file);
+		if (Files.exists(file) && Files.size(file) > 0L)
+			index.load();
+		else
+			index.writeHeader(file);
+		return index;
+	}
+
+	private void load() throws IOException {
+		long valid = 8L;
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION)
+				throw new IOException("Not a manifest index: " + file);
+			while (true) {
+				int length;
+				byte[] bytes;
+				try {
+					length = input.readInt();
+					bytes = new byte[length];
+					input.readFully(bytes);
+				} catch (EOFException e) {
+					break;
+				}
+				AssetRecord record = readRecord(bytes);
+				records.remove(record.asset);
+				records.put(record.asset, record);
+				valid += 4L + length;
+			}
+		}
+		if (valid < Files.size(file))
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.truncate(valid);
+			}
+	}
+
+	private void writeHeader(Path target) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION);
+		header.flip();
+		try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.write(header);
+		}
+	}
+
+	/**
+	 * Checks whether the index contains the given asset with the given files hash.
+	 *
+	 * @param asset     the unique ID/slug of the asset
+	 * @param filesHash the files hash of the asset
+	 * @return true if the asset is indexed and its files are unchanged, false
+	 *         otherwise
+	 */
+	public synchronized boolean contains(String asset, String filesHash) {
+		AssetRecord record = records.get(asset);
+		return record != null && record.filesHash.equals(filesHash);
+	}
+
+	/**
+	 * Records the files of an asset and appends them to the index file, replacing
+	 * any previous record of the same asset.
+	 *
+	 * @param asset     the unique ID/slug of the asset
+	 * @param filesHash the files hash of the asset
+	 * @param entries   the files of the asset
+	 * @throws IOException if an I/O error occurs while writing the index file
+	 */
+	public synchronized void put(String asset, String filesHash, List<ManifestEntry> entries) throws IOException {
+		AssetRecord record = new AssetRecord(asset, filesHash, new ArrayList<>(entries));
+		byte[] bytes = writeRecord(record);
+		ByteBuffer buffer = ByteBuffer.allocate(4 + bytes.length).putInt(bytes.length).put(bytes);
+		buffer.flip();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		}
+		records.remove(asset);
+		records.put(asset, record);
+	}
+
+	/**
+	 * Rewrites the index file so that it contains only the latest record of each
+	 * asset. The new file is written next to the old one and then moved over it.
+	 *
+	 * @throws IOException if an I/O error occurs while writing the index file
+	 */
+	public synchronized void compact() throws IOException {
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		writeHeader(temp);
+		try (DataOutputStream output = new DataOutputStream(
+				Files.newOutputStream(temp, StandardOpenOption.APPEND))) {
+			for (AssetRecord record : records.values()) {
+				byte[] bytes = writeRecord(record);
+				output.writeInt(bytes.length);
+				output.write(bytes);
+			}
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the number of indexed assets.
+	 *
+	 * @return the number of indexed assets
+	 */
+	public synchronized int getAssetCount() {
+		return records.size();
+	}
+
+	/**
+	 * Returns the files recorded for the given asset.
+	 *
+	 * @param asset the unique ID/slug of the asset
+	 * @return an unmodifiable list of entries, empty if the asset is not indexed
+	 */
+	public synchronized List<ManifestEntry> getEntries(String asset) {
+		AssetRecord record = records.get(asset);
+		return record == null ? Collections.emptyList() : Collections.unmodifiableList(record.entries);
+	}
+
+	/**
+	 * Returns every file recorded in the index that matches the given filter.
+	 *
+	 * @param filter the filter to apply to the entries
+	 * @return a list of matching entries
+	 */
+	public synchronized List<ManifestEntry> getEntries(Predicate<ManifestEntry> filter) {
+		List<ManifestEntry> entries = new ArrayList<>();
+		for (AssetRecord record : records.values())
+			for (ManifestEntry entry : record.entries)
+				if (filter.test(entry))
+					entries.add(entry);
+		return entries;
+	}
+
+	/**
+	 * Returns the total size in bytes of every file recorded in the index that
+	 * matches the given filter.
+	 *
+	 * @param filter the filter to apply to the entries
+	 * @return the total size in bytes
+	 */
+	public synchronized long getTotalSize(Predicate<ManifestEntry> filter) {
+		long total = 0L;
+		for (AssetRecord record : records.values())
+			for (ManifestEntry entry : record.entries)
+				if (filter.test(entry))
+					total += entry.getSize();
+		return total;
+	}
+
+	/**
+	 * Returns the total size in bytes of the non-include files of the given asset
+	 * type, resolution and format (e.g. all {@code 4k} {@code png} textures).
+	 * Includes are excluded because they duplicate files listed elsewhere in the
+	 * same tree.
+	 *
+	 * @param type       the asset type, or a negative value for any type
+	 * @param resolution the resolution (e.g. {@code 4k}), or {@code null} for any
+	 *                   resolution
+	 * @param format     the format (e.g. {@code png}), or {@code null} for any
+	 *                   format
+	 * @return the total size in bytes
+	 */
+	public long getTotalSize(int type, String resolution, String format) {
+		return getTotalSize(entry -> !entry.isInclude() //
+				&& (type < 0 || entry.getType() == type) //
+				&& (resolution == null || resolution.equalsIgnoreCase(entry.getResolution())) //
+				&& (format == null || format.equalsIgnoreCase(entry.getFormat())));
+	}
+
+	private static byte[] writeRecord(AssetRecord record) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream output = new DataOutputStream(bytes)) {
+			output.writeUTF(record.asset);
+			output.writeUTF(record.filesHash);
+			output.writeInt(record.entries.size());
+			for (ManifestEntry entry : record.entries) {
+				output.writeInt(entry.getType());
+				output.writeUTF(entry.getPath());
+				output.writeUTF(entry.getIncludePath());
+				output.writeLong(entry.getSize());
+				output.writeUTF(entry.getMd5());
+				output.writeUTF(entry.getUrl());
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static AssetRecord readRecord(byte[] bytes) throws IOException {
+		try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			String asset = input.readUTF();
+			String filesHash = input.readUTF();
+			int count = input.readInt();
+			List<ManifestEntry> entries = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				int type = input.readInt();
+				String path = input.readUTF();
+				String includePath = input.readUTF();
+				long size = input.readLong();
+				String md5 = input.readUTF();
+				String url = input.readUTF();
+				entries.add(new ManifestEntry(asset, type, path, includePath, size, md5, url));
+			}
+			return new AssetRecord(asset, filesHash, entries);
+		}
+	}
+
+	private static class AssetRecord {
+
+		private final String asset;
+		private final String filesHash;
+		private final List<ManifestEntry> entries;
+
+		private AssetRecord(String asset, String filesHash, List<ManifestEntry> entries) {
+			this.asset = asset;
+			this.filesHash = filesHash;
+			this.entries = entries;
+		}
+
+	}
+
+}
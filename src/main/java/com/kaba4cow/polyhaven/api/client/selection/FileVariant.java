@@ -0,0 +1,149 @@
+package com.kaba4cow.polyhaven.api.client.selection;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
+
+/**
+ * Represents one downloadable variant of an asset: every file of a given
+ * resolution and format together with the closure of their dependent files.
+ * 
+ * <p>
+ * Files are keyed by their layout path, the path relative to the asset's
+ * download directory that the variant expects. Regular files are placed under
+ * the file name taken from their URL, and dependent files under the path that
+ * the including file refers to them by (e.g. {@code textures/name_4k.jpg}).
+ * </p>
+ */
+public class FileVariant {
+
+	/**
+	 * The unique ID/slug of the asset this variant belongs to
+	 */
+	private final String asset;
+
+	/**
+	 * The resolution of this variant (e.g. {@code 4k})
+	 */
+	private final String resolution;
+
+	/**
+	 * The format of this variant (e.g. {@code png} or {@code gltf})
+	 */
+	private final String format;
+
+	/**
+	 * The files of this variant keyed by their layout path
+	 */
+	private final Map<String, PolyhavenFileObject> files;
+
+	/**
+	 * The total size in bytes of the distinct files of this variant
+	 */
+	private final long size;
+
+	/**
+	 * Constructs a {@code FileVariant} with the given attributes.
+	 *
+	 * @param asset      the unique ID/slug of the asset
+	 * @param resolution the resolution of the variant
+	 * @param format     the format of the variant, in any case
+	 * @param files      the files of the variant keyed by their layout path
+	 */
+	public FileVariant(String asset, String resolution, String format, Map<String, PolyhavenFileObject> files) {
+		this.asset = asset;
+		this.resolution = resolution;
+		this.format = normalizeFormat(format);
+		this.files = Collections.unmodifiableMap(files);
+		Set<String> urls = new HashSet<>();
+		long size = 0L;
+		for (PolyhavenFileObject file : files.values())
+			if (urls.add(file.getUrl()))
+				size += file.getSize();
+		this.size = size;
+	}
+
+	/**
+	 * Returns the unique ID/slug of the asset this variant belongs to.
+	 *
+	 * @return the asset ID
+	 */
+	public String getAsset() {
+		return asset;
+	}
+
+	/**
+	 * Returns the resolution of this variant.
+	 *
+	 * @return the resolution (e.g. {@code 4k})
+	 */
+	public String getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * Returns the resolution of this variant in thousands of pixels.
+	 *
+	 * @return the numeric resolution (e.g. {@code 4} for {@code 4k})
+	 */
+	public int getResolutionValue() {
+		return Integer.parseInt(resolution.substring(0, resolution.length() - 1));
+	}
+
+	/**
+	 * Returns the format of this variant, in the form returned by
+	 * {@link #normalizeFormat(String)}.
+	 *
+	 * @return the format (e.g. {@code png})
+	 */
+	public String getFormat() {
+		return format;
+	}
+
+	/**
+	 * Returns the files of this variant keyed by their layout path.
+	 *
+	 * @return an unmodifiable map of layout paths to file objects
+	 */
+	public Map<String, PolyhavenFileObject> getFiles() {
+		return files;
+	}
+
+	/**
+	 * Returns the total size in bytes of the distinct files of this variant.
+	 *
+	 * @return the total size in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the canonical form of the given format, in which formats of
+	 * variants are stored and compared, so that {@code JPG} and {@code jpg} name
+	 * the same format.
+	 *
+	 * @param format the format
+	 * @return the format in lower case
+	 */
+	public static String normalizeFormat(String format) {
+		return format.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Returns a string representation of the variant, including the asset,
+	 * resolution, format, file count and size.
+	 *
+	 * @return a string representation of the {@code FileVariant}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [asset=%s, resolution=%s, format=%s, files=%s, size=%s]", getClass().getName(),
+				asset, resolution, format, files.size(), size);
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.kaba4cow.polyhaven.api.client.selection;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Represents the result of a budgeted selection across many assets, mapping
+ * each selected asset to the chosen {@link FileVariant}.
+ */
+public class Selection {
+
+	/**
+	 * The chosen variants keyed by asset ID
+	 */
+	private final Map<String, FileVariant> variants;
+
+	/**
+	 * The total size in bytes of the chosen variants
+	 */
+	private final long size;
+
+	/**
+	 * The total utility of the chosen variants
+	 */
+	private final double utility;
+
+	/**
+	 * Constructs a {@code Selection} from the chosen variants.
+	 *
+	 * @param variants the chosen variants keyed by asset ID
+	 * @param size     the total size in bytes of the chosen variants
+	 * @param utility  the total utility of the chosen variants
+	 */
+	public Selection(Map<String, FileVariant> variants, long size, double utility) {
+		this.variants = Collections.unmodifiableMap(variants);
+		this.size = size;
+		this.utility = utility;
+	}
+
+	/**
+	 * Returns the chosen variants keyed by asset ID. Assets for which no variant
+	 * fit the budget are absent.
+	 *
+	 * @return an unmodifiable map of asset IDs to variants
+	 */
+	public Map<String, FileVariant> getVariants() {
+		return variants;
+	}
+
+	/**
+	 * Returns the total size in bytes of the chosen variants.
+	 *
+	 * @return the total size in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the total utility of the chosen variants.
+	 *
+	 * @return the total utility
+	 */
+	public double getUtility() {
+		return utility;
+	}
+
+	/**
+	 * Returns a string representation of the selection, including the chosen
+	 * variants, size and utility.
+	 *
+	 * @return a string representation of the {@code Selection}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [variants=%s, size=%s, utility=%s]", getClass().getName(), variants, size,
+				utility);
+	}
+
+}
@@ -0,0 +1,204 @@
+package com.kaba4cow.polyhaven.api.client.selection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Selects {@link FileVariant}s under a byte budget, either for a single asset
+ * or across many assets at once.
+ * 
+ * <p>
+ * Each variant is assigned a utility by a utility function. By default the
+ * utility grows by one for every doubling of the resolution, so that bandwidth
+ * is spent where it improves quality the most. Selection across many assets is
+ * a multiple-choice knapsack problem, which is solved greedily: every asset
+ * starts without a variant and the upgrade with the highest utility gain per
+ * additional byte is applied until no upgrade fits the remaining budget.
+ * </p>
+ */
+public class SelectionEngine {
+
+	/**
+	 * The default utility function, which is {@code 1 + log2(resolution)} so that
+	 * {@code 1k} has utility 1, {@code 2k} has utility 2, and so on.
+	 */
+	public static final ToDoubleFunction<FileVariant> RESOLUTION_UTILITY = variant -> 1d
+			+ Math.log(variant.getResolutionValue()) / Math.log(2d);
+
+	private final ToDoubleFunction<FileVariant> utility;
+
+	/**
+	 * Constructs a {@code SelectionEngine} that uses the given utility function.
+	 *
+	 * @param utility the function assigning a positive utility to each variant
+	 */
+	public SelectionEngine(ToDoubleFunction<FileVariant> utility) {
+		this.utility = utility;
+	}
+
+	/**
+	 * Constructs a {@code SelectionEngine} that uses
+	 * {@link #RESOLUTION_UTILITY}.
+	 */
+	public SelectionEngine() {
+		this(RESOLUTION_UTILITY);
+	}
+
+	/**
+	 * Selects the variant with the highest utility that fits the budget. When
+	 * formats are given, only variants of those formats are considered, and ties
+	 * are broken by the order of the formats.
+	 *
+	 * @param variants the candidate variants of one asset
+	 * @param budget   the maximum size in bytes
+	 * @param formats  the accepted formats in order of preference, or none to
+	 *                 accept every format
+	 * @return the best variant, or {@code null} if no variant fits the budget
+	 */
+	public FileVariant selectBest(Collection<FileVariant> variants, long budget, String... formats) {
+		List<FileVariant> candidates = VariantEnumerator.filter(variants, formats);
+		FileVariant best = null;
+		double bestUtility = Double.NEGATIVE_INFINITY;
+		int bestRank = Integer.MAX_VALUE;
+		for (FileVariant variant : candidates) {
+			if (variant.getSize() > budget)
+				continue;
+			double value = utility.applyAsDouble(variant);
+			int rank = getRank(variant, formats);
+			if (value > bestUtility || value == bestUtility
+					&& (rank < bestRank || rank == bestRank && variant.getSize() < best.getSize())) {
+				best = variant;
+				bestUtility = value;
+				bestRank = rank;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Selects at most one variant per asset so that the total size stays within
+	 * the budget and the total utility is as high as possible.
+	 *
+	 * @param candidates the candidate variants keyed by asset ID
+	 * @param budget     the maximum total size in bytes
+	 * @return the {@code Selection} of variants
+	 */
+	public Selection select(Map<String, ? extends Collection<FileVariant>> candidates, long budget) {
+		PriorityQueue<Upgrade> upgrades = new PriorityQueue<>(
+				Comparator.comparingDouble((Upgrade upgrade) -> upgrade.efficiency).reversed());
+		Map<String, List<FileVariant>> hulls = new HashMap<>();
+		Map<String, Integer> positions = new HashMap<>();
+		for (Map.Entry<String, ? extends Collection<FileVariant>> entry : candidates.entrySet()) {
+			List<FileVariant> hull = getHull(entry.getValue());
+			if (hull.isEmpty())
+				continue;
+			hulls.put(entry.getKey(), hull);
+			positions.put(entry.getKey(), -1);
+			upgrades.add(createUpgrade(entry.getKey(), null, hull.get(0)));
+		}
+		Map<String, FileVariant> selected = new LinkedHashMap<>();
+		long remaining = budget;
+		while (!upgrades.isEmpty()) {
+			Upgrade upgrade = upgrades.poll();
+			long cost = upgrade.to.getSize() - (upgrade.from == null ? 0L : upgrade.from.getSize());
+			if (cost > remaining)
+				continue;
+			remaining -= cost;
+			selected.put(upgrade.asset, upgrade.to);
+			int position = positions.get(upgrade.asset) + 1;
+			positions.put(upgrade.asset, position);
+			List<FileVariant> hull = hulls.get(upgrade.asset);
+			if (position + 1 < hull.size())
+				upgrades.add(createUpgrade(upgrade.asset, upgrade.to, hull.get(position + 1)));
+		}
+		for (Map.Entry<String, ? extends Collection<FileVariant>> entry : candidates.entrySet()) {
+			FileVariant current = selected.get(entry.getKey());
+			long available = remaining + (current == null ? 0L : current.getSize());
+			FileVariant best = selectBest(entry.getValue(), available);
+			if (best != null && (current == null || utility.applyAsDouble(best) > utility.applyAsDouble(current))) {
+				remaining = available - best.getSize();
+				selected.put(entry.getKey(), best);
+			}
+		}
+		Map<String, FileVariant> ordered = new LinkedHashMap<>();
+		long size = 0L;
+		double total = 0d;
+		for (String asset : candidates.keySet())
+			if (selected.containsKey(asset)) {
+				FileVariant variant = selected.get(asset);
+				ordered.put(asset, variant);
+				size += variant.getSize();
+				total += utility.applyAsDouble(variant);
+			}
+		return new Selection(ordered, size, total);
+	}
+
+	/**
+	 * Returns the variants on the upper convex hull of the size-utility plane,
+	 * starting from the origin. Variants off the hull are never the most
+	 * efficient upgrade and are only considered when filling the leftover budget.
+	 */
+	private List<FileVariant> getHull(Collection<FileVariant> variants) {
+		List<FileVariant> sorted = new ArrayList<>(variants);
+		sorted.sort(Comparator.comparingLong(FileVariant::getSize)
+				.thenComparing(Comparator.comparingDouble(utility).reversed()));
+		List<FileVariant> hull = new ArrayList<>();
+		double maxUtility = 0d;
+		for (FileVariant variant : sorted) {
+			double value = utility.applyAsDouble(variant);
+			if (value <= maxUtility)
+				continue;
+			maxUtility = value;
+			while (!hull.isEmpty()) {
+				FileVariant last = hull.get(hull.size() - 1);
+				FileVariant previous = hull.size() > 1 ? hull.get(hull.size() - 2) : null;
+				if (getEfficiency(previous, last) > getEfficiency(last, variant))
+					break;
+				hull.remove(hull.size() - 1);
+			}
+			hull.add(variant);
+		}
+		return hull;
+	}
+
+	private Upgrade createUpgrade(String asset, FileVariant from, FileVariant to) {
+		return new Upgrade(asset, from, to, getEfficiency(from, to));
+	}
+
+	private double getEfficiency(FileVariant from, FileVariant to) {
+		double gain = utility.applyAsDouble(to) - (from == null ? 0d : utility.applyAsDouble(from));
+		long cost = to.getSize() - (from == null ? 0L : from.getSize());
+		return cost <= 0L ? Double.POSITIVE_INFINITY : gain / cost;
+	}
+
+	private static int getRank(FileVariant variant, String... formats) {
+		for (int i = 0; i < formats.length; i++)
+			if (FileVariant.normalizeFormat(formats[i]).equals(variant.getFormat()))
+				return i;
+		return formats.length;
+	}
+
+	private static class Upgrade {
+
+		private final String asset;
+		private final FileVariant from;
+		private final FileVariant to;
+		private final double efficiency;
+
+		private Upgrade(String asset, FileVariant from, FileVariant to, double efficiency) {
+			this.asset = asset;
+			this.from = from;
+			this.to = to;
+			this.efficiency = efficiency;
+		}
+
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.kaba4cow.polyhaven.api.client.selection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileTree;
+import com.kaba4cow.polyhaven.api.client.manifest.ManifestEntry;
+
+/**
+ * Utility class for enumerating the {@link FileVariant}s of an asset from its
+ * {@link PolyhavenFileTree}.
+ * 
+ * <p>
+ * Every file whose path contains a resolution element (e.g.
+ * {@code Diffuse/4k/png} or {@code gltf/2k/gltf}) is grouped with the other
+ * files of the same resolution and format, and the dependent files of each
+ * grouped file are added to the variant. Files without a resolution, such as
+ * tonemapped HDRI previews, are not part of any variant.
+ * </p>
+ */
+public class VariantEnumerator {
+
+	private static final Comparator<FileVariant> ORDER = Comparator.comparingInt(FileVariant::getResolutionValue)
+			.thenComparing(FileVariant::getFormat);
+
+	private VariantEnumerator() {
+	}
+
+	/**
+	 * Enumerates every variant of the given file tree, ordered by resolution and
+	 * format.
+	 *
+	 * @param asset the unique ID/slug of the asset
+	 * @param tree  the file tree of the asset
+	 * @return a list of variants
+	 */
+	public static List<FileVariant> getVariants(String asset, PolyhavenFileTree tree) {
+		Map<String, Map<String, PolyhavenFileObject>> groups = new TreeMap<>();
+		for (Map.Entry<String, PolyhavenFileObject> entry : tree.getAllFiles().entrySet()) {
+			String[] elements = entry.getKey().split("/");
+			String resolution = null;
+			for (String element : elements)
+				if (ManifestEntry.isResolution(element))
+					resolution = element;
+			if (resolution == null)
+				continue;
+			String format = FileVariant.normalizeFormat(elements[elements.length - 1]);
+			Map<String, PolyhavenFileObject> files = groups.computeIfAbsent(resolution + "/" + format,
+					key -> new TreeMap<>());
+			PolyhavenFileObject file = entry.getValue();
+			files.put(getFileName(file.getUrl()), file);
+			files.putAll(file.getIncludedFiles());
+		}
+		List<FileVariant> variants = new ArrayList<>();
+		for (Map.Entry<String, Map<String, PolyhavenFileObject>> group : groups.entrySet()) {
+			String[] key = group.getKey().split("/");
+			variants.add(new FileVariant(asset, key[0], key[1], group.getValue()));
+		}
+		variants.sort(ORDER);
+		return variants;
+	}
+
+	/**
+	 * Enumerates the variants of the given file tree that have one of the given
+	 * formats, ordered by resolution and format.
+	 *
+	 * @param asset   the unique ID/slug of the asset
+	 * @param tree    the file tree of the asset
+	 * @param formats the accepted formats (e.g. {@code exr}, {@code hdr})
+	 * @return a list of variants
+	 */
+	public static List<FileVariant> getVariants(String asset, PolyhavenFileTree tree, String... formats) {
+		return filter(getVariants(asset, tree), formats);
+	}
+
+	/**
+	 * Returns the variants of the given collection that have one of the given
+	 * formats.
+	 *
+	 * @param variants the variants to filter
+	 * @param formats  the accepted formats in any case, or none to accept every
+	 *                 format
+	 * @return a list of matching variants
+	 */
+	public static List<FileVariant> filter(Collection<FileVariant> variants, String... formats) {
+		Set<String> accepted = new HashSet<>();
+		for (String format : formats)
+			accepted.add(FileVariant.normalizeFormat(format));
+		List<FileVariant> filtered = new ArrayList<>();
+		for (FileVariant variant : variants)
+			if (accepted.isEmpty() || accepted.contains(variant.getFormat()))
+				filtered.add(variant);
+		return filtered;
+	}
+
+	/**
+	 * Returns the variant of the given collection with the given resolution and
+	 * format.
+	 *
+	 * @param variants   the variants to search
+	 * @param resolution the resolution (e.g. {@code 4k})
+	 * @param format     the format (e.g. {@code png})
+	 * @return the matching variant, or {@code null} if there is none
+	 */
+	public static FileVariant find(Collection<FileVariant> variants, String resolution, String format) {
+		for (FileVariant variant : variants)
+			if (variant.getResolution().equalsIgnoreCase(resolution)
+					&& variant.getFormat().equals(FileVariant.normalizeFormat(format)))
+				return variant;
+		return null;
+	}
+
+	/**
+	 * Returns the file name of the given URL, which is the part after the last
+	 * {@code /} without any query string.
+	 *
+	 * @param url the URL
+	 * @return the file name
+	 */
+	public static String getFileName(String url) {
+		int query = url.indexOf('?');
+		String path = query < 0 ? url : url.substring(0, query);
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+}
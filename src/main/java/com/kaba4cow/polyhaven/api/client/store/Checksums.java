@@ -0,0 +1,29 @@
+package com.kaba4cow.polyhaven.api.client.store;
+
+/**
+ * Helpers for the MD5 checksums that files are identified by.
+ */
+public class Checksums {
+
+	private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+	private Checksums() {
+	}
+
+	/**
+	 * Formats a digest as a lower-case hexadecimal string, the format of the
+	 * checksums reported by the Polyhaven API.
+	 *
+	 * @param digest the digest bytes
+	 * @return the hexadecimal checksum
+	 */
+	public static String toHex(byte[] digest) {
+		char[] hex = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++) {
+			hex[2 * i] = DIGITS[(digest[i] >> 4) & 0xF];
+			hex[2 * i + 1] = DIGITS[digest[i] & 0xF];
+		}
+		return new String(hex);
+	}
+
+}
@@ -0,0 +1,281 @@
+package com.kaba4cow.polyhaven.api.client.store;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * A content-addressed store of files on local disk, keyed by their MD5
+ * checksum.
+ * 
+ * <p>
+ * Each distinct file is stored once under {@code root/xx/md5}, where
+ * {@code xx} are the first two characters of the checksum. Files are written
+ * to a temporary name inside the store and published by linking them to
+ * their final name, which never replaces a file another writer published
+ * first, so a file visible in the store is always complete. Stored files are
+ * made read-only.
+ * </p>
+ * 
+ * <p>
+ * Project layouts are materialized from the store as copies by default, so
+ * editing a project file never changes the stored file. Symbolic links to the
+ * read-only stored files and hard links cost no additional disk space, but a
+ * hard link shares the file with the store and every other project linked to
+ * it, and is only made when requested with {@link LinkMode#HARD_LINK}.
+ * </p>
+ */
+public class ContentStore {
+
+	private static final String TEMP_DIRECTORY = "tmp";
+
+	private final Path root;
+	private final List<StoreListener> listeners;
+
+	/**
+	 * Constructs a {@code ContentStore} in the given root directory, creating the
+	 * directory if it does not exist.
+	 *
+	 * @param root the root directory of the store
+	 * @throws IOException if the directory cannot be created
+	 */
+	public ContentStore(Path root) throws IOException {
+		this.root = root.toAbsolutePath();
+		this.listeners = new CopyOnWriteArrayList<>();
+		Files.createDirectories(this.root.resolve(TEMP_DIRECTORY));
+	}
+
+	/**
+	 * Returns the root directory of the store.
+	 *
+	 * @return the root directory
+	 */
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * Adds a listener notified when files are added to or read from the store.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addListener(StoreListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener previously added with
+	 * {@link #addListener(StoreListener)}.
+	 *
+	 * @param listener the listener to remove
+	 */
+	public void removeListener(StoreListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Returns the path at which the file with the given checksum is stored. The
+	 * file may not exist.
+	 *
+	 * @param md5 the MD5 checksum of the file
+	 * @return the path of the stored file
+	 */
+	public Path getPath(String md5) {
+		String key = md5.toLowerCase();
+		return root.resolve(key.substring(0, 2)).resolve(key);
+	}
+
+	/**
+	 * Checks whether the file with the given checksum is stored.
+	 *
+	 * @param md5 the MD5 checksum of the file
+	 * @return true if the file is stored, false otherwise
+	 */
+	public boolean contains(String md5) {
+		return Files.isRegularFile(getPath(md5));
+	}
+
+	/**
+	 * Adds a copy of the given file to the store under the given checksum. The
+	 * caller is responsible for the checksum being correct. If the file is
+	 * already stored, nothing is written.
+	 *
+	 * @param md5    the MD5 checksum of the file
+	 * @param source the file to add
+	 * @return the path of the stored file
+	 * @throws IOException if an I/O error occurs
+	 */
+	public Path put(String md5, Path source) throws IOException {
+		return put(md5, source, LinkMode.COPY);
+	}
+
+	/**
+	 * Adds the given file to the store under the given checksum, either as a copy
+	 * or, with {@link LinkMode#HARD_LINK}, as a hard link to the file. A hard
+	 * linked source shares the stored file and becomes read-only with it, so it
+	 * must not be modified afterwards. The caller is responsible for the checksum
+	 * being correct. If the file is already stored, nothing is written.
+	 *
+	 * @param md5    the MD5 checksum of the file
+	 * @param source the file to add
+	 * @param mode   {@link LinkMode#HARD_LINK} to link the file into the store,
+	 *               any other mode to copy it
+	 * @return the path of the stored file
+	 * @throws IOException if an I/O error occurs
+	 */
+	public Path put(String md5, Path source, LinkMode mode) throws IOException {
+		Path path = getPath(md5);
+		if (Files.isRegularFile(path))
+			return path;
+		Files.createDirectories(path.getParent());
+		Path temp = createTempPath();
+		boolean stored;
+		try {
+			place(source, temp, mode == LinkMode.HARD_LINK ? LinkMode.HARD_LINK : LinkMode.COPY);
+			temp.toFile().setWritable(false, false);
+			stored = publish(temp, path);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		if (stored) {
+			long size = Files.size(path);
+			for (StoreListener listener : listeners)
+				listener.fileStored(md5.toLowerCase(), size);
+		}
+		return path;
+	}
+
+	private static boolean publish(Path temp, Path path) throws IOException {
+		try {
+			try {
+				Files.createLink(path, temp);
+			} catch (UnsupportedOperationException e) {
+				Files.move(temp, path);
+			}
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			// published concurrently by another thread or process
+			return false;
+		}
+	}
+
+	/**
+	 * Places the stored file with the given checksum at the given target path,
+	 * replacing any existing file atomically. A copy is writable, links refer to
+	 * the read-only stored file.
+	 *
+	 * @param md5    the MD5 checksum of the file
+	 * @param target the path to place the file at
+	 * @param mode   how the file should be placed
+	 * @throws IOException if the file is not stored or an I/O error occurs
+	 */
+	public void materialize(String md5, Path target, LinkMode mode) throws IOException {
+		Path path = getPath(md5);
+		if (!Files.isRegularFile(path))
+			throw new IOException("No file stored with md5 " + md5);
+		Path absolute = target.toAbsolutePath();
+		Files.createDirectories(absolute.getParent());
+		Path temp = absolute.resolveSibling("." + absolute.getFileName() + "." + UUID.randomUUID() + ".tmp");
+		try {
+			place(path, temp, mode);
+			if (!Files.isSymbolicLink(temp) && !Files.isSameFile(path, temp))
+				temp.toFile().setWritable(true);
+			Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		for (StoreListener listener : listeners)
+			listener.fileAccessed(md5.toLowerCase());
+	}
+
+	/**
+	 * Removes the file with the given checksum from the store. Hard links
+	 * materialized from it remain valid.
+	 *
+	 * @param md5 the MD5 checksum of the file
+	 * @return true if the file was removed, false if it was not stored
+	 * @throws IOException if an I/O error occurs
+	 */
+	public boolean remove(String md5) throws IOException {
+		Path path = getPath(md5);
+		if (!Files.isRegularFile(path))
+			return false;
+		path.toFile().setWritable(true);
+		return Files.deleteIfExists(path);
+	}
+
+	/**
+	 * Returns the number of hard links to the file with the given checksum,
+	 * including the stored file itself. Deleting a stored file with more than one
+	 * link frees no disk space.
+	 *
+	 * @param md5 the MD5 checksum of the file
+	 * @return the link count, or 1 if the file system does not report link counts
+	 * @throws IOException if the file is not stored or an I/O error occurs
+	 */
+	public int getLinkCount(String md5) throws IOException {
+		try {
+			return (Integer) Files.getAttribute(getPath(md5), "unix:nlink");
+		} catch (UnsupportedOperationException | IllegalArgumentException e) {
+			return 1;
+		}
+	}
+
+	/**
+	 * Returns the checksums of every stored file.
+	 *
+	 * @return a list of MD5 checksums
+	 * @throws IOException if an I/O error occurs while listing the store
+	 */
+	public List<String> getChecksums() throws IOException {
+		List<String> checksums = new ArrayList<>();
+		try (Stream<Path> directories = Files.list(root)) {
+			for (Path directory : (Iterable<Path>) directories::iterator)
+				if (Files.isDirectory(directory) && !directory.getFileName().toString().equals(TEMP_DIRECTORY))
+					try (Stream<Path> files = Files.list(directory)) {
+						files.forEach(file -> checksums.add(file.getFileName().toString()));
+					}
+		}
+		return checksums;
+	}
+
+	private Path createTempPath() {
+		return root.resolve(TEMP_DIRECTORY).resolve(UUID.randomUUID().toString());
+	}
+
+	private static void place(Path source, Path target, LinkMode mode) throws IOException {
+		try {
+			switch (mode) {
+			case HARD_LINK:
+				Files.createLink(target, source);
+				return;
+			case SYMBOLIC_LINK:
+				Files.createSymbolicLink(target, source.toAbsolutePath());
+				return;
+			default:
+				break;
+			}
+		} catch (IOException | UnsupportedOperationException e) {
+			Files.deleteIfExists(target);
+		}
+		Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Returns a string representation of the store, including its root directory.
+	 *
+	 * @return a string representation of the {@code ContentStore}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [root=%s]", getClass().getName(), root);
+	}
+
+}
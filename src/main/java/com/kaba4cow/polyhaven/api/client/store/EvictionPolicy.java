@@ -0,0 +1,20 @@
+package com.kaba4cow.polyhaven.api.client.store;
+
+/**
+ * Defines which files a {@link LocalLibrary} evicts first when it exceeds its
+ * quota.
+ */
+public enum EvictionPolicy {
+
+	/**
+	 * Evicts the least recently used file first.
+	 */
+	LRU,
+
+	/**
+	 * Evicts the least frequently used file first, breaking ties by the least
+	 * recent use.
+	 */
+	LFU
+
+}
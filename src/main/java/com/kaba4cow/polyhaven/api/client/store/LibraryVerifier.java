@@ -0,0 +1,193 @@
+package com.kaba4cow.polyhaven.api.client.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
+import com.kaba4cow.polyhaven.api.client.selection.FileVariant;
+
+/**
+ * Verifies local files against their expected MD5 checksums using all
+ * available cores.
+ * 
+ * <p>
+ * Files are read sequentially into a direct buffer of {@value #BUFFER_SIZE}
+ * bytes that every hashing thread allocates once and reuses for each file it
+ * hashes, so verifying a large library neither maps the files nor allocates a
+ * buffer per file. The hashing threads of a verifier are shared by all of its
+ * {@code verify} calls and only exit, releasing their buffers, after being idle
+ * for a minute. Since a single MD5 digest cannot be split, parallelism comes
+ * from hashing many files at once: files are queued largest first, which keeps
+ * a multi-gigabyte file from starting last and leaving every other core idle
+ * while it finishes.
+ * </p>
+ */
+public class LibraryVerifier {
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	private static final long KEEP_ALIVE = 60L * 1000L * 1000L * 1000L;
+
+	private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal
+			.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * Constructs a {@code LibraryVerifier} that hashes up to {@code parallelism}
+	 * files at a time.
+	 *
+	 * @param parallelism the maximum number of files hashed concurrently
+	 */
+	public LibraryVerifier(int parallelism) {
+		this.executor = new ThreadPoolExecutor(parallelism, parallelism, KEEP_ALIVE, TimeUnit.NANOSECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "library-verifier");
+					thread.setDaemon(true);
+					return thread;
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Constructs a {@code LibraryVerifier} that hashes one file per available
+	 * processor at a time.
+	 */
+	public LibraryVerifier() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Verifies every file of the given content store against the checksum it is
+	 * stored under.
+	 *
+	 * @param store the content store to verify
+	 * @return the {@code VerificationReport}
+	 * @throws IOException if the store cannot be listed
+	 */
+	public VerificationReport verify(ContentStore store) throws IOException {
+		Map<Path, String> files = new HashMap<>();
+		for (String md5 : store.getChecksums())
+			files.put(store.getPath(md5), md5);
+		return verify(files);
+	}
+
+	/**
+	 * Verifies the files of the given variants laid out in the given directory as
+	 * {@code directory/asset/path}, which is the layout written by
+	 * {@code BundleDownloader}.
+	 *
+	 * @param directory the directory the variants were downloaded to
+	 * @param variants  the downloaded variants
+	 * @return the {@code VerificationReport}
+	 */
+	public VerificationReport verify(Path directory, Collection<FileVariant> variants) {
+		Map<Path, String> files = new LinkedHashMap<>();
+		for (FileVariant variant : variants)
+			for (Map.Entry<String, PolyhavenFileObject> file : variant.getFiles().entrySet())
+				files.put(directory.resolve(variant.getAsset()).resolve(file.getKey()).normalize(),
+						file.getValue().getMd5());
+		return verify(files);
+	}
+
+	/**
+	 * Verifies the given files against their expected checksums.
+	 *
+	 * @param files the files to verify, mapped to their expected MD5 checksums
+	 * @return the {@code VerificationReport}
+	 */
+	public VerificationReport verify(Map<Path, String> files) {
+		long start = System.nanoTime();
+		Map<Path, String> mismatches = new ConcurrentHashMap<>();
+		Map<Path, Exception> errors = new ConcurrentHashMap<>();
+		List<Path> missing = new ArrayList<>();
+		List<Path> queue = new ArrayList<>();
+		Map<Path, Long> sizes = new HashMap<>();
+		for (Path path : files.keySet())
+			try {
+				if (Files.isRegularFile(path)) {
+					sizes.put(path, Files.size(path));
+					queue.add(path);
+				} else
+					missing.add(path);
+			} catch (IOException e) {
+				errors.put(path, e);
+			}
+		queue.sort((a, b) -> Long.compare(sizes.get(b), sizes.get(a)));
+		AtomicInteger verified = new AtomicInteger();
+		AtomicLong bytes = new AtomicLong();
+		List<Future<?>> tasks = new ArrayList<>();
+		for (Path path : queue)
+			tasks.add(executor.submit(() -> {
+				try {
+					String md5 = hash(path);
+					bytes.addAndGet(sizes.get(path));
+					if (md5.equalsIgnoreCase(files.get(path)))
+						verified.incrementAndGet();
+					else
+						mismatches.put(path, md5);
+				} catch (IOException | RuntimeException e) {
+					errors.put(path, e);
+				}
+			}));
+		try {
+			for (Future<?> task : tasks)
+				task.get();
+		} catch (InterruptedException e) {
+			for (Future<?> task : tasks)
+				task.cancel(true);
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		return new VerificationReport(verified.get(), new LinkedHashMap<>(mismatches), missing,
+				new LinkedHashMap<>(errors), bytes.get(), System.nanoTime() - start);
+	}
+
+	/**
+	 * Computes the MD5 checksum of the given file, reading it through the direct
+	 * buffer of the calling thread.
+	 *
+	 * @param path the file to hash
+	 * @return the lower-case hexadecimal MD5 checksum
+	 * @throws IOException if the file cannot be read
+	 */
+	public static String hash(Path path) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		ByteBuffer buffer = BUFFERS.get();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			buffer.clear();
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+		return Checksums.toHex(digest.digest());
+	}
+
+}
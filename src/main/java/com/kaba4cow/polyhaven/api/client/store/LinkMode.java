@@ -0,0 +1,25 @@
+package com.kaba4cow.polyhaven.api.client.store;
+
+/**
+ * Defines how a {@link ContentStore} places a stored file at a project path.
+ */
+public enum LinkMode {
+
+	/**
+	 * Creates a hard link to the stored file, falling back to a copy if the target
+	 * is on a different file system.
+	 */
+	HARD_LINK,
+
+	/**
+	 * Creates a symbolic link to the stored file, falling back to a copy if
+	 * symbolic links are not supported.
+	 */
+	SYMBOLIC_LINK,
+
+	/**
+	 * Copies the stored file.
+	 */
+	COPY
+
+}
@@ -0,0 +1,381 @@
+package com.kaba4cow.polyhaven.api.client.store;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A size-bounded library on top of a {@link ContentStore} that evicts unused
+ * files once the stored bytes exceed a quota.
+ * 
+ * <p>
+ * The library listens to its store and records the size, last access time and
+ * access count of every stored file. Evictable files are kept in a tree ordered
+ * by the {@link EvictionPolicy}, so recording an access and choosing the next
+ * file to evict both take O(log n) time. Files pinned by an active project are
+ * removed from the tree and are never evicted until every project releases
+ * them.
+ * </p>
+ * 
+ * <p>
+ * Eviction only counts bytes as freed when deleting the stored file removes its
+ * last link. A file that is still hard linked from a project path, which
+ * happens when the store materializes with {@link LinkMode#HARD_LINK}, would
+ * keep its disk space after being removed from the store. Such a file is moved
+ * out of the tree when an eviction finds it linked, and its bytes no longer
+ * count against the quota. It is checked again only when it is accessed or
+ * stored again, or when {@link #recheckLinkedFiles()} is called after project
+ * copies were deleted, so every eviction decision stays O(log n).
+ * </p>
+ * 
+ * <p>
+ * The usage statistics are kept in an index file in the store's root directory,
+ * written by {@link #save()}. Pins are not persisted, since they belong to the
+ * projects that are active in the current process.
+ * </p>
+ */
+public class LocalLibrary implements StoreListener {
+
+	private static final String INDEX_FILE = "library.index";
+
+	private final ContentStore store;
+	private final long quota;
+	private final Path index;
+
+	private final Map<String, Entry> entries;
+	private final TreeSet<Entry> evictable;
+	private final Map<String, Set<String>> pins;
+	private final Set<Entry> linked;
+
+	private long usedBytes;
+	private long linkedBytes;
+	private long evictionCount;
+	private long evictedBytes;
+	private long clock;
+
+	/**
+	 * Constructs a {@code LocalLibrary} over the given store, loading its index
+	 * and reconciling it with the files actually present in the store. The store
+	 * is evicted down to the quota immediately.
+	 *
+	 * @param store  the content store to manage
+	 * @param quota  the maximum number of stored bytes
+	 * @param policy the policy choosing which files to evict first
+	 * @throws IOException if the index or the store cannot be read
+	 */
+	public LocalLibrary(ContentStore store, long quota, EvictionPolicy policy) throws IOException {
+		this.store = store;
+		this.quota = quota;
+		this.index = store.getRoot().resolve(INDEX_FILE);
+		this.entries = new HashMap<>();
+		this.evictable = new TreeSet<>(getComparator(policy));
+		this.pins = new HashMap<>();
+		this.linked = new HashSet<>();
+		this.usedBytes = 0L;
+		this.linkedBytes = 0L;
+		this.evictionCount = 0L;
+		this.evictedBytes = 0L;
+		this.clock = System.currentTimeMillis();
+		load();
+		store.addListener(this);
+		evict();
+	}
+
+	private static Comparator<Entry> getComparator(EvictionPolicy policy) {
+		Comparator<Entry> recency = Comparator.comparingLong((Entry entry) -> entry.lastAccess)
+				.thenComparing(entry -> entry.md5);
+		switch (policy) {
+		case LFU:
+			return Comparator.comparingLong((Entry entry) -> entry.accessCount).thenComparing(recency);
+		default:
+			return recency;
+		}
+	}
+
+	private void load() throws IOException {
+		Map<String, Entry> loaded = new HashMap<>();
+		if (Files.exists(index))
+			try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] fields = line.split(" ");
+					if (fields.length == 4)
+						loaded.put(fields[0], new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+								Long.parseLong(fields[3])));
+				}
+			}
+		for (String md5 : store.getChecksums()) {
+			Entry entry = loaded.get(md5);
+			if (entry == null) {
+				Path path = store.getPath(md5);
+				entry = new Entry(md5, Files.size(path), Files.getLastModifiedTime(path).toMillis(), 1L);
+			}
+			entries.put(md5, entry);
+			evictable.add(entry);
+			usedBytes += entry.size;
+			clock = Math.max(clock, entry.lastAccess);
+		}
+	}
+
+	/**
+	 * Writes the usage statistics of every stored file to the index file. The
+	 * index is written to a temporary file and then moved over the old index.
+	 *
+	 * @throws IOException if the index cannot be written
+	 */
+	public synchronized void save() throws IOException {
+		Path temp = index.resolveSibling(INDEX_FILE + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+			for (Entry entry : entries.values()) {
+				writer.write(entry.md5 + " " + entry.size + " " + entry.lastAccess + " " + entry.accessCount);
+				writer.newLine();
+			}
+		}
+		Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	@Override
+	public synchronized void fileStored(String md5, long size) {
+		Entry entry = entries.get(md5);
+		if (entry == null) {
+			entry = new Entry(md5, size, nextTime(), 1L);
+			entries.put(md5, entry);
+			usedBytes += size;
+			if (!isPinned(md5))
+				evictable.add(entry);
+		} else
+			touch(entry);
+		evictExcept(md5);
+	}
+
+	@Override
+	public synchronized void fileAccessed(String md5) {
+		Entry entry = entries.get(md5);
+		if (entry != null)
+			touch(entry);
+	}
+
+	private void touch(Entry entry) {
+		boolean removed = evictable.remove(entry);
+		if (linked.remove(entry)) {
+			linkedBytes -= entry.size;
+			removed = !isPinned(entry.md5);
+		}
+		entry.lastAccess = nextTime();
+		entry.accessCount++;
+		if (removed)
+			evictable.add(entry);
+	}
+
+	/**
+	 * Returns a strictly increasing timestamp, so that accesses within the same
+	 * millisecond keep their order.
+	 */
+	private long nextTime() {
+		clock = Math.max(clock + 1L, System.currentTimeMillis());
+		return clock;
+	}
+
+	/**
+	 * Pins the files with the given checksums for the given project, so that they
+	 * are not evicted until the project releases them.
+	 *
+	 * @param project the name of the project
+	 * @param md5s    the MD5 checksums of the files used by the project
+	 */
+	public synchronized void pin(String project, Collection<String> md5s) {
+		Set<String> pinned = pins.computeIfAbsent(project, key -> new HashSet<>());
+		for (String md5 : md5s) {
+			String key = md5.toLowerCase();
+			if (pinned.add(key)) {
+				Entry entry = entries.get(key);
+				if (entry != null)
+					evictable.remove(entry);
+			}
+		}
+	}
+
+	/**
+	 * Releases every file pinned by the given project and evicts files if the
+	 * library exceeds its quota.
+	 *
+	 * @param project the name of the project
+	 */
+	public synchronized void release(String project) {
+		Set<String> pinned = pins.remove(project);
+		if (pinned == null)
+			return;
+		for (String md5 : pinned) {
+			Entry entry = entries.get(md5);
+			if (entry != null && !isPinned(md5) && !linked.contains(entry))
+				evictable.add(entry);
+		}
+		evict();
+	}
+
+	/**
+	 * Checks whether the file with the given checksum is pinned by any project.
+	 *
+	 * @param md5 the MD5 checksum of the file
+	 * @return true if the file is pinned, false otherwise
+	 */
+	public synchronized boolean isPinned(String md5) {
+		String key = md5.toLowerCase();
+		for (Set<String> pinned : pins.values())
+			if (pinned.contains(key))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Puts every file that an eviction set aside because it was still hard linked
+	 * back into the eviction order, so that files whose project copies have been
+	 * deleted since can be evicted, and evicts files if the library exceeds its
+	 * quota.
+	 */
+	public synchronized void recheckLinkedFiles() {
+		for (Entry entry : linked)
+			if (!isPinned(entry.md5))
+				evictable.add(entry);
+		linked.clear();
+		linkedBytes = 0L;
+		evict();
+	}
+
+	/**
+	 * Evicts files in policy order until the stored bytes fit the quota or only
+	 * pinned files remain. Files that cannot be deleted are skipped, and files
+	 * that are still hard linked elsewhere are set aside and no longer count
+	 * against the quota.
+	 */
+	public synchronized void evict() {
+		evictExcept(null);
+	}
+
+	private void evictExcept(String keep) {
+		Entry kept = keep == null ? null : entries.get(keep);
+		if (kept != null && evictable.remove(kept))
+			try {
+				evictWhileOverQuota();
+			} finally {
+				evictable.add(kept);
+			}
+		else
+			evictWhileOverQuota();
+	}
+
+	private void evictWhileOverQuota() {
+		while (usedBytes - linkedBytes > quota && !evictable.isEmpty()) {
+			Entry entry = evictable.pollFirst();
+			try {
+				if (store.getLinkCount(entry.md5) > 1) {
+					linked.add(entry);
+					linkedBytes += entry.size;
+					continue;
+				}
+				store.remove(entry.md5);
+			} catch (IOException e) {
+				continue;
+			}
+			entries.remove(entry.md5);
+			usedBytes -= entry.size;
+			evictionCount++;
+			evictedBytes += entry.size;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes currently stored.
+	 *
+	 * @return the stored bytes
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * Returns the number of stored bytes set aside because their files are still
+	 * hard linked elsewhere. These bytes do not count against the quota.
+	 *
+	 * @return the linked bytes
+	 */
+	public synchronized long getLinkedBytes() {
+		return linkedBytes;
+	}
+
+	/**
+	 * Returns the maximum number of stored bytes.
+	 *
+	 * @return the quota in bytes
+	 */
+	public long getQuota() {
+		return quota;
+	}
+
+	/**
+	 * Returns the number of stored files.
+	 *
+	 * @return the file count
+	 */
+	public synchronized int getFileCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of files evicted since the library was created.
+	 *
+	 * @return the eviction count
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Returns the number of bytes evicted since the library was created.
+	 *
+	 * @return the evicted bytes
+	 */
+	public synchronized long getEvictedBytes() {
+		return evictedBytes;
+	}
+
+	/**
+	 * Returns a string representation of the library, including its usage and
+	 * eviction statistics.
+	 *
+	 * @return a string representation of the {@code LocalLibrary}
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("%s [files=%s, usedBytes=%s, linkedBytes=%s, quota=%s, evictions=%s]",
+				getClass().getName(), entries.size(), usedBytes, linkedBytes, quota, evictionCount);
+	}
+
+	private static class Entry {
+
+		private final String md5;
+		private final long size;
+		private long lastAccess;
+		private long accessCount;
+
+		private Entry(String md5, long size, long lastAccess, long accessCount) {
+			this.md5 = md5;
+			this.size = size;
+			this.lastAccess = lastAccess;
+			this.accessCount = accessCount;
+		}
+
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.kaba4cow.polyhaven.api.client.store;
+
+/**
+ * Listener notified when files are added to or read from a
+ * {@link ContentStore}.
+ */
+public interface StoreListener {
+
+	/**
+	 * Called after a file has been added to the store.
+	 *
+	 * @param md5  the MD5 checksum of the file
+	 * @param size the size of the file in bytes
+	 */
+	public void fileStored(String md5, long size);
+
+	/**
+	 * Called after a stored file has been materialized at a project path.
+	 *
+	 * @param md5 the MD5 checksum of the file
+	 */
+	public void fileAccessed(String md5);
+
+}
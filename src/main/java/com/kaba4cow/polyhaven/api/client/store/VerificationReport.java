@@ -0,0 +1,151 @@
+package com.kaba4cow.polyhaven.api.client.store;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the result of a {@link LibraryVerifier} run, listing the files
+ * whose checksum did not match, the files that were missing and the files that
+ * could not be read.
+ */
+public class VerificationReport {
+
+	/**
+	 * The number of files whose checksum matched
+	 */
+	private final int verified;
+
+	/**
+	 * The files whose checksum did not match, mapped to their actual checksum
+	 */
+	private final Map<Path, String> mismatches;
+
+	/**
+	 * The files that do not exist
+	 */
+	private final List<Path> missing;
+
+	/**
+	 * The files that could not be read, mapped to the error
+	 */
+	private final Map<Path, Exception> errors;
+
+	/**
+	 * The number of bytes hashed
+	 */
+	private final long bytes;
+
+	/**
+	 * The wall-clock duration of the verification in nanoseconds
+	 */
+	private final long duration;
+
+	/**
+	 * Constructs a {@code VerificationReport} with the given results.
+	 *
+	 * @param verified   the number of files whose checksum matched
+	 * @param mismatches the files whose checksum did not match
+	 * @param missing    the files that do not exist
+	 * @param errors     the files that could not be read
+	 * @param bytes      the number of bytes hashed
+	 * @param duration   the duration of the verification in nanoseconds
+	 */
+	public VerificationReport(int verified, Map<Path, String> mismatches, List<Path> missing,
+			Map<Path, Exception> errors, long bytes, long duration) {
+		this.verified = verified;
+		this.mismatches = Collections.unmodifiableMap(mismatches);
+		this.missing = Collections.unmodifiableList(missing);
+		this.errors = Collections.unmodifiableMap(errors);
+		this.bytes = bytes;
+		this.duration = duration;
+	}
+
+	/**
+	 * Returns the number of files whose checksum matched.
+	 *
+	 * @return the verified file count
+	 */
+	public int getVerified() {
+		return verified;
+	}
+
+	/**
+	 * Returns the files whose checksum did not match, mapped to their actual
+	 * checksum.
+	 *
+	 * @return an unmodifiable map of mismatching files
+	 */
+	public Map<Path, String> getMismatches() {
+		return mismatches;
+	}
+
+	/**
+	 * Returns the files that do not exist.
+	 *
+	 * @return an unmodifiable list of missing files
+	 */
+	public List<Path> getMissing() {
+		return missing;
+	}
+
+	/**
+	 * Returns the files that could not be read, mapped to the error.
+	 *
+	 * @return an unmodifiable map of unreadable files
+	 */
+	public Map<Path, Exception> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Indicates whether every file exists and matches its checksum.
+	 *
+	 * @return true if there are no mismatches, missing files or errors
+	 */
+	public boolean isValid() {
+		return mismatches.isEmpty() && missing.isEmpty() && errors.isEmpty();
+	}
+
+	/**
+	 * Returns the number of bytes hashed.
+	 *
+	 * @return the hashed bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the wall-clock duration of the verification.
+	 *
+	 * @return the duration in nanoseconds
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Returns the average hashing throughput.
+	 *
+	 * @return the throughput in bytes per second
+	 */
+	public double getThroughput() {
+		return duration == 0L ? 0d : bytes * 1000000000d / duration;
+	}
+
+	/**
+	 * Returns a string representation of the report, including its counts and
+	 * throughput.
+	 *
+	 * @return a string representation of the {@code VerificationReport}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [verified=%s, mismatches=%s, missing=%s, errors=%s, bytes=%s, throughput=%.1f MB/s]",
+				getClass().getName(), verified, mismatches.size(), missing.size(), errors.size(), bytes,
+				getThroughput() / 1000000d);
+	}
+
+}
@@ -1,6 +1,8 @@
 package com.kaba4cow.polyhaven.browser;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.swing.DefaultListCellRenderer;
 import javax.swing.DefaultListModel;
@@ -8,9 +10,12 @@ import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 
 import com.kaba4cow.polyhaven.api.client.data.assets.PolyhavenAsset;
+import com.kaba4cow.polyhaven.browser.imageloader.ImageCollection;
 import com.kaba4cow.polyhaven.browser.imageloader.ImageLoader;
+import com.kaba4cow.polyhaven.browser.imageloader.ImageLoaderListener;
 
 public class AssetList extends JList<PolyhavenAsset> {
 
@@ -19,6 +24,10 @@ public class AssetList extends JList<PolyhavenAsset> {
 	private static final int IMAGE_SIZE = 64;
 
 	private final DefaultListModel<PolyhavenAsset> model;
+	private final ImageLoaderListener repaintListener;
+
+	private Map<String, Integer> indices;
+	private int firstVisibleIndex;
 
 	public AssetList() {
 		super();
@@ -26,13 +35,55 @@ public class AssetList extends JList<PolyhavenAsset> {
 		setModel(model = new DefaultListModel<>());
 		setCellRenderer(new AssetListCellRenderer());
 		setFixedCellHeight(IMAGE_SIZE);
+		repaintListener = image -> {
+			if (image != null)
+				repaint();
+		};
+		indices = new HashMap<>();
+		firstVisibleIndex = 0;
 	}
 
 	public void setAssets(Collection<PolyhavenAsset> assets) {
 		ImageLoader.cancelLoading();
 		model.clear();
-		for (PolyhavenAsset asset : assets)
+		Map<String, Integer> indices = new HashMap<>();
+		for (PolyhavenAsset asset : assets) {
+			indices.put(asset.getThumbnailUrl(), model.getSize());
 			model.addElement(asset);
+		}
+		this.indices = indices;
+		firstVisibleIndex = 0;
+		SwingUtilities.invokeLater(this::updateViewport);
+	}
+
+	public void updateViewport() {
+		int first = getFirstVisibleIndex();
+		int last = getLastVisibleIndex();
+		if (first < 0 || last < 0)
+			return;
+		boolean scrollingUp = first < firstVisibleIndex;
+		firstVisibleIndex = first;
+		Map<String, Integer> indices = this.indices;
+		int prefetch = last - first + 1;
+		int from = Math.max(0, first - prefetch);
+		int to = Math.min(model.getSize() - 1, last + prefetch);
+		ImageLoader.setDistance(url -> {
+			Integer index = indices.get(url);
+			if (index == null || index < from || index > to)
+				return Integer.MAX_VALUE;
+			else if (index < first)
+				return scrollingUp ? first - index : 2 * (first - index);
+			else if (index > last)
+				return scrollingUp ? 2 * (index - last) : index - last;
+			else
+				return 0;
+		});
+		for (int i = from; i <= to; i++) {
+			PolyhavenAsset asset = model.getElementAt(i);
+			String url = asset.getThumbnailUrl();
+			if (!ImageLoader.hasImage(url))
+				ImageLoader.loadImage(url, asset.getFilesHash(), IMAGE_SIZE, repaintListener);
+		}
 	}
 
 	private class AssetListCellRenderer extends DefaultListCellRenderer {
@@ -59,13 +110,11 @@ public class AssetList extends JList<PolyhavenAsset> {
 			}
 			PolyhavenAsset asset = model.getElementAt(index);
 			label.setText(asset.getId());
-			label.setIcon(null);
-			ImageLoader.loadImage(asset.getThumbnailUrl(), image -> {
-				if (image != null) {
-					label.setIcon(new ImageIcon(image.getScaledImage(IMAGE_SIZE)));
-					list.repaint();
-				}
-			});
+			ImageCollection image = ImageLoader.getImage(asset.getThumbnailUrl());
+			if (image == null)
+				label.setIcon(null);
+			else
+				label.setIcon(new ImageIcon(image.getScaledImage(IMAGE_SIZE)));
 			return label;
 		}
 
@@ -8,15 +8,20 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
+import javax.swing.Timer;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 
 import com.kaba4cow.polyhaven.api.client.data.assets.PolyhavenAsset;
+import com.kaba4cow.polyhaven.browser.imageloader.ImageLoader;
+import com.kaba4cow.polyhaven.browser.imageloader.ThumbnailFetcher;
 
 public class AssetListPanel extends JPanel   {
 
 	private static final long serialVersionUID = 1L;
 
+	private static final int STATUS_INTERVAL = 1000;
+
 	private final PolyhavenBrowser browser;
 
 	private Collection<PolyhavenAsset> input;
@@ -24,6 +29,7 @@ public class AssetListPanel extends JPanel   {
 	private final SearchTextField searchTextField;
 	private final JScrollPane scrollPane;
 	private final AssetList assetList;
+	private final JLabel transferLabel;
 
 	public AssetListPanel(PolyhavenBrowser browser) {
 		super();
@@ -39,7 +45,15 @@ public class AssetListPanel extends JPanel   {
 		scrollPane = new JScrollPane();
 		scrollPane.setViewportView(assetList);
 		scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+		scrollPane.getViewport().addChangeListener(event -> assetList.updateViewport());
+		assetList.addListSelectionListener(event -> {
+			if (!event.getValueIsAdjusting())
+				browser.getSelectionPanel().updateAsset();
+		});
 		add(scrollPane, BorderLayout.CENTER);
+		add(transferLabel = new JLabel(), BorderLayout.SOUTH);
+		updateTransfers();
+		new Timer(STATUS_INTERVAL, event -> updateTransfers()).start();
 	}
 
 	public void updateAssets(String type, String[] categories) {
@@ -52,6 +66,17 @@ public class AssetListPanel extends JPanel   {
 		}
 	}
 
+	public PolyhavenAsset getSelectedAsset() {
+		return assetList.getSelectedValue();
+	}
+
+	private void updateTransfers() {
+		ThumbnailFetcher fetcher = ImageLoader.getFetcher();
+		transferLabel.setText(String.format("Thumbnails: %d fetched, %.1f MB transferred, ~%.1f MB saved (%.0f%%)",
+				fetcher.getRequestCount(), fetcher.getTransferredBytes() / (1024d * 1024d),
+				fetcher.getSavedBytes() / (1024d * 1024d), fetcher.getSavedRatio() * 100d));
+	}
+
 	private void updateAssets() {
 		scrollPane.getHorizontalScrollBar().setValue(0);
 		scrollPane.getVerticalScrollBar().setValue(0);
@@ -0,0 +1,313 @@
+package com.kaba4cow.polyhaven.browser;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GridLayout;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import com.kaba4cow.polyhaven.api.client.authors.AuthorDirectory;
+import com.kaba4cow.polyhaven.api.client.data.PolyhavenAuthor;
+import com.kaba4cow.polyhaven.api.client.data.assets.PolyhavenAsset;
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileTree;
+import com.kaba4cow.polyhaven.api.client.http.HttpResponse;
+import com.kaba4cow.polyhaven.browser.imageloader.ImageCollection;
+import com.kaba4cow.polyhaven.browser.imageloader.ImageLoader;
+
+public class AssetPreviewPanel extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int PREVIEW_SIZE = 288;
+	private static final int AUTHOR_THREADS = 4;
+
+	private final PolyhavenBrowser browser;
+	private final AuthorDirectory authors;
+	private final ExecutorService executor;
+
+	private final PreviewImage previewImage;
+	private final JLabel nameLabel;
+	private final JLabel authorsLabel;
+	private final JLabel filesLabel;
+
+	private Preview preview;
+
+	public AssetPreviewPanel(PolyhavenBrowser browser) {
+		super();
+		this.browser = browser;
+		authors = new AuthorDirectory(browser.getClient());
+		executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "preview");
+			thread.setDaemon(true);
+			return thread;
+		});
+		setLayout(new BorderLayout());
+		add(previewImage = new PreviewImage(), BorderLayout.CENTER);
+		JPanel infoPanel = new JPanel();
+		infoPanel.setLayout(new GridLayout(3, 1));
+		infoPanel.add(nameLabel = new JLabel());
+		infoPanel.add(authorsLabel = new JLabel());
+		infoPanel.add(filesLabel = new JLabel());
+		add(infoPanel, BorderLayout.SOUTH);
+		setPreferredSize(new Dimension(PREVIEW_SIZE, PREVIEW_SIZE));
+		preview = null;
+	}
+
+	public void setAsset(PolyhavenAsset asset) {
+		if (preview != null) {
+			if (preview.asset == asset)
+				return;
+			preview.cancel();
+		}
+		if (asset == null) {
+			preview = null;
+			previewImage.setThumbnail(null);
+			nameLabel.setText("");
+			authorsLabel.setText("");
+			filesLabel.setText("");
+			return;
+		}
+		Preview preview = new Preview(asset);
+		this.preview = preview;
+		ImageCollection thumbnail = ImageLoader.getImage(asset.getThumbnailUrl());
+		previewImage.setThumbnail(thumbnail == null ? null : thumbnail.getOriginalImage());
+		nameLabel.setText(asset.getName());
+		authorsLabel.setText(formatAuthors(asset));
+		filesLabel.setText("Files: loading...");
+		int size = Math.max(previewImage.getWidth(), previewImage.getHeight());
+		int previewSize = size > 0 ? size : PREVIEW_SIZE;
+		preview.tasks.add(executor.submit(() -> loadImage(preview, previewSize)));
+		preview.tasks.add(executor.submit(() -> loadFiles(preview)));
+		preview.tasks.add(executor.submit(() -> loadAuthors(preview)));
+	}
+
+	private void loadImage(Preview preview, int size) {
+		try {
+			HttpResponse response = ImageLoader.getFetcher().open(preview.asset.getThumbnailUrl(), size, size);
+			preview.response = response;
+			if (preview.isCancelled()) {
+				response.disconnect();
+				return;
+			}
+			try (ImageInputStream input = ImageIO.createImageInputStream(response.getInputStream())) {
+				Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+				if (!readers.hasNext())
+					return;
+				ImageReader reader = readers.next();
+				try {
+					reader.setInput(input, true, true);
+					preview.reader = reader;
+					if (preview.isCancelled())
+						return;
+					reader.addIIOReadUpdateListener(new PreviewUpdateListener(preview));
+					BufferedImage image = reader.read(0, HttpResponse.getReadParam(reader, size, size, null));
+					if (image != null)
+						publish(preview, () -> previewImage.setPreview(image, image.getHeight()));
+				} finally {
+					reader.dispose();
+				}
+			}
+		} catch (IOException e) {
+		}
+	}
+
+	private void loadFiles(Preview preview) {
+		String text;
+		try {
+			PolyhavenFileTree tree = browser.getClient().getAssetFileTree(preview.asset.getId());
+			Map<String, PolyhavenFileObject> files = tree.getAllFiles();
+			long size = 0L;
+			for (PolyhavenFileObject file : files.values())
+				size += file.getSize();
+			text = String.format("Files: %s (%.1f MB)", files.size(), size / (1024d * 1024d));
+		} catch (Exception e) {
+			text = "Files: unavailable";
+		}
+		String result = text;
+		publish(preview, () -> filesLabel.setText(result));
+	}
+
+	private void loadAuthors(Preview preview) {
+		authors.prefetch(Collections.singleton(preview.asset), AUTHOR_THREADS);
+		publish(preview, () -> authorsLabel.setText(formatAuthors(preview.asset)));
+	}
+
+	private String formatAuthors(PolyhavenAsset asset) {
+		List<String> names = new ArrayList<>();
+		for (Map.Entry<String, String> entry : asset.getAuthors().entrySet()) {
+			PolyhavenAuthor author = authors.getCachedAuthor(entry.getKey());
+			String name = author == null ? entry.getKey() : author.getName();
+			names.add(name + " (" + entry.getValue() + ")");
+		}
+		return "Authors: " + String.join(", ", names);
+	}
+
+	private void publish(Preview preview, Runnable update) {
+		if (!preview.isCancelled())
+			SwingUtilities.invokeLater(() -> {
+				if (this.preview == preview)
+					update.run();
+			});
+	}
+
+	private static class Preview {
+
+		private final PolyhavenAsset asset;
+		private final List<Future<?>> tasks;
+
+		private volatile boolean cancelled;
+		private volatile HttpResponse response;
+		private volatile ImageReader reader;
+
+		private Preview(PolyhavenAsset asset) {
+			this.asset = asset;
+			this.tasks = new ArrayList<>();
+			this.cancelled = false;
+			this.response = null;
+			this.reader = null;
+		}
+
+		private boolean isCancelled() {
+			return cancelled;
+		}
+
+		private void cancel() {
+			cancelled = true;
+			ImageReader reader = this.reader;
+			if (reader != null)
+				reader.abort();
+			HttpResponse response = this.response;
+			if (response != null)
+				response.disconnect();
+			for (Future<?> task : tasks)
+				task.cancel(true);
+		}
+
+	}
+
+	private class PreviewUpdateListener implements IIOReadUpdateListener {
+
+		private final Preview preview;
+		private final AtomicBoolean pending;
+
+		private volatile int rows;
+		private boolean multiPass;
+
+		private PreviewUpdateListener(Preview preview) {
+			this.preview = preview;
+			this.pending = new AtomicBoolean();
+			this.rows = 0;
+			this.multiPass = false;
+		}
+
+		private void update(BufferedImage image, int rows) {
+			this.rows = Math.max(this.rows, rows);
+			if (pending.compareAndSet(false, true))
+				publish(preview, () -> {
+					pending.set(false);
+					previewImage.setPreview(image, this.rows);
+				});
+		}
+
+		@Override
+		public void passStarted(ImageReader source, BufferedImage image, int pass, int minPass, int maxPass, int minX,
+				int minY, int periodX, int periodY, int[] bands) {
+			multiPass |= maxPass > minPass;
+		}
+
+		@Override
+		public void imageUpdate(ImageReader source, BufferedImage image, int minX, int minY, int width, int height,
+				int periodX, int periodY, int[] bands) {
+			if (!multiPass)
+				update(image, minY + (height - 1) * periodY + 1);
+		}
+
+		@Override
+		public void passComplete(ImageReader source, BufferedImage image) {
+			update(image, image.getHeight());
+		}
+
+		@Override
+		public void thumbnailPassStarted(ImageReader source, BufferedImage thumbnail, int pass, int minPass,
+				int maxPass, int minX, int minY, int periodX, int periodY, int[] bands) {
+		}
+
+		@Override
+		public void thumbnailUpdate(ImageReader source, BufferedImage thumbnail, int minX, int minY, int width,
+				int height, int periodX, int periodY, int[] bands) {
+		}
+
+		@Override
+		public void thumbnailPassComplete(ImageReader source, BufferedImage thumbnail) {
+		}
+
+	}
+
+	private static class PreviewImage extends JComponent {
+
+		private static final long serialVersionUID = 1L;
+
+		private BufferedImage thumbnail;
+		private BufferedImage preview;
+		private int previewRows;
+
+		private void setThumbnail(BufferedImage thumbnail) {
+			this.thumbnail = thumbnail;
+			this.preview = null;
+			this.previewRows = 0;
+			repaint();
+		}
+
+		private void setPreview(BufferedImage preview, int rows) {
+			this.preview = preview;
+			this.previewRows = Math.min(rows, preview.getHeight());
+			repaint();
+		}
+
+		@Override
+		protected void paintComponent(Graphics graphics) {
+			super.paintComponent(graphics);
+			BufferedImage reference = preview != null ? preview : thumbnail;
+			if (reference == null)
+				return;
+			double scale = Math.min((double) getWidth() / reference.getWidth(),
+					(double) getHeight() / reference.getHeight());
+			int width = (int) (reference.getWidth() * scale);
+			int height = (int) (reference.getHeight() * scale);
+			int x = (getWidth() - width) / 2;
+			int y = (getHeight() - height) / 2;
+			Graphics2D g = (Graphics2D) graphics;
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			if (thumbnail != null && (preview == null || previewRows < preview.getHeight()))
+				g.drawImage(thumbnail, x, y, width, height, null);
+			if (preview != null && previewRows > 0) {
+				int bottom = y + (int) Math.round((double) height * previewRows / preview.getHeight());
+				g.drawImage(preview, x, y, x + width, bottom, 0, 0, preview.getWidth(), previewRows, null);
+			}
+		}
+
+	}
+
+}
@@ -2,6 +2,7 @@ package com.kaba4cow.polyhaven.browser;
 
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.nio.file.Paths;
 
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
@@ -10,15 +11,20 @@ import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
 import com.kaba4cow.polyhaven.api.client.PolyhavenApiClient;
+import com.kaba4cow.polyhaven.browser.imageloader.ImageLoader;
+import com.kaba4cow.polyhaven.browser.imageloader.ThumbnailStore;
 
 public class PolyhavenBrowser extends JFrame {
 
 	private static final long serialVersionUID = 1L;
 
+	private static final long THUMBNAIL_SLACK = 16L * 1024L * 1024L;
+
 	private final PolyhavenApiClient client;
 
 	private final SelectionPanel selectionPanel;
 	private final AssetListPanel assetListPanel;
+	private final AssetPreviewPanel assetPreviewPanel;
 
 	private PolyhavenBrowser() {
 		super();
@@ -30,8 +36,9 @@ public class PolyhavenBrowser extends JFrame {
 		splitPane.setBottomComponent(assetListPanel = new AssetListPanel(this));
 		splitPane.setTopComponent(selectionPanel = new SelectionPanel(this));
 		add(splitPane, BorderLayout.CENTER);
+		add(assetPreviewPanel = new AssetPreviewPanel(this), BorderLayout.EAST);
 
-		setPreferredSize(new Dimension(640, 480));
+		setPreferredSize(new Dimension(960, 480));
 		pack();
 		setResizable(true);
 		setLocationRelativeTo(null);
@@ -69,12 +76,28 @@ public class PolyhavenBrowser extends JFrame {
 		return assetListPanel;
 	}
 
+	public AssetPreviewPanel getAssetPreviewPanel() {
+		return assetPreviewPanel;
+	}
+
 	public static void main(String[] args) throws Exception {
 		try {
 			UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
 		} catch (Exception e) {
 		}
+		openThumbnailStore();
 		new PolyhavenBrowser();
 	}
 
+	private static void openThumbnailStore() {
+		try {
+			ThumbnailStore store = ThumbnailStore
+					.open(Paths.get(System.getProperty("user.home"), ".polyhaven", "thumbnails"));
+			if (store.getSlabBytes() > 2L * store.getLiveBytes() + THUMBNAIL_SLACK)
+				store.compact();
+			ImageLoader.setStore(store);
+		} catch (Exception e) {
+		}
+	}
+
 }
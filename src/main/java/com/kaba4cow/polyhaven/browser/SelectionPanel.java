@@ -80,6 +80,7 @@ public class SelectionPanel extends JPanel implements ItemListener, CategoryTabl
 	}
 
 	public void updateAsset() {
+		browser.getAssetPreviewPanel().setAsset(browser.getAssetListPanel().getSelectedAsset());
 	}
 
 	@Override
@@ -0,0 +1,168 @@
+package com.kaba4cow.polyhaven.browser.imageloader;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ImageCache {
+
+	private final long maxBytes;
+	private final LinkedHashMap<String, Entry> entries;
+	private final Map<String, SoftEntry> softEntries;
+	private final ReferenceQueue<ImageCollection> queue;
+
+	private long bytes;
+	private long hits;
+	private long softHits;
+	private long misses;
+	private long evictions;
+
+	public ImageCache(long maxBytes) {
+		if (maxBytes <= 0L)
+			throw new IllegalArgumentException("maxBytes must be positive");
+		this.maxBytes = maxBytes;
+		this.entries = new LinkedHashMap<>();
+		this.softEntries = new HashMap<>();
+		this.queue = new ReferenceQueue<>();
+		this.bytes = 0L;
+	}
+
+	public synchronized ImageCollection get(String key) {
+		expungeSoftEntries();
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			entries.put(key, entry);
+			hits++;
+			int weight = entry.image.getByteSize();
+			bytes += weight - entry.weight;
+			entry.weight = weight;
+			evict();
+			return entry.image;
+		}
+		SoftEntry softEntry = softEntries.remove(key);
+		ImageCollection image = softEntry == null ? null : softEntry.get();
+		if (image == null) {
+			misses++;
+			return null;
+		}
+		softHits++;
+		insert(key, image);
+		return image;
+	}
+
+	synchronized ImageCollection peek(String key) {
+		Entry entry = entries.get(key);
+		if (entry != null)
+			return entry.image;
+		SoftEntry softEntry = softEntries.get(key);
+		return softEntry == null ? null : softEntry.get();
+	}
+
+	public synchronized void put(String key, ImageCollection image) {
+		expungeSoftEntries();
+		softEntries.remove(key);
+		Entry entry = entries.remove(key);
+		if (entry != null)
+			bytes -= entry.weight;
+		insert(key, image);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		softEntries.clear();
+		bytes = 0L;
+	}
+
+	private void insert(String key, ImageCollection image) {
+		Entry entry = new Entry(image);
+		entries.put(key, entry);
+		bytes += entry.weight;
+		evict();
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (bytes > maxBytes && entries.size() > 1 && iterator.hasNext()) {
+			Map.Entry<String, Entry> eldest = iterator.next();
+			iterator.remove();
+			bytes -= eldest.getValue().weight;
+			evictions++;
+			softEntries.put(eldest.getKey(), new SoftEntry(eldest.getKey(), eldest.getValue().image, queue));
+		}
+	}
+
+	private void expungeSoftEntries() {
+		SoftEntry entry;
+		while ((entry = (SoftEntry) queue.poll()) != null)
+			if (softEntries.get(entry.key) == entry)
+				softEntries.remove(entry.key);
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	public synchronized int getSoftSize() {
+		expungeSoftEntries();
+		return softEntries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getSoftHits() {
+		return softHits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%s [bytes=%d/%d, size=%d, softSize=%d, hits=%d, softHits=%d, misses=%d, evictions=%d]",
+				getClass().getName(), bytes, maxBytes, entries.size(), getSoftSize(), hits, softHits, misses,
+				evictions);
+	}
+
+	private static class Entry {
+
+		private final ImageCollection image;
+
+		private int weight;
+
+		private Entry(ImageCollection image) {
+			this.image = image;
+			this.weight = image.getByteSize();
+		}
+
+	}
+
+	private static class SoftEntry extends SoftReference<ImageCollection> {
+
+		private final String key;
+
+		private SoftEntry(String key, ImageCollection image, ReferenceQueue<ImageCollection> queue) {
+			super(image, queue);
+			this.key = key;
+		}
+
+	}
+
+}
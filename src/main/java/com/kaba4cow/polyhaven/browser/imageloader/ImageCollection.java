@@ -1,34 +1,68 @@
 package com.kaba4cow.polyhaven.browser.imageloader;
 
-import java.awt.Image;
-import java.util.HashMap;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ImageCollection {
 
-	private final Image originalImage;
-	private final Map<Integer, Image> scaledImages;
+	private final Map<Integer, BufferedImage> scaledImages;
 
-	public ImageCollection(Image image) {
+	private volatile BufferedImage originalImage;
+
+	public ImageCollection(BufferedImage image) {
 		if (image == null)
 			throw new IllegalArgumentException("image cannot be null");
 		this.originalImage = image;
-		this.scaledImages = new HashMap<>();
+		this.scaledImages = new ConcurrentHashMap<>();
+	}
+
+	public ImageCollection(Map<Integer, BufferedImage> scaledImages) {
+		if (scaledImages.isEmpty())
+			throw new IllegalArgumentException("scaledImages cannot be empty");
+		this.originalImage = null;
+		this.scaledImages = new ConcurrentHashMap<>(scaledImages);
+	}
+
+	public BufferedImage getOriginalImage() {
+		BufferedImage image = originalImage;
+		return image == null ? getLargestScaledImage() : image;
+	}
+
+	public BufferedImage getScaledImage(int height) {
+		return scaledImages.computeIfAbsent(height, key -> {
+			BufferedImage source = getOriginalImage();
+			int width = Math.max(1, (source.getWidth() * height) / source.getHeight());
+			return ImageScaler.scale(source, width, height);
+		});
+	}
+
+	public void releaseOriginalImage() {
+		if (!scaledImages.isEmpty())
+			originalImage = null;
+	}
+
+	public int getByteSize() {
+		int size = getByteSize(originalImage);
+		for (BufferedImage image : scaledImages.values())
+			size += getByteSize(image);
+		return size;
 	}
 
-	public Image getOriginalImage() {
-		return originalImage;
+	private BufferedImage getLargestScaledImage() {
+		BufferedImage largest = null;
+		for (BufferedImage image : scaledImages.values())
+			if (largest == null || image.getHeight() > largest.getHeight())
+				largest = image;
+		return largest;
 	}
 
-	public Image getScaledImage(int height) {
-		if (scaledImages.containsKey(height))
-			return scaledImages.get(height);
-		else {
-			int width = (originalImage.getWidth(null) * height) / originalImage.getHeight(null);
-			Image scaledImage = originalImage.getScaledInstance(width, height, Image.SCALE_SMOOTH);
-			scaledImages.put(height, scaledImage);
-			return scaledImage;
-		}
+	private static int getByteSize(BufferedImage image) {
+		if (image == null || image.getRaster().getDataBuffer() instanceof MappedDataBuffer)
+			return 0;
+		DataBuffer buffer = image.getRaster().getDataBuffer();
+		return buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
 	}
 
-}
\ No newline at end of file
+}
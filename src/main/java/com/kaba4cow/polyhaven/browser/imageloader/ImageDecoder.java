@@ -0,0 +1,71 @@
+package com.kaba4cow.polyhaven.browser.imageloader;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageReader;
+import javax.imageio.spi.IIORegistry;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import com.kaba4cow.polyhaven.api.client.http.HttpResponse;
+
+public class ImageDecoder {
+
+	private static final ThreadLocal<Map<ImageReaderSpi, ImageReader>> readers = ThreadLocal.withInitial(HashMap::new);
+
+	private ImageDecoder() {
+	}
+
+	public static BufferedImage decode(byte[] data) throws IOException {
+		return decode(data, 0);
+	}
+
+	public static BufferedImage decode(byte[] data, int height) throws IOException {
+		try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+			ImageReader reader = getReader(input);
+			try {
+				reader.setInput(input, true, true);
+				return reader.read(0, HttpResponse.getReadParam(reader, 0, height, null));
+			} finally {
+				reader.setInput(null);
+			}
+		}
+	}
+
+	public static Dimension getSize(byte[] data) throws IOException {
+		try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+			ImageReader reader = getReader(input);
+			try {
+				reader.setInput(input, true, true);
+				return new Dimension(reader.getWidth(0), reader.getHeight(0));
+			} finally {
+				reader.setInput(null);
+			}
+		}
+	}
+
+	private static ImageReader getReader(ImageInputStream input) throws IOException {
+		Iterator<ImageReaderSpi> providers = IIORegistry.getDefaultInstance()
+				.getServiceProviders(ImageReaderSpi.class, true);
+		while (providers.hasNext()) {
+			ImageReaderSpi provider = providers.next();
+			if (provider.canDecodeInput(input)) {
+				Map<ImageReaderSpi, ImageReader> pool = readers.get();
+				ImageReader reader = pool.get(provider);
+				if (reader == null)
+					pool.put(provider, reader = provider.createReaderInstance());
+				return reader;
+			}
+		}
+		throw new IIOException("Unsupported image format");
+	}
+
+}
@@ -1,48 +1,389 @@
 package com.kaba4cow.polyhaven.browser.imageloader;
 
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.Set;
+import java.util.function.ToIntFunction;
 
 import javax.swing.SwingUtilities;
 
-import com.kaba4cow.polyhaven.api.client.http.HttpResponse;
-
 public class ImageLoader {
 
-	private static final Map<String, ImageCollection> images = new ConcurrentHashMap<>();
-	private static final ExecutorService executor = Executors.newFixedThreadPool(2);
-	private static final Map<String, Future<?>> futures = new ConcurrentHashMap<>();
+	private static final int FETCH_THREADS = 8;
+	private static final int DECODE_THREADS = Runtime.getRuntime().availableProcessors();
+	private static final int SCALE_THREADS = Math.max(1, DECODE_THREADS / 2);
+	private static final int QUEUE_CAPACITY = 32;
+	private static final int CANCEL_DISTANCE = 256;
+	private static final long CACHE_SIZE = 64L * 1024L * 1024L;
+	private static final long FAILURE_TTL = 60L * 1000L * 1000L * 1000L;
+
+	private static final ImageCache cache = new ImageCache(CACHE_SIZE);
+	private static final ThumbnailFetcher fetcher = new ThumbnailFetcher();
+	private static final Map<String, Request> requests = new LinkedHashMap<>();
+	private static final Map<String, Long> failures = new LinkedHashMap<>();
+	private static final Object lock = new Object();
+
+	private static final StageMetrics fetchMetrics = new StageMetrics("fetch", ImageLoader::getPendingRequests);
+	private static final PipelineStage decodeStage = new PipelineStage("decode", DECODE_THREADS, QUEUE_CAPACITY);
+	private static final PipelineStage scaleStage = new PipelineStage("scale", SCALE_THREADS, QUEUE_CAPACITY);
+
+	private static volatile ThumbnailStore store = null;
+	private static ToIntFunction<String> distance = url -> 0;
+	private static long sequence = 0L;
+
+	static {
+		for (int i = 0; i < FETCH_THREADS; i++) {
+			Thread thread = new Thread(ImageLoader::fetch, "fetch-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
 
 	private ImageLoader() {
 	}
 
+	public static ImageCollection getImage(String url) {
+		return cache.get(url);
+	}
+
+	public static boolean hasImage(String url) {
+		return cache.peek(url) != null;
+	}
+
 	public static void loadImage(String url, ImageLoaderListener listener) {
-		if (images.containsKey(url))
-			listener.imageLoaded(images.get(url));
-		else if (!futures.containsKey(url)) {
-			Future<?> future = executor.submit(() -> {
-				futures.remove(url);
-				try {
-					if (Thread.currentThread().isInterrupted())
-						return;
-					ImageCollection image = new ImageCollection(new HttpResponse(url).getImage());
-					images.put(url, image);
-					SwingUtilities.invokeLater(() -> listener.imageLoaded(image));
-				} catch (Exception e) {
-					SwingUtilities.invokeLater(() -> listener.imageLoaded(null));
+		loadImage(url, 0, listener);
+	}
+
+	public static void loadImage(String url, int height, ImageLoaderListener listener) {
+		loadImage(url, null, height, listener);
+	}
+
+	public static void loadImage(String url, String version, int height, ImageLoaderListener listener) {
+		ImageCollection image = cache.peek(url);
+		if (image == null)
+			synchronized (lock) {
+				image = cache.peek(url);
+				if (image == null && !hasFailed(url)) {
+					Request request = requests.get(url);
+					if (request == null) {
+						requests.put(url, request = new Request(url, sequence++));
+						lock.notify();
+					}
+					request.cancelled = false;
+					request.listeners.add(listener);
+					if (height > 0)
+						request.heights.add(height);
+					else
+						request.subsample = false;
+					if (version != null)
+						request.version = version;
+					return;
 				}
-			});
-			futures.put(url, future);
+			}
+		listener.imageLoaded(image);
+	}
+
+	private static ImageCollection loadStoredImage(Request request) {
+		ThumbnailStore store = ImageLoader.store;
+		String version;
+		List<Integer> heights;
+		synchronized (lock) {
+			version = request.version;
+			heights = request.subsample ? new ArrayList<>(request.heights) : Collections.emptyList();
+		}
+		if (store == null || version == null || heights.isEmpty())
+			return null;
+		Map<Integer, BufferedImage> images = new HashMap<>();
+		try {
+			for (int height : heights) {
+				BufferedImage image = store.get(request.url, version, height);
+				if (image == null)
+					return null;
+				images.put(height, image);
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		return new ImageCollection(images);
+	}
+
+	private static void storeImage(Request request, ImageCollection collection, List<Integer> heights) {
+		ThumbnailStore store = ImageLoader.store;
+		String version;
+		synchronized (lock) {
+			version = request.version;
+		}
+		if (store != null && version != null)
+			try {
+				for (int height : heights)
+					store.put(request.url, version, height, collection.getScaledImage(height));
+			} catch (IOException e) {
+			}
+	}
+
+	public static void setStore(ThumbnailStore store) {
+		ImageLoader.store = store;
+	}
+
+	public static ThumbnailStore getStore() {
+		return store;
+	}
+
+	public static void setDistance(ToIntFunction<String> distance) {
+		synchronized (lock) {
+			ImageLoader.distance = distance;
+			Iterator<Request> iterator = requests.values().iterator();
+			while (iterator.hasNext()) {
+				Request request = iterator.next();
+				if (distance.applyAsInt(request.url) <= CANCEL_DISTANCE)
+					continue;
+				else if (request.running)
+					request.cancelled = true;
+				else
+					iterator.remove();
+			}
 		}
 	}
 
 	public static void cancelLoading() {
-		for (Future<?> future : futures.values())
-			future.cancel(true);
-		futures.clear();
+		synchronized (lock) {
+			Iterator<Request> iterator = requests.values().iterator();
+			while (iterator.hasNext()) {
+				Request request = iterator.next();
+				if (request.running)
+					request.cancelled = true;
+				else
+					iterator.remove();
+			}
+		}
+	}
+
+	public static ImageCache getCache() {
+		return cache;
+	}
+
+	public static ThumbnailFetcher getFetcher() {
+		return fetcher;
+	}
+
+	public static List<StageMetrics> getMetrics() {
+		return Collections
+				.unmodifiableList(Arrays.asList(fetchMetrics, decodeStage.getMetrics(), scaleStage.getMetrics()));
+	}
+
+	private static int getPendingRequests() {
+		synchronized (lock) {
+			int pending = 0;
+			for (Request request : requests.values())
+				if (!request.running)
+					pending++;
+			return pending;
+		}
+	}
+
+	private static boolean hasFailed(String url) {
+		Long expiry = failures.get(url);
+		if (expiry == null)
+			return false;
+		else if (expiry - System.nanoTime() > 0L)
+			return true;
+		failures.remove(url);
+		return false;
+	}
+
+	private static boolean isCancelled(Request request) {
+		synchronized (lock) {
+			return request.cancelled;
+		}
+	}
+
+	private static Request nextRequest() {
+		Request next = null;
+		int nextDistance = Integer.MAX_VALUE;
+		for (Request request : requests.values()) {
+			if (request.running)
+				continue;
+			int requestDistance = distance.applyAsInt(request.url);
+			if (next == null || requestDistance < nextDistance
+					|| requestDistance == nextDistance && request.sequence < next.sequence) {
+				next = request;
+				nextDistance = requestDistance;
+			}
+		}
+		return next;
+	}
+
+	private static void fetch() {
+		while (true) {
+			Request request;
+			synchronized (lock) {
+				try {
+					while ((request = nextRequest()) == null)
+						lock.wait();
+				} catch (InterruptedException e) {
+					return;
+				}
+				request.running = true;
+			}
+			long start = System.nanoTime();
+			byte[] data = null;
+			try {
+				ImageCollection stored = loadStoredImage(request);
+				if (stored != null) {
+					fetchMetrics.record(start - request.submitTime, System.nanoTime() - start, false);
+					complete(request, stored);
+					continue;
+				}
+				data = download(request);
+			} catch (Throwable e) {
+				fail(request);
+			}
+			fetchMetrics.record(start - request.submitTime, System.nanoTime() - start, data == null);
+			if (data != null && isCancelled(request))
+				complete(request, null);
+			else if (data != null)
+				try {
+					decodeStage.submit(decode(request, data));
+				} catch (InterruptedException e) {
+					complete(request, null);
+					return;
+				}
+		}
+	}
+
+	private static byte[] download(Request request) throws IOException {
+		int height = 0;
+		synchronized (lock) {
+			if (request.subsample)
+				for (int requested : request.heights)
+					height = Math.max(height, requested);
+		}
+		return fetcher.fetch(request.url, height);
+	}
+
+	private static PipelineStage.StageTask decode(Request request, byte[] data) {
+		return () -> {
+			if (isCancelled(request)) {
+				complete(request, null);
+				return;
+			}
+			int height = 0;
+			synchronized (lock) {
+				if (request.subsample)
+					for (int requested : request.heights)
+						height = Math.max(height, requested);
+			}
+			BufferedImage image;
+			try {
+				image = ImageDecoder.decode(data, height);
+			} catch (Throwable e) {
+				fail(request);
+				throw e;
+			}
+			if (image == null) {
+				fail(request);
+				throw new IOException("Could not decode " + request.url);
+			}
+			try {
+				scaleStage.submit(scale(request, image));
+			} catch (InterruptedException e) {
+				complete(request, null);
+				throw e;
+			}
+		};
+	}
+
+	private static PipelineStage.StageTask scale(Request request, BufferedImage image) {
+		return () -> {
+			if (isCancelled(request)) {
+				complete(request, null);
+				return;
+			}
+			ImageCollection collection = new ImageCollection(image);
+			List<Integer> heights = new ArrayList<>();
+			try {
+				while (true) {
+					List<Integer> pending;
+					synchronized (lock) {
+						pending = new ArrayList<>(request.heights);
+					}
+					pending.removeAll(heights);
+					if (pending.isEmpty())
+						break;
+					for (int height : pending)
+						collection.getScaledImage(height);
+					heights.addAll(pending);
+				}
+				collection.releaseOriginalImage();
+				storeImage(request, collection, heights);
+			} catch (Throwable e) {
+				fail(request);
+				throw e;
+			}
+			complete(request, collection);
+		};
+	}
+
+	private static void fail(Request request) {
+		synchronized (lock) {
+			long now = System.nanoTime();
+			Iterator<Long> iterator = failures.values().iterator();
+			while (iterator.hasNext() && iterator.next() - now <= 0L)
+				iterator.remove();
+			failures.remove(request.url);
+			failures.put(request.url, now + FAILURE_TTL);
+		}
+		complete(request, null);
+	}
+
+	private static void complete(Request request, ImageCollection image) {
+		List<ImageLoaderListener> listeners;
+		synchronized (lock) {
+			if (image != null)
+				cache.put(request.url, image);
+			requests.remove(request.url);
+			listeners = new ArrayList<>(request.listeners);
+		}
+		SwingUtilities.invokeLater(() -> {
+			for (ImageLoaderListener listener : listeners)
+				listener.imageLoaded(image);
+		});
+	}
+
+	private static class Request {
+
+		private final String url;
+		private final long sequence;
+		private final long submitTime;
+		private final Set<ImageLoaderListener> listeners;
+		private final Set<Integer> heights;
+
+		private String version;
+		private boolean subsample;
+		private boolean running;
+		private boolean cancelled;
+
+		private Request(String url, long sequence) {
+			this.url = url;
+			this.sequence = sequence;
+			this.submitTime = System.nanoTime();
+			this.listeners = new LinkedHashSet<>();
+			this.heights = new LinkedHashSet<>();
+			this.version = null;
+			this.subsample = true;
+			this.running = false;
+			this.cancelled = false;
+		}
+
 	}
 
 }
@@ -0,0 +1,89 @@
+package com.kaba4cow.polyhaven.browser.imageloader;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+public class ImageScaler {
+
+	private ImageScaler() {
+	}
+
+	public static BufferedImage scale(BufferedImage source, int width, int height) {
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("width and height must be positive");
+		boolean opaque = source.getTransparency() == Transparency.OPAQUE;
+		BufferedImage image = toIntImage(source, opaque);
+		while (image.getWidth() >= 2 * width && image.getHeight() >= 2 * height)
+			image = halve(image, opaque);
+		BufferedImage target = createCompatibleImage(width, height, opaque);
+		Graphics2D graphics = target.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		graphics.drawImage(image, 0, 0, width, height, null);
+		graphics.dispose();
+		return target;
+	}
+
+	private static BufferedImage halve(BufferedImage source, boolean opaque) {
+		int sourceWidth = source.getWidth();
+		int width = sourceWidth / 2;
+		int height = source.getHeight() / 2;
+		int[] sourcePixels = getPixels(source);
+		BufferedImage target = new BufferedImage(width, height, source.getType());
+		int[] targetPixels = getPixels(target);
+		for (int y = 0; y < height; y++) {
+			int row0 = 2 * y * sourceWidth;
+			int row1 = row0 + sourceWidth;
+			int targetRow = y * width;
+			for (int x = 0; x < width; x++) {
+				int p00 = sourcePixels[row0 + 2 * x];
+				int p01 = sourcePixels[row0 + 2 * x + 1];
+				int p10 = sourcePixels[row1 + 2 * x];
+				int p11 = sourcePixels[row1 + 2 * x + 1];
+				int a = opaque ? 0xFF : average(p00, p01, p10, p11, 24);
+				int r = average(p00, p01, p10, p11, 16);
+				int g = average(p00, p01, p10, p11, 8);
+				int b = average(p00, p01, p10, p11, 0);
+				targetPixels[targetRow + x] = a << 24 | r << 16 | g << 8 | b;
+			}
+		}
+		return target;
+	}
+
+	private static int average(int p00, int p01, int p10, int p11, int shift) {
+		int sum = (p00 >>> shift & 0xFF) + (p01 >>> shift & 0xFF) + (p10 >>> shift & 0xFF) + (p11 >>> shift & 0xFF);
+		return (sum + 2) >>> 2;
+	}
+
+	private static BufferedImage toIntImage(BufferedImage source, boolean opaque) {
+		int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE;
+		if (source.getType() == type && source.getRaster().getDataBuffer().getSize() == source.getWidth()
+				* source.getHeight())
+			return source;
+		BufferedImage image = new BufferedImage(source.getWidth(), source.getHeight(), type);
+		Graphics2D graphics = image.createGraphics();
+		graphics.drawImage(source, 0, 0, null);
+		graphics.dispose();
+		return image;
+	}
+
+	private static int[] getPixels(BufferedImage image) {
+		return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+
+	private static BufferedImage createCompatibleImage(int width, int height, boolean opaque) {
+		if (GraphicsEnvironment.isHeadless())
+			return new BufferedImage(width, height,
+					opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+		GraphicsConfiguration configuration = GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.getDefaultScreenDevice().getDefaultConfiguration();
+		return configuration.createCompatibleImage(width, height,
+				opaque ? Transparency.OPAQUE : Transparency.TRANSLUCENT);
+	}
+
+}
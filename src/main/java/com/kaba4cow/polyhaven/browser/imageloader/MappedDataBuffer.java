@@ -0,0 +1,25 @@
+package com.kaba4cow.polyhaven.browser.imageloader;
+
+import java.awt.image.DataBuffer;
+import java.nio.IntBuffer;
+
+public class MappedDataBuffer extends DataBuffer {
+
+	private final IntBuffer buffer;
+
+	public MappedDataBuffer(IntBuffer buffer) {
+		super(DataBuffer.TYPE_INT, buffer.remaining());
+		this.buffer = buffer.slice();
+	}
+
+	@Override
+	public int getElem(int bank, int i) {
+		return buffer.get(offset + i);
+	}
+
+	@Override
+	public void setElem(int bank, int i, int value) {
+		buffer.put(offset + i, value);
+	}
+
+}
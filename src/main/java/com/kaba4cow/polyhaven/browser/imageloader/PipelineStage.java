@@ -0,0 +1,67 @@
+package com.kaba4cow.polyhaven.browser.imageloader;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class PipelineStage {
+
+	private final BlockingQueue<Task> queue;
+	private final StageMetrics metrics;
+
+	public PipelineStage(String name, int threads, int capacity) {
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.metrics = new StageMetrics(name, queue::size);
+		for (int i = 0; i < threads; i++) {
+			Thread thread = new Thread(this::work, name + "-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	public void submit(StageTask task) throws InterruptedException {
+		queue.put(new Task(task));
+	}
+
+	public StageMetrics getMetrics() {
+		return metrics;
+	}
+
+	private void work() {
+		while (true) {
+			Task task;
+			try {
+				task = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			long start = System.nanoTime();
+			boolean failed = false;
+			try {
+				task.task.run();
+			} catch (Throwable e) {
+				failed = true;
+			}
+			long end = System.nanoTime();
+			metrics.record(start - task.submitTime, end - start, failed);
+		}
+	}
+
+	public static interface StageTask {
+
+		public void run() throws Exception;
+
+	}
+
+	private static class Task {
+
+		private final StageTask task;
+		private final long submitTime;
+
+		private Task(StageTask task) {
+			this.task = task;
+			this.submitTime = System.nanoTime();
+		}
+
+	}
+
+}
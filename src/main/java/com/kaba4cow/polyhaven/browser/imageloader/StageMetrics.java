@@ -0,0 +1,66 @@
+package com.kaba4cow.polyhaven.browser.imageloader;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+public class StageMetrics {
+
+	private final String name;
+	private final IntSupplier queueDepth;
+	private final AtomicLong completedTasks;
+	private final AtomicLong failedTasks;
+	private final AtomicLong waitNanos;
+	private final AtomicLong serviceNanos;
+
+	public StageMetrics(String name, IntSupplier queueDepth) {
+		this.name = name;
+		this.queueDepth = queueDepth;
+		this.completedTasks = new AtomicLong();
+		this.failedTasks = new AtomicLong();
+		this.waitNanos = new AtomicLong();
+		this.serviceNanos = new AtomicLong();
+	}
+
+	public void record(long waitNanos, long serviceNanos, boolean failed) {
+		this.waitNanos.addAndGet(waitNanos);
+		this.serviceNanos.addAndGet(serviceNanos);
+		if (failed)
+			failedTasks.incrementAndGet();
+		else
+			completedTasks.incrementAndGet();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getQueueDepth() {
+		return queueDepth.getAsInt();
+	}
+
+	public long getCompletedTasks() {
+		return completedTasks.get();
+	}
+
+	public long getFailedTasks() {
+		return failedTasks.get();
+	}
+
+	public double getAverageWaitMillis() {
+		long tasks = completedTasks.get() + failedTasks.get();
+		return tasks == 0L ? 0d : waitNanos.get() / 1000000d / tasks;
+	}
+
+	public double getAverageServiceMillis() {
+		long tasks = completedTasks.get() + failedTasks.get();
+		return tasks == 0L ? 0d : serviceNanos.get() / 1000000d / tasks;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [queue=%d, completed=%d, failed=%d, wait=%.2fms, service=%.2fms]", name,
+				getQueueDepth(), getCompletedTasks(), getFailedTasks(), getAverageWaitMillis(),
+				getAverageServiceMillis());
+	}
+
+}
@@ -0,0 +1,273 @@
+package com.kaba4cow.polyhaven.browser.imageloader;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.kaba4cow.polyhaven.api.client.http.HttpResponse;
+
+public class ThumbnailFetcher {
+
+	private static final int RESPONSE_OK = 200;
+	private static final int RESPONSE_PARTIAL_CONTENT = 206;
+
+	private static final int PROBE_INTERVAL = 32;
+	private static final double IGNORED_RATIO = 2d;
+	private static final int MAX_FAILURES = 3;
+	private static final long RETRY_DELAY = 10L * 60L * 1000L * 1000L * 1000L;
+
+	private final Map<String, Host> hosts;
+	private final ExecutorService probes;
+
+	private final AtomicLong requests;
+	private final AtomicLong sizedRequests;
+	private final AtomicLong fallbacks;
+	private final AtomicLong transferredBytes;
+	private final AtomicLong estimatedBytes;
+
+	public ThumbnailFetcher() {
+		hosts = new ConcurrentHashMap<>();
+		probes = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "thumbnail-probe");
+			thread.setDaemon(true);
+			return thread;
+		});
+		requests = new AtomicLong();
+		sizedRequests = new AtomicLong();
+		fallbacks = new AtomicLong();
+		transferredBytes = new AtomicLong();
+		estimatedBytes = new AtomicLong();
+	}
+
+	public byte[] fetch(String url, int height) throws IOException {
+		requests.incrementAndGet();
+		Host host = hosts.computeIfAbsent(getHost(url), name -> new Host());
+		boolean sizedFailed = false;
+		if (height > 0 && host.useSized()) {
+			HttpResponse response = new HttpResponse(getSizedUrl(url, 0, height));
+			if (response.getCode() == RESPONSE_OK) {
+				byte[] data = read(response);
+				sizedRequests.incrementAndGet();
+				if (host.mode != Mode.SIZED && ignoresSize(data, height))
+					host.demote();
+				else
+					host.promote();
+				if (host.mode == Mode.SIZED && host.nextProbe())
+					probes.execute(() -> probe(host, url, data.length));
+				estimatedBytes.addAndGet(host.estimate(data.length));
+				return data;
+			}
+			response.disconnect();
+			fallbacks.incrementAndGet();
+			sizedFailed = true;
+		}
+		byte[] data = read(openPlain(url));
+		if (sizedFailed)
+			host.recordFailure();
+		estimatedBytes.addAndGet(data.length);
+		return data;
+	}
+
+	public HttpResponse open(String url, int width, int height) throws IOException {
+		requests.incrementAndGet();
+		Host host = hosts.computeIfAbsent(getHost(url), name -> new Host());
+		boolean sizedFailed = false;
+		if ((width > 0 || height > 0) && host.useSized()) {
+			HttpResponse response = new HttpResponse(getSizedUrl(url, width, height));
+			if (response.getCode() == RESPONSE_OK) {
+				sizedRequests.incrementAndGet();
+				return response;
+			}
+			response.disconnect();
+			fallbacks.incrementAndGet();
+			sizedFailed = true;
+		}
+		HttpResponse response = openPlain(url);
+		if (sizedFailed)
+			host.recordFailure();
+		return response;
+	}
+
+	private static HttpResponse openPlain(String url) throws IOException {
+		HttpResponse response = new HttpResponse(url);
+		if (response.getCode() != RESPONSE_OK) {
+			response.disconnect();
+			throw new IOException("Unexpected response code " + response.getCode());
+		}
+		return response;
+	}
+
+	private byte[] read(HttpResponse response) throws IOException {
+		try (InputStream input = response.getInputStream()) {
+			byte[] data = input.readAllBytes();
+			transferredBytes.addAndGet(data.length);
+			return data;
+		}
+	}
+
+	private static boolean ignoresSize(byte[] data, int height) {
+		try {
+			Dimension size = ImageDecoder.getSize(data);
+			return size.height > IGNORED_RATIO * height;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static void probe(Host host, String url, long sizedBytes) {
+		try {
+			HttpResponse response = new HttpResponse(url, Collections.singletonMap("Range", "bytes=0-0"));
+			try {
+				long plainBytes = -1L;
+				String range = response.getHeader("Content-Range");
+				if (response.getCode() == RESPONSE_PARTIAL_CONTENT && range != null && range.indexOf('/') >= 0)
+					plainBytes = Long.parseLong(range.substring(range.indexOf('/') + 1).trim());
+				else if (response.getCode() == RESPONSE_OK)
+					plainBytes = response.getContentLength();
+				if (plainBytes > 0L)
+					host.record(plainBytes, sizedBytes);
+			} finally {
+				response.disconnect();
+			}
+		} catch (IOException | NumberFormatException e) {
+		}
+	}
+
+	private static String getHost(String url) {
+		try {
+			String host = URI.create(url).getAuthority();
+			return host == null ? "" : host;
+		} catch (IllegalArgumentException e) {
+			return "";
+		}
+	}
+
+	public static String getSizedUrl(String url, int width, int height) {
+		int query = url.indexOf('?');
+		StringBuilder builder = new StringBuilder(query < 0 ? url : url.substring(0, query));
+		char separator = '?';
+		if (query >= 0)
+			for (String parameter : url.substring(query + 1).split("&"))
+				if (!parameter.isEmpty() && !parameter.startsWith("width=") && !parameter.startsWith("height=")) {
+					builder.append(separator).append(parameter);
+					separator = '&';
+				}
+		if (width > 0) {
+			builder.append(separator).append("width=").append(width);
+			separator = '&';
+		}
+		if (height > 0)
+			builder.append(separator).append("height=").append(height);
+		return builder.toString();
+	}
+
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	public long getSizedRequestCount() {
+		return sizedRequests.get();
+	}
+
+	public long getFallbackCount() {
+		return fallbacks.get();
+	}
+
+	public long getTransferredBytes() {
+		return transferredBytes.get();
+	}
+
+	public long getEstimatedBytes() {
+		return estimatedBytes.get();
+	}
+
+	public long getSavedBytes() {
+		return Math.max(0L, estimatedBytes.get() - transferredBytes.get());
+	}
+
+	public double getSavedRatio() {
+		long estimated = estimatedBytes.get();
+		return estimated == 0L ? 0d : (double) getSavedBytes() / estimated;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [requests=%d, sized=%d, fallbacks=%d, transferred=%d, estimated=%d, saved=%d]",
+				getClass().getName(), requests.get(), sizedRequests.get(), fallbacks.get(), transferredBytes.get(),
+				estimatedBytes.get(), getSavedBytes());
+	}
+
+	private enum Mode {
+		UNKNOWN, SIZED, PLAIN
+	}
+
+	private static class Host {
+
+		private volatile Mode mode;
+
+		private int failures;
+		private long retryTime;
+		private long responses;
+		private long probedPlainBytes;
+		private long probedSizedBytes;
+
+		private Host() {
+			this.mode = Mode.UNKNOWN;
+			this.failures = 0;
+			this.retryTime = 0L;
+			this.responses = 0L;
+			this.probedPlainBytes = 0L;
+			this.probedSizedBytes = 0L;
+		}
+
+		private synchronized boolean useSized() {
+			if (mode != Mode.PLAIN)
+				return true;
+			long now = System.nanoTime();
+			if (now - retryTime < 0L)
+				return false;
+			retryTime = now + RETRY_DELAY;
+			return true;
+		}
+
+		private synchronized void promote() {
+			mode = Mode.SIZED;
+			failures = 0;
+		}
+
+		private synchronized void demote() {
+			mode = Mode.PLAIN;
+			failures = 0;
+			retryTime = System.nanoTime() + RETRY_DELAY;
+		}
+
+		private synchronized void recordFailure() {
+			if (++failures >= MAX_FAILURES)
+				demote();
+		}
+
+		private synchronized boolean nextProbe() {
+			return responses++ % PROBE_INTERVAL == 0L;
+		}
+
+		private synchronized void record(long plainBytes, long sizedBytes) {
+			probedPlainBytes += plainBytes;
+			probedSizedBytes += sizedBytes;
+		}
+
+		private synchronized long estimate(long sizedBytes) {
+			if (probedSizedBytes == 0L)
+				return sizedBytes;
+			return Math.max(sizedBytes, Math.round((double) sizedBytes * probedPlainBytes / probedSizedBytes));
+		}
+
+	}
+
+}
@@ -0,0 +1,337 @@
+package com.kaba4cow.polyhaven.browser.imageloader;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+public class ThumbnailStore {
+
+	private static final int MAGIC = 0x50485453;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	private static final DirectColorModel COLOR_MODEL = new DirectColorModel(32, 0x00FF0000, 0x0000FF00,
+			0x000000FF, 0xFF000000);
+
+	private final Path directory;
+	private final Path indexFile;
+	private final Map<String, Record> records;
+	private final Map<Integer, MappedByteBuffer> segments;
+
+	private long generation;
+	private FileChannel slab;
+	private FileChannel index;
+	private long slabEnd;
+	private long liveBytes;
+
+	private ThumbnailStore(Path directory) {
+		this.directory = directory;
+		this.indexFile = directory.resolve("thumbnails.index");
+		this.records = new LinkedHashMap<>();
+		this.segments = new HashMap<>();
+	}
+
+	public static ThumbnailStore open(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		ThumbnailStore store = new ThumbnailStore(directory);
+		if (Files.exists(store.indexFile) && Files.size(store.indexFile) >= HEADER_SIZE)
+			store.load();
+		else
+			store.writeHeader(store.indexFile, 0L);
+		store.deleteUnusedSlabs();
+		store.openChannels();
+		return store;
+	}
+
+	private void load() throws IOException {
+		long size = Files.size(indexFile);
+		long valid = HEADER_SIZE;
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION)
+				throw new IOException("Not a thumbnail index: " + indexFile);
+			generation = input.readLong();
+			CRC32 crc = new CRC32();
+			while (true) {
+				byte[] bytes;
+				int checksum;
+				try {
+					int length = input.readInt();
+					if (length <= 0 || length > size - valid - 8L)
+						break;
+					bytes = new byte[length];
+					input.readFully(bytes);
+					checksum = input.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				crc.reset();
+				crc.update(bytes);
+				if ((int) crc.getValue() != checksum)
+					break;
+				Record record;
+				try {
+					record = readRecord(bytes);
+				} catch (IOException e) {
+					break;
+				}
+				add(record);
+				valid += 8L + bytes.length;
+			}
+		}
+		if (valid < size)
+			try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+				channel.truncate(valid);
+			}
+	}
+
+	private void add(Record record) {
+		Record previous = records.put(record.key, record);
+		if (previous != null)
+			liveBytes -= previous.getByteSize();
+		liveBytes += record.getByteSize();
+		slabEnd = Math.max(slabEnd, record.offset + record.getByteSize());
+	}
+
+	private void writeHeader(Path target, long generation) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putLong(generation);
+		header.flip();
+		try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.write(header);
+			channel.force(true);
+		}
+	}
+
+	private Path getSlabFile(long generation) {
+		return directory.resolve("thumbnails-" + generation + ".slab");
+	}
+
+	private void deleteUnusedSlabs() throws IOException {
+		String current = getSlabFile(generation).getFileName().toString();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "thumbnails-*.slab*")) {
+			for (Path file : files)
+				if (!file.getFileName().toString().equals(current))
+					Files.deleteIfExists(file);
+		}
+	}
+
+	private void openChannels() throws IOException {
+		slab = FileChannel.open(getSlabFile(generation), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		index = FileChannel.open(indexFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		segments.clear();
+	}
+
+	public synchronized BufferedImage get(String url, String version, int height) throws IOException {
+		Record record = records.get(getKey(url, height));
+		if (record == null || !record.version.equals(version))
+			return null;
+		ByteBuffer pixels = getPixels(record.offset, record.getByteSize());
+		if (!record.verified) {
+			CRC32 crc = new CRC32();
+			crc.update(pixels.duplicate());
+			if ((int) crc.getValue() != record.checksum) {
+				records.remove(record.key);
+				liveBytes -= record.getByteSize();
+				return null;
+			}
+			record.verified = true;
+		}
+		SinglePixelPackedSampleModel sampleModel = new SinglePixelPackedSampleModel(DataBuffer.TYPE_INT,
+				record.width, record.height, COLOR_MODEL.getMasks());
+		WritableRaster raster = Raster.createWritableRaster(sampleModel, new MappedDataBuffer(pixels.asIntBuffer()),
+				null);
+		return new BufferedImage(COLOR_MODEL, raster, false, null);
+	}
+
+	public synchronized void put(String url, String version, int height, BufferedImage image) throws IOException {
+		int width = image.getWidth();
+		int size = 4 * width * image.getHeight();
+		if (size > SEGMENT_SIZE)
+			return;
+		long offset = getFreeOffset(size);
+		ByteBuffer pixels = getPixels(offset, size);
+		pixels.duplicate().asIntBuffer().put(image.getRGB(0, 0, width, image.getHeight(), null, 0, width));
+		CRC32 crc = new CRC32();
+		crc.update(pixels);
+		Record record = new Record(getKey(url, height), version, width, image.getHeight(), offset,
+				(int) crc.getValue());
+		record.verified = true;
+		append(index, record);
+		add(record);
+	}
+
+	private long getFreeOffset(int size) {
+		long offset = slabEnd;
+		if (offset % SEGMENT_SIZE + size > SEGMENT_SIZE)
+			offset = (offset / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+		return offset;
+	}
+
+	private ByteBuffer getPixels(long offset, int size) throws IOException {
+		int segmentIndex = (int) (offset / SEGMENT_SIZE);
+		MappedByteBuffer segment = segments.get(segmentIndex);
+		if (segment == null) {
+			segment = slab.map(FileChannel.MapMode.READ_WRITE, (long) segmentIndex * SEGMENT_SIZE, SEGMENT_SIZE);
+			segments.put(segmentIndex, segment);
+		}
+		ByteBuffer pixels = segment.duplicate();
+		int position = (int) (offset % SEGMENT_SIZE);
+		pixels.position(position).limit(position + size);
+		return pixels.slice();
+	}
+
+	public synchronized void compact() throws IOException {
+		long nextGeneration = generation + 1L;
+		Path slabTemp = getSlabFile(nextGeneration);
+		Path indexTemp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+		writeHeader(indexTemp, nextGeneration);
+		Map<String, Record> compacted = new LinkedHashMap<>();
+		long end = 0L;
+		try (FileChannel slabOutput = FileChannel.open(slabTemp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+				FileChannel indexOutput = FileChannel.open(indexTemp, StandardOpenOption.WRITE,
+						StandardOpenOption.APPEND)) {
+			for (Record record : records.values()) {
+				int size = record.getByteSize();
+				long offset = end;
+				if (offset % SEGMENT_SIZE + size > SEGMENT_SIZE)
+					offset = (offset / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+				ByteBuffer pixels = getPixels(record.offset, size);
+				long position = offset;
+				while (pixels.hasRemaining())
+					position += slabOutput.write(pixels, position);
+				end = offset + size;
+				Record moved = new Record(record.key, record.version, record.width, record.height, offset,
+						record.checksum);
+				moved.verified = record.verified;
+				append(indexOutput, moved);
+				compacted.put(moved.key, moved);
+			}
+			slabOutput.force(true);
+			indexOutput.force(true);
+		}
+		Files.move(indexTemp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		close();
+		Path previousSlab = getSlabFile(generation);
+		generation = nextGeneration;
+		records.clear();
+		records.putAll(compacted);
+		slabEnd = end;
+		openChannels();
+		Files.deleteIfExists(previousSlab);
+	}
+
+	public synchronized void close() throws IOException {
+		if (slab != null)
+			slab.close();
+		if (index != null)
+			index.close();
+	}
+
+	public synchronized int getSize() {
+		return records.size();
+	}
+
+	public synchronized long getLiveBytes() {
+		return liveBytes;
+	}
+
+	public synchronized long getSlabBytes() {
+		return slabEnd;
+	}
+
+	private static String getKey(String url, int height) {
+		return url + '\n' + height;
+	}
+
+	private static void append(FileChannel channel, Record record) throws IOException {
+		byte[] bytes = writeRecord(record);
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		ByteBuffer buffer = ByteBuffer.allocate(8 + bytes.length).putInt(bytes.length).put(bytes)
+				.putInt((int) crc.getValue());
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	private static byte[] writeRecord(Record record) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream output = new DataOutputStream(bytes)) {
+			output.writeUTF(record.key);
+			output.writeUTF(record.version);
+			output.writeInt(record.width);
+			output.writeInt(record.height);
+			output.writeLong(record.offset);
+			output.writeInt(record.checksum);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Record readRecord(byte[] bytes) throws IOException {
+		try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			String key = input.readUTF();
+			String version = input.readUTF();
+			int width = input.readInt();
+			int height = input.readInt();
+			long offset = input.readLong();
+			int checksum = input.readInt();
+			if (input.available() > 0 || width <= 0 || height <= 0 || offset < 0L
+					|| 4L * width * height > SEGMENT_SIZE)
+				throw new IOException("Invalid thumbnail record");
+			return new Record(key, version, width, height, offset, checksum);
+		}
+	}
+
+	private static class Record {
+
+		private final String key;
+		private final String version;
+		private final int width;
+		private final int height;
+		private final long offset;
+		private final int checksum;
+
+		private boolean verified;
+
+		private Record(String key, String version, int width, int height, long offset, int checksum) {
+			this.key = key;
+			this.version = version;
+			this.width = width;
+			this.height = height;
+			this.offset = offset;
+			this.checksum = checksum;
+			this.verified = false;
+		}
+
+		private int getByteSize() {
+			return 4 * width * height;
+		}
+
+	}
+
+}
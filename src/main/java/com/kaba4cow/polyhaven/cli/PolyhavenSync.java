@@ -0,0 +1,237 @@
+package com.kaba4cow.polyhaven.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+
+import com.kaba4cow.polyhaven.api.client.PolyhavenApiClient;
+import com.kaba4cow.polyhaven.api.client.batch.BatchFetcher;
+import com.kaba4cow.polyhaven.api.client.batch.BatchResult;
+import com.kaba4cow.polyhaven.api.client.data.assets.PolyhavenAsset;
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileTree;
+import com.kaba4cow.polyhaven.api.client.download.BundleDownloader;
+import com.kaba4cow.polyhaven.api.client.download.BundleListener;
+import com.kaba4cow.polyhaven.api.client.http.HttpException;
+import com.kaba4cow.polyhaven.api.client.selection.FileVariant;
+import com.kaba4cow.polyhaven.api.client.selection.VariantEnumerator;
+
+/**
+ * Headless command-line tool that syncs a declarative selection of Polyhaven
+ * assets to a local directory.
+ * 
+ * <p>
+ * The selection is given by asset type, categories, resolution and a list of
+ * accepted formats in order of preference. Assets are laid out as
+ * {@code output/asset/} by {@link BundleDownloader}. The files hash of every
+ * synced asset, and of every asset without a file matching the selection, is
+ * recorded in {@code output/.polyhaven-sync.json}, and assets whose files hash
+ * and selection did not change since the last sync are skipped without
+ * fetching their file trees. File trees are fetched and files are downloaded
+ * in parallel. At the end, statistics about the sync are written
+ * as JSON to standard output or to the file given with {@code --stats}.
+ * </p>
+ * 
+ * <pre>
+ * PolyhavenSync --output DIR [--type all] [--categories a,b] [--resolution 2k]
+ *               [--formats jpg,png] [--parallelism 8] [--url URL,...] [--stats FILE]
+ * </pre>
+ */
+public class PolyhavenSync {
+
+	private static final String STATE_FILE = ".polyhaven-sync.json";
+
+	private final PolyhavenApiClient client;
+	private final Path output;
+	private final String type;
+	private final String[] categories;
+	private final String resolution;
+	private final String[] formats;
+	private final int parallelism;
+
+	/**
+	 * Constructs a {@code PolyhavenSync} for the given selection.
+	 *
+	 * @param client      the client used to access the API
+	 * @param output      the directory to sync to
+	 * @param type        the asset type
+	 * @param categories  the categories to filter by
+	 * @param resolution  the resolution to download
+	 * @param formats     the accepted formats in order of preference
+	 * @param parallelism the maximum number of concurrent requests
+	 */
+	public PolyhavenSync(PolyhavenApiClient client, Path output, String type, String[] categories,
+			String resolution, String[] formats, int parallelism) {
+		this.client = client;
+		this.output = output;
+		this.type = type;
+		this.categories = categories;
+		this.resolution = resolution;
+		this.formats = formats;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Runs the sync.
+	 *
+	 * @return a JSON object with the statistics of the sync
+	 * @throws IOException   if an I/O error occurs
+	 * @throws HttpException if the API responds with an error code
+	 */
+	public JSONObject run() throws IOException, HttpException {
+		long start = System.nanoTime();
+		Files.createDirectories(output);
+		JSONObject state = readState();
+		String selection = resolution + "/" + String.join(",", formats);
+
+		Map<String, PolyhavenAsset> assets = client.getAssets(type, categories);
+		long listed = System.nanoTime();
+
+		Map<String, PolyhavenAsset> pending = new LinkedHashMap<>();
+		for (PolyhavenAsset asset : assets.values()) {
+			JSONObject previous = state.optJSONObject(asset.getId());
+			if (previous == null || !previous.getString("filesHash").equals(asset.getFilesHash())
+					|| !previous.getString("selection").equals(selection)
+					|| !previous.optBoolean("unavailable") && !Files.isDirectory(output.resolve(asset.getId())))
+				pending.put(asset.getId(), asset);
+		}
+		BatchResult<PolyhavenFileTree> trees = BatchFetcher.fetchAll(pending.keySet(), parallelism,
+				client::getAssetFileTree);
+		Map<String, FileVariant> variants = new LinkedHashMap<>();
+		List<String> unavailable = new ArrayList<>();
+		for (Map.Entry<String, PolyhavenFileTree> tree : trees.getResults().entrySet()) {
+			FileVariant variant = selectVariant(VariantEnumerator.getVariants(tree.getKey(), tree.getValue()));
+			if (variant == null)
+				unavailable.add(tree.getKey());
+			else
+				variants.put(tree.getKey(), variant);
+		}
+		long resolved = System.nanoTime();
+
+		long totalBytes = 0L;
+		for (FileVariant variant : variants.values())
+			totalBytes += variant.getSize();
+		AtomicLong processed = new AtomicLong();
+		BatchResult<FileVariant> downloaded = new BundleDownloader(client, parallelism).download(variants, output,
+				new BundleListener() {
+					@Override
+					public void progressUpdated(long bytes, long total) {
+					}
+
+					@Override
+					public void bytesDownloaded(long bytes) {
+						processed.addAndGet(bytes);
+					}
+				});
+		long finished = System.nanoTime();
+
+		for (Map.Entry<String, FileVariant> variant : downloaded.getResults().entrySet()) {
+			JSONObject record = new JSONObject();
+			record.put("filesHash", pending.get(variant.getKey()).getFilesHash());
+			record.put("selection", selection);
+			state.put(variant.getKey(), record);
+		}
+		for (String id : unavailable) {
+			JSONObject record = new JSONObject();
+			record.put("filesHash", pending.get(id).getFilesHash());
+			record.put("selection", selection);
+			record.put("unavailable", true);
+			state.put(id, record);
+		}
+		writeState(state);
+
+		JSONObject failures = new JSONObject();
+		for (Map.Entry<String, Exception> failure : trees.getFailures().entrySet())
+			failures.put(failure.getKey(), String.valueOf(failure.getValue()));
+		for (Map.Entry<String, Exception> failure : downloaded.getFailures().entrySet())
+			failures.put(failure.getKey(), String.valueOf(failure.getValue()));
+		double seconds = (finished - resolved) / 1000000000d;
+		JSONObject stats = new JSONObject();
+		stats.put("assets", assets.size());
+		stats.put("skipped", assets.size() - pending.size());
+		stats.put("synced", downloaded.getResults().size());
+		stats.put("unavailable", unavailable);
+		stats.put("failed", failures);
+		stats.put("selectedBytes", totalBytes);
+		stats.put("processedBytes", processed.get());
+		stats.put("listingMillis", (listed - start) / 1000000L);
+		stats.put("metadataMillis", (resolved - listed) / 1000000L);
+		stats.put("downloadMillis", (finished - resolved) / 1000000L);
+		stats.put("totalMillis", (finished - start) / 1000000L);
+		stats.put("bytesPerSecond", seconds > 0d ? (long) (processed.get() / seconds) : 0L);
+		return stats;
+	}
+
+	private FileVariant selectVariant(List<FileVariant> variants) {
+		for (String format : formats) {
+			FileVariant variant = VariantEnumerator.find(variants, resolution, format);
+			if (variant != null)
+				return variant;
+		}
+		return null;
+	}
+
+	private JSONObject readState() throws IOException {
+		Path path = output.resolve(STATE_FILE);
+		if (!Files.exists(path))
+			return new JSONObject();
+		return new JSONObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+	}
+
+	private void writeState(JSONObject state) throws IOException {
+		Path path = output.resolve(STATE_FILE);
+		Path temp = output.resolve(STATE_FILE + ".tmp");
+		Files.write(temp, state.toString(2).getBytes(StandardCharsets.UTF_8));
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Runs the sync with the given command-line arguments.
+	 *
+	 * @param args the command-line arguments
+	 * @throws Exception if the sync fails
+	 */
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (int i = 0; i < args.length; i++) {
+			if (!args[i].startsWith("--") || i + 1 >= args.length) {
+				System.err.println("Invalid argument: " + args[i]);
+				printUsage();
+				System.exit(2);
+			}
+			options.put(args[i].substring(2), args[++i]);
+		}
+		if (!options.containsKey("output")) {
+			printUsage();
+			System.exit(2);
+		}
+		String[] urls = options.getOrDefault("url", "https://api.polyhaven.com/").split(",");
+		String categories = options.getOrDefault("categories", "");
+		String[] formats = options.getOrDefault("formats", "jpg,png,exr,hdr,gltf").split(",");
+		PolyhavenSync sync = new PolyhavenSync(new PolyhavenApiClient(urls), Paths.get(options.get("output")),
+				options.getOrDefault("type", "all"), categories.isEmpty() ? new String[0] : categories.split(","),
+				options.getOrDefault("resolution", "2k"), formats,
+				Integer.parseInt(options.getOrDefault("parallelism", "8")));
+		JSONObject stats = sync.run();
+		if (options.containsKey("stats"))
+			Files.write(Paths.get(options.get("stats")), stats.toString(2).getBytes(StandardCharsets.UTF_8));
+		else
+			System.out.println(stats.toString(2));
+		System.exit(stats.getJSONObject("failed").isEmpty() ? 0 : 1);
+	}
+
+	private static void printUsage() {
+		System.err.println("Usage: PolyhavenSync --output DIR [--type all] [--categories a,b] [--resolution 2k]");
+		System.err.println("                     [--formats jpg,png] [--parallelism 8] [--url URL,...] [--stats FILE]");
+	}
+
+}
@@ -0,0 +1,307 @@
+package com.kaba4cow.polyhaven.imageio.hdr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import javax.imageio.IIOException;
+
+/**
+ * Decoder of Radiance HDR images stored as RGBE pixels, flat or run length
+ * encoded. The input is read in a single pass, and every batch of scanlines is
+ * expanded into floats on a {@link ForkJoinPool} as soon as it has arrived,
+ * while the following scanlines are still being read.
+ */
+public class RadianceDecoder {
+
+	private static final int BATCH_ROWS = 16;
+	private static final int MAX_LINE_LENGTH = 4096;
+	private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+	private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+	private static final int MIN_RUN_LENGTH_WIDTH = 8;
+	private static final int MAX_RUN_LENGTH_WIDTH = 0x7FFF;
+
+	private static final float[] SCALES = new float[256];
+
+	static {
+		for (int exponent = 1; exponent < SCALES.length; exponent++)
+			SCALES[exponent] = (float) Math.scalb(1d, exponent - 136);
+	}
+
+	private final InputStream input;
+
+	private byte[] buffer;
+	private int position;
+	private int limit;
+
+	private boolean headerRead;
+	private int width;
+	private int height;
+	private boolean bottomUp;
+	private float exposure;
+
+	/**
+	 * Constructs a {@code RadianceDecoder} reading from the given stream. The
+	 * stream is not closed by the decoder.
+	 *
+	 * @param input the stream positioned at the start of the image
+	 */
+	public RadianceDecoder(InputStream input) {
+		this.input = input;
+		this.buffer = new byte[INITIAL_BUFFER_SIZE];
+		this.position = 0;
+		this.limit = 0;
+		this.headerRead = false;
+	}
+
+	/**
+	 * Reads the header of the image, if it has not been read yet.
+	 *
+	 * @throws IOException if the header cannot be read or describes an image that
+	 *                     is not supported
+	 */
+	public void readHeader() throws IOException {
+		if (headerRead)
+			return;
+		String line = readLine();
+		if (!line.startsWith("#?"))
+			throw new IIOException("Not a Radiance HDR image");
+		exposure = 1f;
+		while (!(line = readLine()).isEmpty()) {
+			if (line.startsWith("FORMAT=")) {
+				String format = line.substring(7).trim();
+				if (!format.equals("32-bit_rle_rgbe"))
+					throw new IIOException("Unsupported Radiance pixel format " + format);
+			} else if (line.startsWith("EXPOSURE="))
+				try {
+					exposure *= Float.parseFloat(line.substring(9).trim());
+				} catch (NumberFormatException e) {
+					throw new IIOException("Invalid Radiance exposure " + line.substring(9));
+				}
+		}
+		line = readLine();
+		String[] resolution = line.trim().split("\\s+");
+		if (resolution.length != 4 || !resolution[0].equals("-Y") && !resolution[0].equals("+Y")
+				|| !resolution[2].equals("+X"))
+			throw new IIOException("Unsupported Radiance resolution " + line);
+		try {
+			height = Integer.parseInt(resolution[1]);
+			width = Integer.parseInt(resolution[3]);
+		} catch (NumberFormatException e) {
+			throw new IIOException("Invalid Radiance resolution " + line);
+		}
+		if (width <= 0 || height <= 0 || (long) width * height * 3L > MAX_BUFFER_SIZE)
+			throw new IIOException("Unsupported Radiance image size " + width + "x" + height);
+		bottomUp = resolution[0].equals("+Y");
+		headerRead = true;
+	}
+
+	/**
+	 * Returns the width of the image. The header must have been read.
+	 *
+	 * @return the width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the image. The header must have been read.
+	 *
+	 * @return the height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the exposure recorded in the header of the image. The header must
+	 * have been read.
+	 *
+	 * @return the exposure, 1 if the header did not record any
+	 */
+	public float getExposure() {
+		return exposure;
+	}
+
+	/**
+	 * Decodes the image on the common fork-join pool.
+	 *
+	 * @return the decoded image
+	 * @throws IOException if the image cannot be read or is malformed
+	 * @see #decode(ForkJoinPool)
+	 */
+	public RadianceImage decode() throws IOException {
+		return decode(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Decodes the image, expanding batches of scanlines on the given pool while
+	 * the rest of the input is being read. Scanlines in the old flat or repeat
+	 * encodings are expanded by the reading thread itself.
+	 *
+	 * @param pool the pool to expand scanlines on
+	 * @return the decoded image
+	 * @throws IOException if the image cannot be read or is malformed
+	 */
+	public RadianceImage decode(ForkJoinPool pool) throws IOException {
+		readHeader();
+		float[] data = new float[width * height * 3];
+		int[] offsets = new int[height];
+		boolean runLength = width >= MIN_RUN_LENGTH_WIDTH && width <= MAX_RUN_LENGTH_WIDTH;
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		int start = 0;
+		for (int y = 0; y < height; y++) {
+			if (!ensure(position + 4))
+				throw new IIOException("Radiance image is truncated");
+			if (runLength && buffer[position] == 2 && buffer[position + 1] == 2 && (buffer[position + 2] & 0x80) == 0) {
+				offsets[y] = position;
+				skipRunLengthScanline();
+			} else {
+				offsets[y] = -1;
+				readFlatScanline(data, y);
+			}
+			if (y + 1 - start == BATCH_ROWS || y == height - 1) {
+				byte[] source = buffer;
+				int first = start;
+				int last = y + 1;
+				tasks.add(pool.submit(() -> decodeScanlines(source, offsets, first, last, data)));
+				start = last;
+			}
+		}
+		for (ForkJoinTask<?> task : tasks)
+			task.join();
+		buffer = null;
+		return new RadianceImage(width, height, data, exposure);
+	}
+
+	private void skipRunLengthScanline() throws IOException {
+		if (((buffer[position + 2] & 0xFF) << 8 | (buffer[position + 3] & 0xFF)) != width)
+			throw new IIOException("Radiance scanline length does not match the image width");
+		position += 4;
+		for (int channel = 0; channel < 4; channel++)
+			for (int x = 0; x < width;) {
+				if (!ensure(position + 1))
+					throw new IIOException("Radiance image is truncated");
+				int count = buffer[position] & 0xFF;
+				int length = 1 + count;
+				if (count > 128) {
+					count -= 128;
+					length = 2;
+				}
+				if (count == 0 || x + count > width)
+					throw new IIOException("Invalid run in Radiance scanline");
+				if (!ensure(position + length))
+					throw new IIOException("Radiance image is truncated");
+				position += length;
+				x += count;
+			}
+	}
+
+	private void readFlatScanline(float[] data, int y) throws IOException {
+		int index = getRow(y) * width * 3;
+		int shift = 0;
+		for (int x = 0; x < width;) {
+			if (!ensure(position + 4))
+				throw new IIOException("Radiance image is truncated");
+			int r = buffer[position] & 0xFF;
+			int g = buffer[position + 1] & 0xFF;
+			int b = buffer[position + 2] & 0xFF;
+			int e = buffer[position + 3] & 0xFF;
+			position += 4;
+			if (r == 1 && g == 1 && b == 1) {
+				long count = (long) e << shift;
+				if (x == 0 || x + count > width)
+					throw new IIOException("Invalid run in Radiance scanline");
+				for (int i = 0; i < count; i++, index += 3)
+					System.arraycopy(data, index - 3, data, index, 3);
+				x += count;
+				shift += 8;
+			} else {
+				float scale = SCALES[e];
+				data[index] = (r + 0.5f) * scale;
+				data[index + 1] = (g + 0.5f) * scale;
+				data[index + 2] = (b + 0.5f) * scale;
+				index += 3;
+				x++;
+				shift = 0;
+			}
+		}
+	}
+
+	private void decodeScanlines(byte[] source, int[] offsets, int start, int end, float[] data) {
+		byte[] scanline = new byte[width * 4];
+		for (int y = start; y < end; y++) {
+			if (offsets[y] < 0)
+				continue;
+			int offset = offsets[y] + 4;
+			for (int channel = 0; channel < 4; channel++) {
+				int base = channel * width;
+				for (int x = 0; x < width;) {
+					int count = source[offset++] & 0xFF;
+					if (count > 128) {
+						count -= 128;
+						Arrays.fill(scanline, base + x, base + x + count, source[offset++]);
+					} else {
+						System.arraycopy(source, offset, scanline, base + x, count);
+						offset += count;
+					}
+					x += count;
+				}
+			}
+			int index = getRow(y) * width * 3;
+			for (int x = 0; x < width; x++, index += 3) {
+				float scale = SCALES[scanline[3 * width + x] & 0xFF];
+				data[index] = ((scanline[x] & 0xFF) + 0.5f) * scale;
+				data[index + 1] = ((scanline[width + x] & 0xFF) + 0.5f) * scale;
+				data[index + 2] = ((scanline[2 * width + x] & 0xFF) + 0.5f) * scale;
+			}
+		}
+	}
+
+	private int getRow(int scanline) {
+		return bottomUp ? height - 1 - scanline : scanline;
+	}
+
+	private String readLine() throws IOException {
+		int start = position;
+		while (true) {
+			if (position - start > MAX_LINE_LENGTH)
+				throw new IIOException("Radiance header line is too long");
+			if (!ensure(position + 1))
+				throw new IIOException("Radiance header is truncated");
+			if (buffer[position++] == '\n') {
+				int end = position - 1;
+				if (end > start && buffer[end - 1] == '\r')
+					end--;
+				return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+			}
+		}
+	}
+
+	/**
+	 * Reads until the buffer holds the input up to the given offset, growing it
+	 * by copying so that earlier buffers handed to running tasks stay valid.
+	 */
+	private boolean ensure(int end) throws IOException {
+		while (limit < end) {
+			if (end > buffer.length) {
+				if (buffer.length == MAX_BUFFER_SIZE)
+					throw new IIOException("Radiance image is too large");
+				int length = (int) Math.min(MAX_BUFFER_SIZE, Math.max(end, 2L * buffer.length));
+				buffer = Arrays.copyOf(buffer, length);
+			}
+			int count = input.read(buffer, limit, buffer.length - limit);
+			if (count < 0)
+				return false;
+			limit += count;
+		}
+		return true;
+	}
+
+}
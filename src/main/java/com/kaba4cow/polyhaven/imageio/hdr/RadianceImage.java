@@ -0,0 +1,76 @@
+package com.kaba4cow.polyhaven.imageio.hdr;
+
+/**
+ * A decoded Radiance HDR image, holding linear RGB values as three floats per
+ * pixel, row by row from the top left corner.
+ */
+public class RadianceImage {
+
+	private final int width;
+	private final int height;
+	private final float[] data;
+	private final float exposure;
+
+	/**
+	 * Constructs a {@code RadianceImage} of the given size.
+	 *
+	 * @param width    the width in pixels
+	 * @param height   the height in pixels
+	 * @param data     the RGB values, {@code width * height * 3} floats
+	 * @param exposure the exposure the values were multiplied by when the file
+	 *                 was written
+	 */
+	public RadianceImage(int width, int height, float[] data, float exposure) {
+		if (data.length != width * height * 3)
+			throw new IllegalArgumentException("data does not match the image size");
+		this.width = width;
+		this.height = height;
+		this.data = data;
+		this.exposure = exposure;
+	}
+
+	/**
+	 * Returns the width of this image.
+	 *
+	 * @return the width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of this image.
+	 *
+	 * @return the height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the RGB values of this image. The red value of the pixel at
+	 * {@code (x, y)} is at index {@code (y * width + x) * 3}.
+	 *
+	 * @return the RGB values
+	 */
+	public float[] getData() {
+		return data;
+	}
+
+	/**
+	 * Returns the exposure recorded in the header of the file, which is the
+	 * factor the stored values were multiplied by relative to the original
+	 * radiance. Dividing by it gives the original radiance.
+	 *
+	 * @return the exposure, 1 if the header did not record any
+	 */
+	public float getExposure() {
+		return exposure;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [width=%d, height=%d, exposure=%s]", getClass().getName(), width, height, exposure);
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.kaba4cow.polyhaven.imageio.hdr;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * An {@link ImageReader} of Radiance HDR images that returns them tone mapped
+ * for display, as configured by a {@link RadianceReadParam}.
+ *
+ * <p>
+ * The image is decoded once per input, so it can be read again with other tone
+ * mapping settings without decoding it again. Source subsampling does not pick
+ * single pixels: every destination pixel averages the source pixels it covers,
+ * which keeps small previews of large images free of aliasing.
+ * </p>
+ */
+public class RadianceImageReader extends ImageReader {
+
+	private RadianceDecoder decoder;
+	private RadianceImage image;
+
+	/**
+	 * Constructs a {@code RadianceImageReader} created by the given provider.
+	 *
+	 * @param provider the provider that created this reader, or {@code null}
+	 */
+	public RadianceImageReader(ImageReaderSpi provider) {
+		super(provider);
+	}
+
+	@Override
+	public void setInput(Object input, boolean seekForwardOnly, boolean ignoreMetadata) {
+		super.setInput(input, seekForwardOnly, ignoreMetadata);
+		decoder = null;
+		image = null;
+	}
+
+	@Override
+	public int getNumImages(boolean allowSearch) throws IOException {
+		readHeader();
+		return 1;
+	}
+
+	@Override
+	public int getWidth(int imageIndex) throws IOException {
+		checkIndex(imageIndex);
+		return decoder.getWidth();
+	}
+
+	@Override
+	public int getHeight(int imageIndex) throws IOException {
+		checkIndex(imageIndex);
+		return decoder.getHeight();
+	}
+
+	@Override
+	public Iterator<ImageTypeSpecifier> getImageTypes(int imageIndex) throws IOException {
+		checkIndex(imageIndex);
+		return Collections
+				.singletonList(ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_RGB))
+				.iterator();
+	}
+
+	@Override
+	public ImageReadParam getDefaultReadParam() {
+		return new RadianceReadParam();
+	}
+
+	@Override
+	public IIOMetadata getStreamMetadata() {
+		return null;
+	}
+
+	@Override
+	public IIOMetadata getImageMetadata(int imageIndex) throws IOException {
+		checkIndex(imageIndex);
+		return null;
+	}
+
+	/**
+	 * Returns the decoded radiance values of the image, decoding it if it has
+	 * not been decoded yet.
+	 *
+	 * @param imageIndex the index of the image, which must be 0
+	 * @return the decoded image
+	 * @throws IOException if the image cannot be read or is malformed
+	 */
+	public RadianceImage readRadiance(int imageIndex) throws IOException {
+		checkIndex(imageIndex);
+		if (image == null)
+			image = decoder.decode();
+		return image;
+	}
+
+	@Override
+	public BufferedImage read(int imageIndex, ImageReadParam param) throws IOException {
+		checkIndex(imageIndex);
+		int width = decoder.getWidth();
+		int height = decoder.getHeight();
+		BufferedImage destination = getDestination(param, getImageTypes(imageIndex), width, height);
+		Rectangle sourceRegion = new Rectangle();
+		Rectangle destinationRegion = new Rectangle();
+		computeRegions(param, width, height, destination, sourceRegion, destinationRegion);
+		ToneMapper mapper = param instanceof RadianceReadParam
+				? new ToneMapper(((RadianceReadParam) param).getOperator(), ((RadianceReadParam) param).getExposure())
+				: new ToneMapper(ToneMapper.Operator.REINHARD, 0f);
+
+		clearAbortRequest();
+		processImageStarted(imageIndex);
+		RadianceImage radiance = readRadiance(imageIndex);
+		if (abortRequested()) {
+			processReadAborted();
+			return destination;
+		}
+		processImageProgress(50f);
+		BufferedImage mapped = mapper.map(radiance, sourceRegion, destinationRegion.width, destinationRegion.height,
+				ForkJoinPool.commonPool());
+		int[] pixels = ((DataBufferInt) mapped.getRaster().getDataBuffer()).getData();
+		if (destination.getType() == BufferedImage.TYPE_INT_RGB)
+			destination.getRaster().setDataElements(destinationRegion.x, destinationRegion.y,
+					destinationRegion.width, destinationRegion.height, pixels);
+		else
+			destination.setRGB(destinationRegion.x, destinationRegion.y, destinationRegion.width,
+					destinationRegion.height, pixels, 0, destinationRegion.width);
+		processImageUpdate(destination, destinationRegion.x, destinationRegion.y, destinationRegion.width,
+				destinationRegion.height, 1, 1, new int[] { 0, 1, 2 });
+		processImageProgress(100f);
+		processImageComplete();
+		return destination;
+	}
+
+	private void checkIndex(int imageIndex) throws IOException {
+		if (imageIndex != 0)
+			throw new IndexOutOfBoundsException("imageIndex must be 0");
+		readHeader();
+	}
+
+	private void readHeader() throws IOException {
+		if (decoder != null)
+			return;
+		if (input == null)
+			throw new IllegalStateException("No input set");
+		RadianceDecoder decoder = new RadianceDecoder(new StreamInput((ImageInputStream) input));
+		decoder.readHeader();
+		this.decoder = decoder;
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		decoder = null;
+		image = null;
+	}
+
+	@Override
+	public void dispose() {
+		decoder = null;
+		image = null;
+	}
+
+	private static class StreamInput extends InputStream {
+
+		private final ImageInputStream stream;
+
+		private StreamInput(ImageInputStream stream) {
+			this.stream = stream;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return stream.read();
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			return stream.read(bytes, offset, length);
+		}
+
+	}
+
+}
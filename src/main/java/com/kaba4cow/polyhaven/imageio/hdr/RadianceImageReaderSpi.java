@@ -0,0 +1,60 @@
+package com.kaba4cow.polyhaven.imageio.hdr;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Locale;
+
+import javax.imageio.ImageReader;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * The service provider of {@link RadianceImageReader}, registered through
+ * {@code META-INF/services} so that {@link javax.imageio.ImageIO} reads
+ * Radiance HDR images without further setup.
+ */
+public class RadianceImageReaderSpi extends ImageReaderSpi {
+
+	private static final String[] NAMES = { "hdr", "HDR", "radiance" };
+	private static final String[] SUFFIXES = { "hdr", "pic" };
+	private static final String[] MIME_TYPES = { "image/vnd.radiance" };
+
+	/**
+	 * Constructs a {@code RadianceImageReaderSpi}.
+	 */
+	public RadianceImageReaderSpi() {
+		super("kaba4cow", "1.0", NAMES, SUFFIXES, MIME_TYPES, RadianceImageReader.class.getName(),
+				new Class<?>[] { ImageInputStream.class }, null, false, null, null, null, null, false, null, null,
+				null, null);
+	}
+
+	@Override
+	public boolean canDecodeInput(Object source) throws IOException {
+		if (!(source instanceof ImageInputStream))
+			return false;
+		ImageInputStream stream = (ImageInputStream) source;
+		byte[] header = new byte[6];
+		stream.mark();
+		try {
+			stream.readFully(header);
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			stream.reset();
+		}
+		return header[0] == '#' && header[1] == '?' //
+				&& (header[2] == 'R' && header[3] == 'A' && header[4] == 'D' && header[5] == 'I'
+						|| header[2] == 'R' && header[3] == 'G' && header[4] == 'B' && header[5] == 'E');
+	}
+
+	@Override
+	public ImageReader createReaderInstance(Object extension) {
+		return new RadianceImageReader(this);
+	}
+
+	@Override
+	public String getDescription(Locale locale) {
+		return "Radiance HDR image reader";
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.kaba4cow.polyhaven.imageio.hdr;
+
+import javax.imageio.ImageReadParam;
+
+/**
+ * Read parameters of {@link RadianceImageReader}, selecting how the radiance
+ * values are tone mapped into the returned image.
+ */
+public class RadianceReadParam extends ImageReadParam {
+
+	private ToneMapper.Operator operator;
+	private float exposure;
+
+	/**
+	 * Constructs a {@code RadianceReadParam} with the
+	 * {@link ToneMapper.Operator#REINHARD Reinhard} operator and no exposure
+	 * adjustment.
+	 */
+	public RadianceReadParam() {
+		super();
+		this.operator = ToneMapper.Operator.REINHARD;
+		this.exposure = 0f;
+	}
+
+	/**
+	 * Returns the tone mapping operator.
+	 *
+	 * @return the operator
+	 */
+	public ToneMapper.Operator getOperator() {
+		return operator;
+	}
+
+	/**
+	 * Sets the tone mapping operator.
+	 *
+	 * @param operator the operator
+	 */
+	public void setOperator(ToneMapper.Operator operator) {
+		if (operator == null)
+			throw new IllegalArgumentException("operator is null");
+		this.operator = operator;
+	}
+
+	/**
+	 * Returns the exposure adjustment.
+	 *
+	 * @return the exposure adjustment in stops
+	 */
+	public float getExposure() {
+		return exposure;
+	}
+
+	/**
+	 * Sets the exposure adjustment.
+	 *
+	 * @param exposure the exposure adjustment in stops, 0 to keep the stored
+	 *                 values
+	 */
+	public void setExposure(float exposure) {
+		this.exposure = exposure;
+	}
+
+}
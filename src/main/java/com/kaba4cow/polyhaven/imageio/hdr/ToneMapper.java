@@ -0,0 +1,242 @@
+package com.kaba4cow.polyhaven.imageio.hdr;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Converts {@link RadianceImage Radiance images} into displayable sRGB images.
+ * The radiance values are scaled by the exposure, compressed by the tone
+ * mapping operator and gamma encoded. When the target is smaller than the
+ * source, every target pixel averages the source pixels it covers before tone
+ * mapping. Rows are processed in parallel on a {@link ForkJoinPool}.
+ */
+public class ToneMapper {
+
+	private static final int TASK_ROWS = 8;
+	private static final int GAMMA_TABLE_SIZE = 4096;
+
+	private static final int[] GAMMA = new int[GAMMA_TABLE_SIZE];
+
+	static {
+		for (int i = 0; i < GAMMA.length; i++) {
+			double linear = (double) i / (GAMMA.length - 1);
+			double encoded = linear <= 0.0031308d ? linear * 12.92d : 1.055d * Math.pow(linear, 1d / 2.4d) - 0.055d;
+			GAMMA[i] = (int) Math.round(encoded * 255d);
+		}
+	}
+
+	private final Operator operator;
+	private final float exposure;
+
+	/**
+	 * Constructs a {@code ToneMapper} with the given operator and exposure.
+	 *
+	 * @param operator the tone mapping operator
+	 * @param exposure the exposure adjustment in stops, 0 to keep the stored
+	 *                 values
+	 */
+	public ToneMapper(Operator operator, float exposure) {
+		if (operator == null)
+			throw new IllegalArgumentException("operator is null");
+		this.operator = operator;
+		this.exposure = exposure;
+	}
+
+	/**
+	 * Returns the tone mapping operator of this mapper.
+	 *
+	 * @return the operator
+	 */
+	public Operator getOperator() {
+		return operator;
+	}
+
+	/**
+	 * Returns the exposure adjustment of this mapper.
+	 *
+	 * @return the exposure adjustment in stops
+	 */
+	public float getExposure() {
+		return exposure;
+	}
+
+	/**
+	 * Tone maps the whole image into an image of the given size on the common
+	 * fork-join pool.
+	 *
+	 * @param image  the image to tone map
+	 * @param width  the width of the result
+	 * @param height the height of the result
+	 * @return the tone mapped image of type {@link BufferedImage#TYPE_INT_RGB}
+	 */
+	public BufferedImage map(RadianceImage image, int width, int height) {
+		return map(image, new Rectangle(0, 0, image.getWidth(), image.getHeight()), width, height,
+				ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Tone maps a region of the image into an image of the given size.
+	 *
+	 * @param image  the image to tone map
+	 * @param region the region of the image to tone map, in source pixels
+	 * @param width  the width of the result
+	 * @param height the height of the result
+	 * @param pool   the pool to process rows on
+	 * @return the tone mapped image of type {@link BufferedImage#TYPE_INT_RGB}
+	 */
+	public BufferedImage map(RadianceImage image, Rectangle region, int width, int height, ForkJoinPool pool) {
+		Rectangle bounds = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+		if (region.isEmpty() || !bounds.contains(region))
+			throw new IllegalArgumentException("region is outside of the image");
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("size must be positive");
+		BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		int[] pixels = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+		int[] columns = getBounds(region.x, region.width, width);
+		int[] rows = getBounds(region.y, region.height, height);
+		pool.invoke(new MapTask(image, pixels, columns, rows, width, 0, height));
+		return result;
+	}
+
+	/**
+	 * Returns the source ranges covered by the target pixels, the range of pixel
+	 * {@code i} being {@code [bounds[i], bounds[i + 1])} and at least one pixel
+	 * wide.
+	 */
+	private static int[] getBounds(int offset, int source, int target) {
+		int[] bounds = new int[target + 1];
+		for (int i = 0; i <= target; i++)
+			bounds[i] = offset + (int) ((long) i * source / target);
+		return bounds;
+	}
+
+	private void mapRows(RadianceImage image, int[] pixels, int[] columns, int[] rows, int width, int start,
+			int end) {
+		float[] data = image.getData();
+		int stride = image.getWidth() * 3;
+		float scale = (float) Math.pow(2d, exposure);
+		for (int y = start; y < end; y++) {
+			int top = rows[y];
+			int bottom = Math.max(rows[y + 1], top + 1);
+			for (int x = 0; x < width; x++) {
+				int left = columns[x];
+				int right = Math.max(columns[x + 1], left + 1);
+				float r = 0f;
+				float g = 0f;
+				float b = 0f;
+				for (int sy = top; sy < bottom; sy++)
+					for (int index = sy * stride + left * 3, last = sy * stride + right * 3; index < last; index += 3) {
+						r += data[index];
+						g += data[index + 1];
+						b += data[index + 2];
+					}
+				float weight = scale / ((bottom - top) * (right - left));
+				pixels[y * width + x] = operator.map(r * weight, g * weight, b * weight);
+			}
+		}
+	}
+
+	private static int encode(float value) {
+		if (!(value > 0f))
+			return 0;
+		if (value >= 1f)
+			return 255;
+		return GAMMA[(int) (value * (GAMMA_TABLE_SIZE - 1) + 0.5f)];
+	}
+
+	private static int encode(float r, float g, float b) {
+		return encode(r) << 16 | encode(g) << 8 | encode(b);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [operator=%s, exposure=%s]", getClass().getName(), operator, exposure);
+	}
+
+	/**
+	 * The tone mapping operators that compress linear radiance into the
+	 * displayable range.
+	 */
+	public enum Operator {
+
+		/**
+		 * Clips values above 1.
+		 */
+		LINEAR {
+			@Override
+			int map(float r, float g, float b) {
+				return encode(r, g, b);
+			}
+		},
+
+		/**
+		 * Compresses the luminance {@code L} to {@code L / (1 + L)}, preserving
+		 * the hue.
+		 */
+		REINHARD {
+			@Override
+			int map(float r, float g, float b) {
+				float luminance = 0.2126f * r + 0.7152f * g + 0.0722f * b;
+				float scale = 1f / (1f + luminance);
+				return encode(r * scale, g * scale, b * scale);
+			}
+		},
+
+		/**
+		 * Applies the curve fitted to the ACES filmic reference rendering
+		 * transform by Krzysztof Narkowicz to every channel.
+		 */
+		ACES {
+			@Override
+			int map(float r, float g, float b) {
+				return encode(aces(r), aces(g), aces(b));
+			}
+
+			private float aces(float value) {
+				return value * (2.51f * value + 0.03f) / (value * (2.43f * value + 0.59f) + 0.14f);
+			}
+		};
+
+		abstract int map(float r, float g, float b);
+
+	}
+
+	private class MapTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final RadianceImage image;
+		private final int[] pixels;
+		private final int[] columns;
+		private final int[] rows;
+		private final int width;
+		private final int start;
+		private final int end;
+
+		private MapTask(RadianceImage image, int[] pixels, int[] columns, int[] rows, int width, int start, int end) {
+			this.image = image;
+			this.pixels = pixels;
+			this.columns = columns;
+			this.rows = rows;
+			this.width = width;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= TASK_ROWS) {
+				mapRows(image, pixels, columns, rows, width, start, end);
+				return;
+			}
+			int middle = (start + end) >>> 1;
+			invokeAll(new MapTask(image, pixels, columns, rows, width, start, middle),
+					new MapTask(image, pixels, columns, rows, width, middle, end));
+		}
+
+	}
+
+}
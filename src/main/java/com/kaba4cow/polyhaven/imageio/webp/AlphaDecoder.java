@@ -0,0 +1,82 @@
+package com.kaba4cow.polyhaven.imageio.webp;
+
+import java.io.IOException;
+
+import javax.imageio.IIOException;
+
+/**
+ * Decoder of the {@code ALPH} chunk that carries the alpha plane of lossy
+ * images, either raw or compressed as the green channel of a headerless VP8L
+ * stream, optionally filtered by a spatial predictor.
+ */
+final class AlphaDecoder {
+
+	private static final int NO_COMPRESSION = 0;
+	private static final int LOSSLESS_COMPRESSION = 1;
+
+	private static final int FILTER_NONE = 0;
+	private static final int FILTER_HORIZONTAL = 1;
+	private static final int FILTER_VERTICAL = 2;
+	private static final int FILTER_GRADIENT = 3;
+
+	private AlphaDecoder() {
+	}
+
+	/**
+	 * Decodes the first rows of the alpha plane of an image of the given size.
+	 */
+	static byte[] decode(byte[] data, int offset, int length, int width, int height, int rows)
+			throws IOException {
+		if (length < 1)
+			throw new IIOException("Alpha chunk is truncated");
+		int header = data[offset] & 0xFF;
+		int compression = header & 3;
+		int filter = (header >> 2) & 3;
+		if (compression > LOSSLESS_COMPRESSION || (header >> 6) != 0)
+			throw new IIOException("Invalid alpha chunk header");
+		rows = Math.max(1, Math.min(rows, height));
+		byte[] alpha = new byte[width * height];
+		if (compression == NO_COMPRESSION) {
+			if (length - 1 < width * rows)
+				throw new IIOException("Alpha chunk is truncated");
+			System.arraycopy(data, offset + 1, alpha, 0, width * rows);
+		} else {
+			int[] pixels = VP8LDecoder.openHeaderless(data, offset + 1, length - 1, width, height).decode(rows);
+			for (int i = 0; i < width * rows; i++)
+				alpha[i] = (byte) (pixels[i] >> 8);
+		}
+		if (filter != FILTER_NONE)
+			unfilter(alpha, width, rows, filter);
+		return alpha;
+	}
+
+	private static void unfilter(byte[] alpha, int width, int rows, int filter) {
+		for (int y = 0; y < rows; y++) {
+			int row = y * width;
+			int previous = row - width;
+			if (y == 0 || filter == FILTER_HORIZONTAL) {
+				int left = y == 0 ? 0 : alpha[previous] & 0xFF;
+				for (int x = 0; x < width; x++) {
+					left = (left + alpha[row + x]) & 0xFF;
+					alpha[row + x] = (byte) left;
+				}
+			} else if (filter == FILTER_VERTICAL) {
+				for (int x = 0; x < width; x++)
+					alpha[row + x] = (byte) (alpha[previous + x] + alpha[row + x]);
+			} else if (filter == FILTER_GRADIENT) {
+				int top = alpha[previous] & 0xFF;
+				int topLeft = top;
+				int left = top;
+				for (int x = 0; x < width; x++) {
+					top = alpha[previous + x] & 0xFF;
+					int predictor = left + top - topLeft;
+					predictor = predictor < 0 ? 0 : predictor > 255 ? 255 : predictor;
+					left = (alpha[row + x] + predictor) & 0xFF;
+					topLeft = top;
+					alpha[row + x] = (byte) left;
+				}
+			}
+		}
+	}
+
+}
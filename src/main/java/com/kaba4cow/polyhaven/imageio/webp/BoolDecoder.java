@@ -0,0 +1,69 @@
+package com.kaba4cow.polyhaven.imageio.webp;
+
+/**
+ * The boolean entropy decoder of VP8 partitions, as described in section 7 of
+ * RFC 6386. Reading past the end of the partition yields zero bytes.
+ */
+final class BoolDecoder {
+
+	private final byte[] data;
+	private final int end;
+
+	private int position;
+	private int value;
+	private int range;
+	private int bitCount;
+
+	BoolDecoder(byte[] data, int offset, int length) {
+		this.data = data;
+		this.position = offset;
+		this.end = offset + length;
+		this.value = (nextByte() << 8) | nextByte();
+		this.range = 255;
+		this.bitCount = 0;
+	}
+
+	private int nextByte() {
+		return position < end ? data[position++] & 0xFF : 0;
+	}
+
+	int readBit(int probability) {
+		int split = 1 + (((range - 1) * probability) >> 8);
+		int bigSplit = split << 8;
+		int bit;
+		if (value >= bigSplit) {
+			range -= split;
+			value -= bigSplit;
+			bit = 1;
+		} else {
+			range = split;
+			bit = 0;
+		}
+		while (range < 128) {
+			value <<= 1;
+			range <<= 1;
+			if (++bitCount == 8) {
+				bitCount = 0;
+				value |= nextByte();
+			}
+		}
+		return bit;
+	}
+
+	int readLiteral(int bits) {
+		int value = 0;
+		while (bits-- > 0)
+			value = (value << 1) | readBit(128);
+		return value;
+	}
+
+	int readSigned(int bits) {
+		int value = readLiteral(bits);
+		return readBit(128) == 1 ? -value : value;
+	}
+
+	int readOptionalSigned(int bits) {
+		return readBit(128) == 1 ? readSigned(bits) : 0;
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.kaba4cow.polyhaven.imageio.webp;
+
+import java.io.IOException;
+
+import javax.imageio.IIOException;
+
+/**
+ * A canonical prefix code of a VP8L image, decoded with an 8-bit root table and
+ * second-level tables for longer codes. Each entry packs the code length above
+ * the symbol; root entries that link to a second-level table carry the width
+ * of that table plus {@value #LINK} as their length.
+ */
+final class HuffmanTable {
+
+	private static final int ROOT_BITS = 8;
+	private static final int MAX_LENGTH = 15;
+	private static final int LINK = 64;
+
+	private final int[] table;
+
+	private HuffmanTable(int[] table) {
+		this.table = table;
+	}
+
+	static HuffmanTable build(int[] lengths, int size) throws IOException {
+		int[] counts = new int[MAX_LENGTH + 1];
+		int used = 0;
+		int single = 0;
+		for (int symbol = 0; symbol < size; symbol++)
+			if (lengths[symbol] > 0) {
+				counts[lengths[symbol]]++;
+				used++;
+				single = symbol;
+			}
+		if (used == 0)
+			throw new IIOException("Empty VP8L prefix code");
+		if (used == 1) {
+			int[] table = new int[1 << ROOT_BITS];
+			for (int i = 0; i < table.length; i++)
+				table[i] = single;
+			return new HuffmanTable(table);
+		}
+		int left = 1;
+		for (int length = 1; length <= MAX_LENGTH; length++) {
+			left = (left << 1) - counts[length];
+			if (left < 0)
+				throw new IIOException("Over-subscribed VP8L prefix code");
+		}
+		if (left != 0)
+			throw new IIOException("Incomplete VP8L prefix code");
+
+		int[] nextCode = new int[MAX_LENGTH + 1];
+		for (int length = 1, code = 0; length <= MAX_LENGTH; length++) {
+			code = (code + counts[length - 1]) << 1;
+			nextCode[length] = code;
+		}
+		int[] codes = new int[size];
+		int[] subBits = new int[1 << ROOT_BITS];
+		for (int symbol = 0; symbol < size; symbol++) {
+			int length = lengths[symbol];
+			if (length == 0)
+				continue;
+			int code = reverse(nextCode[length]++, length);
+			codes[symbol] = code;
+			if (length > ROOT_BITS) {
+				int root = code & ((1 << ROOT_BITS) - 1);
+				subBits[root] = Math.max(subBits[root], length - ROOT_BITS);
+			}
+		}
+		int total = 1 << ROOT_BITS;
+		int[] offsets = new int[1 << ROOT_BITS];
+		for (int root = 0; root < offsets.length; root++)
+			if (subBits[root] > 0) {
+				offsets[root] = total;
+				total += 1 << subBits[root];
+			}
+		int[] table = new int[total];
+		for (int root = 0; root < offsets.length; root++)
+			if (subBits[root] > 0)
+				table[root] = (LINK + subBits[root]) << 16 | offsets[root];
+		for (int symbol = 0; symbol < size; symbol++) {
+			int length = lengths[symbol];
+			if (length == 0)
+				continue;
+			int code = codes[symbol];
+			if (length <= ROOT_BITS)
+				for (int i = code; i < 1 << ROOT_BITS; i += 1 << length)
+					table[i] = length << 16 | symbol;
+			else {
+				int root = code & ((1 << ROOT_BITS) - 1);
+				int bits = length - ROOT_BITS;
+				for (int i = code >>> ROOT_BITS; i < 1 << subBits[root]; i += 1 << bits)
+					table[offsets[root] + i] = bits << 16 | symbol;
+			}
+		}
+		return new HuffmanTable(table);
+	}
+
+	private static int reverse(int code, int length) {
+		return Integer.reverse(code) >>> (32 - length);
+	}
+
+	int readSymbol(VP8LBitReader reader) {
+		int entry = table[reader.peekBits(ROOT_BITS)];
+		int length = entry >>> 16;
+		if (length > LINK) {
+			reader.skipBits(ROOT_BITS);
+			entry = table[(entry & 0xFFFF) + reader.peekBits(length - LINK)];
+			length = entry >>> 16;
+		}
+		reader.skipBits(length);
+		return entry & 0xFFFF;
+	}
+
+}
@@ -0,0 +1,1080 @@
+package com.kaba4cow.polyhaven.imageio.webp;
+
+import static com.kaba4cow.polyhaven.imageio.webp.VP8Tables.AC_TABLE;
+import static com.kaba4cow.polyhaven.imageio.webp.VP8Tables.BANDS;
+import static com.kaba4cow.polyhaven.imageio.webp.VP8Tables.BMODES_PROBA;
+import static com.kaba4cow.polyhaven.imageio.webp.VP8Tables.CAT_PROBA;
+import static com.kaba4cow.polyhaven.imageio.webp.VP8Tables.COEFFS_PROBA;
+import static com.kaba4cow.polyhaven.imageio.webp.VP8Tables.COEFFS_UPDATE_PROBA;
+import static com.kaba4cow.polyhaven.imageio.webp.VP8Tables.DC_TABLE;
+import static com.kaba4cow.polyhaven.imageio.webp.VP8Tables.ZIGZAG;
+
+import java.io.IOException;
+
+import javax.imageio.IIOException;
+
+/**
+ * Decoder of VP8 key frames, the lossy format of WebP, as specified in RFC
+ * 6386. The frame is reconstructed into Y, U and V planes with the in-loop
+ * filter applied, matching the output of the reference decoder.
+ */
+final class VP8Decoder {
+
+	static final int B_DC_PRED = 0;
+	static final int B_TM_PRED = 1;
+	static final int B_VE_PRED = 2;
+	static final int B_HE_PRED = 3;
+	static final int B_RD_PRED = 4;
+	static final int B_VR_PRED = 5;
+	static final int B_LD_PRED = 6;
+	static final int B_VL_PRED = 7;
+	static final int B_HD_PRED = 8;
+	static final int B_HU_PRED = 9;
+
+	static final int DC_PRED = B_DC_PRED;
+	static final int V_PRED = B_VE_PRED;
+	static final int H_PRED = B_HE_PRED;
+	static final int TM_PRED = B_TM_PRED;
+
+	private static final int[] YMODES_INTRA4 = { //
+			-B_DC_PRED, 1, //
+			-B_TM_PRED, 2, //
+			-B_VE_PRED, 3, //
+			4, 6, //
+			-B_HE_PRED, 5, //
+			-B_RD_PRED, -B_VR_PRED, //
+			-B_LD_PRED, 7, //
+			-B_VL_PRED, 8, //
+			-B_HD_PRED, -B_HU_PRED };
+
+	private static final int YS = 21;
+	private static final int US = 9;
+
+	private final byte[] data;
+	private final int offset;
+	private final int length;
+
+	private int width;
+	private int height;
+	private int mbWidth;
+	private int mbHeight;
+
+	private BoolDecoder header;
+	private BoolDecoder[] partitions;
+
+	private boolean useSegment;
+	private boolean updateMap;
+	private boolean absoluteDelta;
+	private final int[] segmentQuantizer = new int[4];
+	private final int[] segmentFilterStrength = new int[4];
+	private final int[] segmentProba = { 255, 255, 255 };
+
+	private boolean simpleFilter;
+	private int filterLevel;
+	private int sharpness;
+	private boolean useLfDelta;
+	private final int[] refLfDelta = new int[4];
+	private final int[] modeLfDelta = new int[4];
+	private int filterType;
+
+	private final int[][] dequant = new int[4][6];
+	private final int[][][][] proba = new int[4][8][3][11];
+	private boolean useSkipProba;
+	private int skipProba;
+
+	private final int[][] filterLimit = new int[4][2];
+	private final int[][] filterInnerLevel = new int[4][2];
+	private final int[][] filterHevThreshold = new int[4][2];
+
+	private byte[] yPlane;
+	private byte[] uPlane;
+	private byte[] vPlane;
+	private int yStride;
+	private int uvStride;
+	private byte[] yTop;
+	private byte[] uTop;
+	private byte[] vTop;
+	private int mbRow;
+
+	private int[] topModes;
+	private final int[] leftModes = new int[4];
+	private int[] topNz;
+	private final int[] leftNz = new int[9];
+
+	private byte[] mbSegment;
+	private boolean[] mbInner;
+	private boolean[] mbIs4x4;
+
+	private final int[] modes = new int[16];
+	private final int[] coeffs = new int[384];
+	private final int[] dcCoeffs = new int[16];
+	private final int[] transformBuffer = new int[16];
+	private final boolean[] nonZero = new boolean[24];
+	private final int[] yWork = new int[17 * YS];
+	private final int[] uWork = new int[9 * US];
+	private final int[] vWork = new int[9 * US];
+
+	VP8Decoder(byte[] data, int offset, int length) {
+		this.data = data;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	void readHeader() throws IOException {
+		if (length < 10)
+			throw new IIOException("VP8 frame is truncated");
+		int bits = (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 | (data[offset + 2] & 0xFF) << 16;
+		boolean keyFrame = (bits & 1) == 0;
+		int profile = (bits >> 1) & 7;
+		int partitionLength = bits >> 5;
+		if (!keyFrame)
+			throw new IIOException("VP8 frame is not a key frame");
+		if (profile > 3)
+			throw new IIOException("Unsupported VP8 profile " + profile);
+		if ((data[offset + 3] & 0xFF) != 0x9D || (data[offset + 4] & 0xFF) != 0x01
+				|| (data[offset + 5] & 0xFF) != 0x2A)
+			throw new IIOException("Invalid VP8 start code");
+		width = ((data[offset + 6] & 0xFF) | (data[offset + 7] & 0xFF) << 8) & 0x3FFF;
+		height = ((data[offset + 8] & 0xFF) | (data[offset + 9] & 0xFF) << 8) & 0x3FFF;
+		if (width == 0 || height == 0)
+			throw new IIOException("Invalid VP8 frame size");
+		if (10 + partitionLength > length)
+			throw new IIOException("VP8 partition is truncated");
+		mbWidth = (width + 15) >> 4;
+		mbHeight = (height + 15) >> 4;
+		header = new BoolDecoder(data, offset + 10, partitionLength);
+		header.readBit(128);
+		header.readBit(128);
+		readSegmentHeader();
+		readFilterHeader();
+		readPartitions(offset + 10 + partitionLength, length - 10 - partitionLength);
+		readQuantizers();
+		header.readBit(128);
+		readProbabilities();
+	}
+
+	private void readSegmentHeader() {
+		useSegment = header.readBit(128) == 1;
+		if (useSegment) {
+			updateMap = header.readBit(128) == 1;
+			if (header.readBit(128) == 1) {
+				absoluteDelta = header.readBit(128) == 1;
+				for (int s = 0; s < 4; s++)
+					segmentQuantizer[s] = header.readOptionalSigned(7);
+				for (int s = 0; s < 4; s++)
+					segmentFilterStrength[s] = header.readOptionalSigned(6);
+			}
+			if (updateMap)
+				for (int s = 0; s < 3; s++)
+					segmentProba[s] = header.readBit(128) == 1 ? header.readLiteral(8) : 255;
+		} else
+			updateMap = false;
+	}
+
+	private void readFilterHeader() {
+		simpleFilter = header.readBit(128) == 1;
+		filterLevel = header.readLiteral(6);
+		sharpness = header.readLiteral(3);
+		useLfDelta = header.readBit(128) == 1;
+		if (useLfDelta && header.readBit(128) == 1) {
+			for (int i = 0; i < 4; i++)
+				if (header.readBit(128) == 1)
+					refLfDelta[i] = header.readSigned(6);
+			for (int i = 0; i < 4; i++)
+				if (header.readBit(128) == 1)
+					modeLfDelta[i] = header.readSigned(6);
+		}
+		filterType = filterLevel == 0 ? 0 : simpleFilter ? 1 : 2;
+	}
+
+	private void readPartitions(int start, int size) throws IOException {
+		int count = 1 << header.readLiteral(2);
+		int sizes = start;
+		int partitionStart = start + 3 * (count - 1);
+		int left = size - 3 * (count - 1);
+		if (left < 0)
+			throw new IIOException("VP8 partitions are truncated");
+		partitions = new BoolDecoder[count];
+		for (int p = 0; p < count - 1; p++) {
+			int partitionSize = (data[sizes] & 0xFF) | (data[sizes + 1] & 0xFF) << 8
+					| (data[sizes + 2] & 0xFF) << 16;
+			partitionSize = Math.min(partitionSize, left);
+			partitions[p] = new BoolDecoder(data, partitionStart, partitionSize);
+			partitionStart += partitionSize;
+			left -= partitionSize;
+			sizes += 3;
+		}
+		partitions[count - 1] = new BoolDecoder(data, partitionStart, left);
+	}
+
+	private void readQuantizers() {
+		int base = header.readLiteral(7);
+		int y1Dc = header.readOptionalSigned(4);
+		int y2Dc = header.readOptionalSigned(4);
+		int y2Ac = header.readOptionalSigned(4);
+		int uvDc = header.readOptionalSigned(4);
+		int uvAc = header.readOptionalSigned(4);
+		for (int s = 0; s < 4; s++) {
+			int q;
+			if (useSegment) {
+				q = segmentQuantizer[s];
+				if (!absoluteDelta)
+					q += base;
+			} else if (s > 0) {
+				dequant[s] = dequant[0];
+				continue;
+			} else
+				q = base;
+			int[] m = dequant[s];
+			m[0] = DC_TABLE[clip(q + y1Dc, 127)];
+			m[1] = AC_TABLE[clip(q, 127)];
+			m[2] = DC_TABLE[clip(q + y2Dc, 127)] * 2;
+			m[3] = Math.max(8, (AC_TABLE[clip(q + y2Ac, 127)] * 101581) >> 16);
+			m[4] = DC_TABLE[clip(q + uvDc, 117)];
+			m[5] = AC_TABLE[clip(q + uvAc, 127)];
+		}
+	}
+
+	private void readProbabilities() {
+		for (int t = 0; t < 4; t++)
+			for (int b = 0; b < 8; b++)
+				for (int c = 0; c < 3; c++)
+					for (int p = 0; p < 11; p++)
+						proba[t][b][c][p] = header.readBit(COEFFS_UPDATE_PROBA[t][b][c][p]) == 1 ? header.readLiteral(8)
+								: COEFFS_PROBA[t][b][c][p];
+		useSkipProba = header.readBit(128) == 1;
+		if (useSkipProba)
+			skipProba = header.readLiteral(8);
+	}
+
+	private static int clip(int value, int max) {
+		return value < 0 ? 0 : value > max ? max : value;
+	}
+
+	int getWidth() {
+		return width;
+	}
+
+	int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Allocates the planes of the frame. Their rows are filled by successive
+	 * calls to {@link #decodeRow()}.
+	 */
+	VP8Frame begin() {
+		yStride = mbWidth * 16;
+		uvStride = mbWidth * 8;
+		yPlane = new byte[yStride * mbHeight * 16];
+		uPlane = new byte[uvStride * mbHeight * 8];
+		vPlane = new byte[uvStride * mbHeight * 8];
+		yTop = new byte[yStride];
+		uTop = new byte[uvStride];
+		vTop = new byte[uvStride];
+		topModes = new int[mbWidth * 4];
+		topNz = new int[mbWidth * 9];
+		mbSegment = new byte[mbWidth];
+		mbInner = new boolean[mbWidth];
+		mbIs4x4 = new boolean[mbWidth];
+		computeFilterStrengths();
+		return new VP8Frame(width, height, yPlane, uPlane, vPlane, yStride, uvStride);
+	}
+
+	boolean hasMoreRows() {
+		return mbRow < mbHeight;
+	}
+
+	/**
+	 * Decodes, reconstructs and filters the next macroblock row. Intra prediction
+	 * reads the unfiltered samples of the row above, which are kept aside before
+	 * the row is filtered.
+	 *
+	 * @return the number of pixel rows of the frame that are final, including
+	 *         the chroma rows needed to upsample them
+	 */
+	int decodeRow() {
+		int mbY = mbRow++;
+		BoolDecoder tokens = partitions[mbY & (partitions.length - 1)];
+		for (int i = 0; i < 4; i++)
+			leftModes[i] = B_DC_PRED;
+		for (int i = 0; i < 9; i++)
+			leftNz[i] = 0;
+		for (int mbX = 0; mbX < mbWidth; mbX++)
+			decodeMacroblock(tokens, mbX, mbY);
+		System.arraycopy(yPlane, (mbY * 16 + 15) * yStride, yTop, 0, yStride);
+		System.arraycopy(uPlane, (mbY * 8 + 7) * uvStride, uTop, 0, uvStride);
+		System.arraycopy(vPlane, (mbY * 8 + 7) * uvStride, vTop, 0, uvStride);
+		if (filterType > 0)
+			for (int mbX = 0; mbX < mbWidth; mbX++)
+				filterMacroblock(mbX, mbY);
+		return mbRow == mbHeight ? height : Math.min(height, mbY * 16 + 8);
+	}
+
+	private void computeFilterStrengths() {
+		if (filterType == 0)
+			return;
+		for (int s = 0; s < 4; s++) {
+			int baseLevel;
+			if (useSegment) {
+				baseLevel = segmentFilterStrength[s];
+				if (!absoluteDelta)
+					baseLevel += filterLevel;
+			} else
+				baseLevel = filterLevel;
+			for (int i4x4 = 0; i4x4 <= 1; i4x4++) {
+				int level = baseLevel;
+				if (useLfDelta) {
+					level += refLfDelta[0];
+					if (i4x4 == 1)
+						level += modeLfDelta[0];
+				}
+				level = level < 0 ? 0 : level > 63 ? 63 : level;
+				if (level > 0) {
+					int innerLevel = level;
+					if (sharpness > 0) {
+						innerLevel >>= sharpness > 4 ? 2 : 1;
+						if (innerLevel > 9 - sharpness)
+							innerLevel = 9 - sharpness;
+					}
+					if (innerLevel < 1)
+						innerLevel = 1;
+					filterInnerLevel[s][i4x4] = innerLevel;
+					filterLimit[s][i4x4] = 2 * level + innerLevel;
+					filterHevThreshold[s][i4x4] = level >= 40 ? 2 : level >= 15 ? 1 : 0;
+				} else
+					filterLimit[s][i4x4] = 0;
+			}
+		}
+	}
+
+	private void decodeMacroblock(BoolDecoder tokens, int mbX, int mbY) {
+		int segment = 0;
+		if (updateMap)
+			segment = header.readBit(segmentProba[0]) == 0 ? header.readBit(segmentProba[1])
+					: header.readBit(segmentProba[2]) + 2;
+		boolean skip = useSkipProba && header.readBit(skipProba) == 1;
+		boolean is4x4 = header.readBit(145) == 0;
+		int yMode = B_DC_PRED;
+		if (!is4x4) {
+			yMode = header.readBit(156) == 1 ? (header.readBit(128) == 1 ? TM_PRED : H_PRED)
+					: (header.readBit(163) == 1 ? V_PRED : DC_PRED);
+			for (int i = 0; i < 4; i++) {
+				topModes[mbX * 4 + i] = yMode;
+				leftModes[i] = yMode;
+			}
+		} else
+			for (int y = 0; y < 4; y++) {
+				int mode = leftModes[y];
+				for (int x = 0; x < 4; x++) {
+					int[] probability = BMODES_PROBA[topModes[mbX * 4 + x]][mode];
+					int i = YMODES_INTRA4[header.readBit(probability[0])];
+					while (i > 0)
+						i = YMODES_INTRA4[2 * i + header.readBit(probability[i])];
+					mode = -i;
+					topModes[mbX * 4 + x] = mode;
+					modes[y * 4 + x] = mode;
+				}
+				leftModes[y] = mode;
+			}
+		int uvMode = header.readBit(142) == 0 ? DC_PRED
+				: header.readBit(114) == 0 ? V_PRED : header.readBit(183) == 1 ? TM_PRED : H_PRED;
+
+		boolean hasCoeffs;
+		if (skip) {
+			int[] top = topNz;
+			int base = mbX * 9;
+			for (int i = 0; i < 8; i++) {
+				top[base + i] = 0;
+				leftNz[i] = 0;
+			}
+			if (!is4x4) {
+				top[base + 8] = 0;
+				leftNz[8] = 0;
+			}
+			for (int i = 0; i < 24; i++)
+				nonZero[i] = false;
+			hasCoeffs = false;
+		} else
+			hasCoeffs = readResiduals(tokens, mbX, segment, is4x4);
+
+		mbSegment[mbX] = (byte) segment;
+		mbInner[mbX] = is4x4 || hasCoeffs;
+		mbIs4x4[mbX] = is4x4;
+		reconstruct(mbX, mbY, is4x4, yMode, uvMode);
+	}
+
+	private boolean readResiduals(BoolDecoder tokens, int mbX, int segment, boolean is4x4) {
+		int[] q = dequant[segment];
+		int[] top = topNz;
+		int base = mbX * 9;
+		for (int i = 0; i < 384; i++)
+			coeffs[i] = 0;
+		boolean any = false;
+		int first;
+		int[][][] acProba;
+		if (!is4x4) {
+			int[] dc = dcCoeffs;
+			for (int i = 0; i < 16; i++)
+				dc[i] = 0;
+			int ctx = top[base + 8] + leftNz[8];
+			int nz = readCoeffs(tokens, proba[1], ctx, q[2], q[3], 0, dc, 0);
+			int flag = nz > 0 ? 1 : 0;
+			top[base + 8] = flag;
+			leftNz[8] = flag;
+			inverseWalshHadamard(dc, coeffs);
+			first = 1;
+			acProba = proba[0];
+		} else {
+			first = 0;
+			acProba = proba[3];
+		}
+		for (int y = 0; y < 4; y++)
+			for (int x = 0; x < 4; x++) {
+				int n = y * 4 + x;
+				int ctx = leftNz[y] + top[base + x];
+				int nz = readCoeffs(tokens, acProba, ctx, q[0], q[1], first, coeffs, n * 16);
+				int flag = nz > first ? 1 : 0;
+				leftNz[y] = flag;
+				top[base + x] = flag;
+				nonZero[n] = nz > 1 || coeffs[n * 16] != 0;
+				any |= nonZero[n];
+			}
+		for (int ch = 0; ch < 2; ch++)
+			for (int y = 0; y < 2; y++)
+				for (int x = 0; x < 2; x++) {
+					int n = 16 + ch * 4 + y * 2 + x;
+					int ctx = leftNz[4 + ch * 2 + y] + top[base + 4 + ch * 2 + x];
+					int nz = readCoeffs(tokens, proba[2], ctx, q[4], q[5], 0, coeffs, n * 16);
+					int flag = nz > 0 ? 1 : 0;
+					leftNz[4 + ch * 2 + y] = flag;
+					top[base + 4 + ch * 2 + x] = flag;
+					nonZero[n] = nz > 1 || coeffs[n * 16] != 0;
+					any |= nonZero[n];
+				}
+		return any;
+	}
+
+	private static int readCoeffs(BoolDecoder br, int[][][] probas, int ctx, int dc, int ac, int n, int[] out,
+			int offset) {
+		int[] p = probas[BANDS[n]][ctx];
+		for (; n < 16; n++) {
+			if (br.readBit(p[0]) == 0)
+				return n;
+			while (br.readBit(p[1]) == 0) {
+				p = probas[BANDS[++n]][0];
+				if (n == 16)
+					return 16;
+			}
+			int[][] next = probas[BANDS[n + 1]];
+			int v;
+			if (br.readBit(p[2]) == 0) {
+				v = 1;
+				p = next[1];
+			} else {
+				v = readLargeValue(br, p);
+				p = next[2];
+			}
+			if (br.readBit(128) == 1)
+				v = -v;
+			out[offset + ZIGZAG[n]] = v * (n > 0 ? ac : dc);
+		}
+		return 16;
+	}
+
+	private static int readLargeValue(BoolDecoder br, int[] p) {
+		if (br.readBit(p[3]) == 0) {
+			if (br.readBit(p[4]) == 0)
+				return 2;
+			return 3 + br.readBit(p[5]);
+		}
+		if (br.readBit(p[6]) == 0) {
+			if (br.readBit(p[7]) == 0)
+				return 5 + br.readBit(159);
+			return 7 + 2 * br.readBit(165) + br.readBit(145);
+		}
+		int bit1 = br.readBit(p[8]);
+		int bit0 = br.readBit(p[9 + bit1]);
+		int cat = 2 * bit1 + bit0;
+		int v = 0;
+		for (int probability : CAT_PROBA[cat])
+			v += v + br.readBit(probability);
+		return v + 3 + (8 << cat);
+	}
+
+	private void inverseWalshHadamard(int[] in, int[] out) {
+		int[] tmp = transformBuffer;
+		for (int i = 0; i < 4; i++) {
+			int a0 = in[i] + in[12 + i];
+			int a1 = in[4 + i] + in[8 + i];
+			int a2 = in[4 + i] - in[8 + i];
+			int a3 = in[i] - in[12 + i];
+			tmp[i] = a0 + a1;
+			tmp[8 + i] = a0 - a1;
+			tmp[4 + i] = a3 + a2;
+			tmp[12 + i] = a3 - a2;
+		}
+		for (int i = 0; i < 4; i++) {
+			int dc = tmp[i * 4] + 3;
+			int a0 = dc + tmp[3 + i * 4];
+			int a1 = tmp[1 + i * 4] + tmp[2 + i * 4];
+			int a2 = tmp[1 + i * 4] - tmp[2 + i * 4];
+			int a3 = dc - tmp[3 + i * 4];
+			out[i * 64] = (a0 + a1) >> 3;
+			out[i * 64 + 16] = (a3 + a2) >> 3;
+			out[i * 64 + 32] = (a0 - a1) >> 3;
+			out[i * 64 + 48] = (a3 - a2) >> 3;
+		}
+	}
+
+	private static int mul1(int a) {
+		return ((a * 20091) >> 16) + a;
+	}
+
+	private static int mul2(int a) {
+		return (a * 35468) >> 16;
+	}
+
+	private void inverseTransform(int[] in, int offset, int[] dst, int position, int stride) {
+		int[] tmp = transformBuffer;
+		for (int i = 0; i < 4; i++) {
+			int a = in[offset + i] + in[offset + 8 + i];
+			int b = in[offset + i] - in[offset + 8 + i];
+			int c = mul2(in[offset + 4 + i]) - mul1(in[offset + 12 + i]);
+			int d = mul1(in[offset + 4 + i]) + mul2(in[offset + 12 + i]);
+			tmp[i * 4] = a + d;
+			tmp[i * 4 + 1] = b + c;
+			tmp[i * 4 + 2] = b - c;
+			tmp[i * 4 + 3] = a - d;
+		}
+		for (int i = 0; i < 4; i++) {
+			int dc = tmp[i] + 4;
+			int a = dc + tmp[8 + i];
+			int b = dc - tmp[8 + i];
+			int c = mul2(tmp[4 + i]) - mul1(tmp[12 + i]);
+			int d = mul1(tmp[4 + i]) + mul2(tmp[12 + i]);
+			int row = position + i * stride;
+			dst[row] = clip255(dst[row] + ((a + d) >> 3));
+			dst[row + 1] = clip255(dst[row + 1] + ((b + c) >> 3));
+			dst[row + 2] = clip255(dst[row + 2] + ((b - c) >> 3));
+			dst[row + 3] = clip255(dst[row + 3] + ((a - d) >> 3));
+		}
+	}
+
+	private static int clip255(int value) {
+		return value < 0 ? 0 : value > 255 ? 255 : value;
+	}
+
+	private void reconstruct(int mbX, int mbY, boolean is4x4, int yMode, int uvMode) {
+		loadWorkY(mbX, mbY, is4x4);
+		loadWorkUV(uWork, uPlane, uTop, mbX, mbY);
+		loadWorkUV(vWork, vPlane, vTop, mbX, mbY);
+		int origin = YS + 1;
+		if (is4x4)
+			for (int n = 0; n < 16; n++) {
+				int position = origin + (n >> 2) * 4 * YS + (n & 3) * 4;
+				predict4(yWork, position, modes[n]);
+				if (nonZero[n])
+					inverseTransform(coeffs, n * 16, yWork, position, YS);
+			}
+		else {
+			predict(yWork, origin, YS, 16, checkMode(mbX, mbY, yMode));
+			for (int n = 0; n < 16; n++)
+				if (nonZero[n])
+					inverseTransform(coeffs, n * 16, yWork, origin + (n >> 2) * 4 * YS + (n & 3) * 4, YS);
+		}
+		int uvOrigin = US + 1;
+		int mode = checkMode(mbX, mbY, uvMode);
+		predict(uWork, uvOrigin, US, 8, mode);
+		predict(vWork, uvOrigin, US, 8, mode);
+		for (int n = 0; n < 4; n++) {
+			int position = uvOrigin + (n >> 1) * 4 * US + (n & 1) * 4;
+			if (nonZero[16 + n])
+				inverseTransform(coeffs, (16 + n) * 16, uWork, position, US);
+			if (nonZero[20 + n])
+				inverseTransform(coeffs, (20 + n) * 16, vWork, position, US);
+		}
+		storeWork(yWork, YS, 16, yPlane, yStride, mbX, mbY);
+		storeWork(uWork, US, 8, uPlane, uvStride, mbX, mbY);
+		storeWork(vWork, US, 8, vPlane, uvStride, mbX, mbY);
+	}
+
+	private void loadWorkY(int mbX, int mbY, boolean is4x4) {
+		int[] work = yWork;
+		if (mbY == 0)
+			for (int x = 0; x < YS; x++)
+				work[x] = 127;
+		else {
+			int column = mbX * 16;
+			work[0] = mbX == 0 ? 129 : yTop[column - 1] & 0xFF;
+			for (int x = 0; x < 16; x++)
+				work[1 + x] = yTop[column + x] & 0xFF;
+			for (int x = 16; x < 20; x++)
+				work[1 + x] = mbX == mbWidth - 1 ? yTop[column + 15] & 0xFF : yTop[column + x] & 0xFF;
+		}
+		for (int y = 0; y < 16; y++)
+			work[(y + 1) * YS] = mbX == 0 ? 129 : yPlane[(mbY * 16 + y) * yStride + mbX * 16 - 1] & 0xFF;
+		if (is4x4)
+			for (int y = 3; y < 15; y += 4)
+				for (int x = 16; x < 20; x++)
+					work[(y + 1) * YS + 1 + x] = work[1 + x];
+	}
+
+	private void loadWorkUV(int[] work, byte[] plane, byte[] top, int mbX, int mbY) {
+		if (mbY == 0)
+			for (int x = 0; x < US; x++)
+				work[x] = 127;
+		else {
+			int column = mbX * 8;
+			work[0] = mbX == 0 ? 129 : top[column - 1] & 0xFF;
+			for (int x = 0; x < 8; x++)
+				work[1 + x] = top[column + x] & 0xFF;
+		}
+		for (int y = 0; y < 8; y++)
+			work[(y + 1) * US] = mbX == 0 ? 129 : plane[(mbY * 8 + y) * uvStride + mbX * 8 - 1] & 0xFF;
+	}
+
+	private static void storeWork(int[] work, int workStride, int size, byte[] plane, int stride, int mbX,
+			int mbY) {
+		for (int y = 0; y < size; y++) {
+			int source = (y + 1) * workStride + 1;
+			int target = (mbY * size + y) * stride + mbX * size;
+			for (int x = 0; x < size; x++)
+				plane[target + x] = (byte) work[source + x];
+		}
+	}
+
+	private static final int DC_PRED_NOTOP = 10;
+	private static final int DC_PRED_NOLEFT = 11;
+	private static final int DC_PRED_NOTOPLEFT = 12;
+
+	private static int checkMode(int mbX, int mbY, int mode) {
+		if (mode == DC_PRED) {
+			if (mbX == 0)
+				return mbY == 0 ? DC_PRED_NOTOPLEFT : DC_PRED_NOLEFT;
+			return mbY == 0 ? DC_PRED_NOTOP : DC_PRED;
+		}
+		return mode;
+	}
+
+	private static void predict(int[] dst, int position, int stride, int size, int mode) {
+		int shift = size == 16 ? 4 : 3;
+		switch (mode) {
+		case DC_PRED: {
+			int dc = size;
+			for (int i = 0; i < size; i++)
+				dc += dst[position - stride + i] + dst[position - 1 + i * stride];
+			fill(dst, position, stride, size, dc >> (shift + 1));
+			break;
+		}
+		case DC_PRED_NOTOP: {
+			int dc = size >> 1;
+			for (int i = 0; i < size; i++)
+				dc += dst[position - 1 + i * stride];
+			fill(dst, position, stride, size, dc >> shift);
+			break;
+		}
+		case DC_PRED_NOLEFT: {
+			int dc = size >> 1;
+			for (int i = 0; i < size; i++)
+				dc += dst[position - stride + i];
+			fill(dst, position, stride, size, dc >> shift);
+			break;
+		}
+		case DC_PRED_NOTOPLEFT:
+			fill(dst, position, stride, size, 0x80);
+			break;
+		case V_PRED:
+			for (int y = 0; y < size; y++)
+				System.arraycopy(dst, position - stride, dst, position + y * stride, size);
+			break;
+		case H_PRED:
+			for (int y = 0; y < size; y++) {
+				int row = position + y * stride;
+				int left = dst[row - 1];
+				for (int x = 0; x < size; x++)
+					dst[row + x] = left;
+			}
+			break;
+		case TM_PRED:
+			trueMotion(dst, position, stride, size);
+			break;
+		}
+	}
+
+	private static void fill(int[] dst, int position, int stride, int size, int value) {
+		for (int y = 0; y < size; y++) {
+			int row = position + y * stride;
+			for (int x = 0; x < size; x++)
+				dst[row + x] = value;
+		}
+	}
+
+	private static void trueMotion(int[] dst, int position, int stride, int size) {
+		int topLeft = dst[position - stride - 1];
+		for (int y = 0; y < size; y++) {
+			int row = position + y * stride;
+			int left = dst[row - 1] - topLeft;
+			for (int x = 0; x < size; x++)
+				dst[row + x] = clip255(dst[position - stride + x] + left);
+		}
+	}
+
+	private static int avg3(int a, int b, int c) {
+		return (a + 2 * b + c + 2) >> 2;
+	}
+
+	private static int avg2(int a, int b) {
+		return (a + b + 1) >> 1;
+	}
+
+	private static void predict4(int[] d, int p, int mode) {
+		int s = YS;
+		int top = p - s;
+		switch (mode) {
+		case B_DC_PRED: {
+			int dc = 4;
+			for (int i = 0; i < 4; i++)
+				dc += d[top + i] + d[p - 1 + i * s];
+			fill(d, p, s, 4, dc >> 3);
+			break;
+		}
+		case B_TM_PRED:
+			trueMotion(d, p, s, 4);
+			break;
+		case B_VE_PRED: {
+			int v0 = avg3(d[top - 1], d[top], d[top + 1]);
+			int v1 = avg3(d[top], d[top + 1], d[top + 2]);
+			int v2 = avg3(d[top + 1], d[top + 2], d[top + 3]);
+			int v3 = avg3(d[top + 2], d[top + 3], d[top + 4]);
+			for (int y = 0; y < 4; y++) {
+				int row = p + y * s;
+				d[row] = v0;
+				d[row + 1] = v1;
+				d[row + 2] = v2;
+				d[row + 3] = v3;
+			}
+			break;
+		}
+		case B_HE_PRED: {
+			int a = d[p - 1 - s];
+			int b = d[p - 1];
+			int c = d[p - 1 + s];
+			int e = d[p - 1 + 2 * s];
+			int f = d[p - 1 + 3 * s];
+			fillRow(d, p, avg3(a, b, c));
+			fillRow(d, p + s, avg3(b, c, e));
+			fillRow(d, p + 2 * s, avg3(c, e, f));
+			fillRow(d, p + 3 * s, avg3(e, f, f));
+			break;
+		}
+		case B_RD_PRED: {
+			int i = d[p - 1], j = d[p - 1 + s], k = d[p - 1 + 2 * s], l = d[p - 1 + 3 * s];
+			int x = d[top - 1], a = d[top], b = d[top + 1], c = d[top + 2], e = d[top + 3];
+			set(d, p, 0, 3, avg3(j, k, l));
+			int v = avg3(i, j, k);
+			set(d, p, 1, 3, v);
+			set(d, p, 0, 2, v);
+			v = avg3(x, i, j);
+			set(d, p, 2, 3, v);
+			set(d, p, 1, 2, v);
+			set(d, p, 0, 1, v);
+			v = avg3(a, x, i);
+			set(d, p, 3, 3, v);
+			set(d, p, 2, 2, v);
+			set(d, p, 1, 1, v);
+			set(d, p, 0, 0, v);
+			v = avg3(b, a, x);
+			set(d, p, 3, 2, v);
+			set(d, p, 2, 1, v);
+			set(d, p, 1, 0, v);
+			v = avg3(c, b, a);
+			set(d, p, 3, 1, v);
+			set(d, p, 2, 0, v);
+			set(d, p, 3, 0, avg3(e, c, b));
+			break;
+		}
+		case B_LD_PRED: {
+			int a = d[top], b = d[top + 1], c = d[top + 2], e = d[top + 3];
+			int f = d[top + 4], g = d[top + 5], h = d[top + 6], k = d[top + 7];
+			set(d, p, 0, 0, avg3(a, b, c));
+			int v = avg3(b, c, e);
+			set(d, p, 1, 0, v);
+			set(d, p, 0, 1, v);
+			v = avg3(c, e, f);
+			set(d, p, 2, 0, v);
+			set(d, p, 1, 1, v);
+			set(d, p, 0, 2, v);
+			v = avg3(e, f, g);
+			set(d, p, 3, 0, v);
+			set(d, p, 2, 1, v);
+			set(d, p, 1, 2, v);
+			set(d, p, 0, 3, v);
+			v = avg3(f, g, h);
+			set(d, p, 3, 1, v);
+			set(d, p, 2, 2, v);
+			set(d, p, 1, 3, v);
+			v = avg3(g, h, k);
+			set(d, p, 3, 2, v);
+			set(d, p, 2, 3, v);
+			set(d, p, 3, 3, avg3(h, k, k));
+			break;
+		}
+		case B_VR_PRED: {
+			int i = d[p - 1], j = d[p - 1 + s], k = d[p - 1 + 2 * s];
+			int x = d[top - 1], a = d[top], b = d[top + 1], c = d[top + 2], e = d[top + 3];
+			int v = avg2(x, a);
+			set(d, p, 0, 0, v);
+			set(d, p, 1, 2, v);
+			v = avg2(a, b);
+			set(d, p, 1, 0, v);
+			set(d, p, 2, 2, v);
+			v = avg2(b, c);
+			set(d, p, 2, 0, v);
+			set(d, p, 3, 2, v);
+			set(d, p, 3, 0, avg2(c, e));
+			set(d, p, 0, 3, avg3(k, j, i));
+			set(d, p, 0, 2, avg3(j, i, x));
+			v = avg3(i, x, a);
+			set(d, p, 0, 1, v);
+			set(d, p, 1, 3, v);
+			v = avg3(x, a, b);
+			set(d, p, 1, 1, v);
+			set(d, p, 2, 3, v);
+			v = avg3(a, b, c);
+			set(d, p, 2, 1, v);
+			set(d, p, 3, 3, v);
+			set(d, p, 3, 1, avg3(b, c, e));
+			break;
+		}
+		case B_VL_PRED: {
+			int a = d[top], b = d[top + 1], c = d[top + 2], e = d[top + 3];
+			int f = d[top + 4], g = d[top + 5], h = d[top + 6], k = d[top + 7];
+			set(d, p, 0, 0, avg2(a, b));
+			int v = avg2(b, c);
+			set(d, p, 1, 0, v);
+			set(d, p, 0, 2, v);
+			v = avg2(c, e);
+			set(d, p, 2, 0, v);
+			set(d, p, 1, 2, v);
+			v = avg2(e, f);
+			set(d, p, 3, 0, v);
+			set(d, p, 2, 2, v);
+			set(d, p, 0, 1, avg3(a, b, c));
+			v = avg3(b, c, e);
+			set(d, p, 1, 1, v);
+			set(d, p, 0, 3, v);
+			v = avg3(c, e, f);
+			set(d, p, 2, 1, v);
+			set(d, p, 1, 3, v);
+			v = avg3(e, f, g);
+			set(d, p, 3, 1, v);
+			set(d, p, 2, 3, v);
+			set(d, p, 3, 2, avg3(f, g, h));
+			set(d, p, 3, 3, avg3(g, h, k));
+			break;
+		}
+		case B_HD_PRED: {
+			int i = d[p - 1], j = d[p - 1 + s], k = d[p - 1 + 2 * s], l = d[p - 1 + 3 * s];
+			int x = d[top - 1], a = d[top], b = d[top + 1], c = d[top + 2];
+			int v = avg2(i, x);
+			set(d, p, 0, 0, v);
+			set(d, p, 2, 1, v);
+			v = avg2(j, i);
+			set(d, p, 0, 1, v);
+			set(d, p, 2, 2, v);
+			v = avg2(k, j);
+			set(d, p, 0, 2, v);
+			set(d, p, 2, 3, v);
+			set(d, p, 0, 3, avg2(l, k));
+			set(d, p, 3, 0, avg3(a, b, c));
+			set(d, p, 2, 0, avg3(x, a, b));
+			v = avg3(i, x, a);
+			set(d, p, 1, 0, v);
+			set(d, p, 3, 1, v);
+			v = avg3(j, i, x);
+			set(d, p, 1, 1, v);
+			set(d, p, 3, 2, v);
+			v = avg3(k, j, i);
+			set(d, p, 1, 2, v);
+			set(d, p, 3, 3, v);
+			set(d, p, 1, 3, avg3(l, k, j));
+			break;
+		}
+		case B_HU_PRED: {
+			int i = d[p - 1], j = d[p - 1 + s], k = d[p - 1 + 2 * s], l = d[p - 1 + 3 * s];
+			set(d, p, 0, 0, avg2(i, j));
+			int v = avg2(j, k);
+			set(d, p, 2, 0, v);
+			set(d, p, 0, 1, v);
+			v = avg2(k, l);
+			set(d, p, 2, 1, v);
+			set(d, p, 0, 2, v);
+			set(d, p, 1, 0, avg3(i, j, k));
+			v = avg3(j, k, l);
+			set(d, p, 3, 0, v);
+			set(d, p, 1, 1, v);
+			v = avg3(k, l, l);
+			set(d, p, 3, 1, v);
+			set(d, p, 1, 2, v);
+			set(d, p, 3, 2, l);
+			set(d, p, 2, 2, l);
+			set(d, p, 0, 3, l);
+			set(d, p, 1, 3, l);
+			set(d, p, 2, 3, l);
+			set(d, p, 3, 3, l);
+			break;
+		}
+		}
+	}
+
+	private static void set(int[] d, int p, int x, int y, int value) {
+		d[p + x + y * YS] = value;
+	}
+
+	private static void fillRow(int[] d, int p, int value) {
+		d[p] = value;
+		d[p + 1] = value;
+		d[p + 2] = value;
+		d[p + 3] = value;
+	}
+
+	private void filterMacroblock(int mbX, int mbY) {
+		int segment = mbSegment[mbX];
+		boolean inner = mbInner[mbX];
+		int i4x4 = mbIs4x4[mbX] ? 1 : 0;
+		int limit = filterLimit[segment][i4x4];
+		if (limit == 0)
+			return;
+		int innerLevel = filterInnerLevel[segment][i4x4];
+		int hevThreshold = filterHevThreshold[segment][i4x4];
+		int y = mbY * 16 * yStride + mbX * 16;
+		int uv = mbY * 8 * uvStride + mbX * 8;
+		if (filterType == 1) {
+			if (mbX > 0)
+				simpleFilter(yPlane, y, 1, yStride, limit + 4);
+			if (inner)
+				for (int i = 4; i < 16; i += 4)
+					simpleFilter(yPlane, y + i, 1, yStride, limit);
+			if (mbY > 0)
+				simpleFilter(yPlane, y, yStride, 1, limit + 4);
+			if (inner)
+				for (int i = 4; i < 16; i += 4)
+					simpleFilter(yPlane, y + i * yStride, yStride, 1, limit);
+		} else {
+			if (mbX > 0) {
+				edgeFilter(yPlane, y, 1, yStride, 16, limit + 4, innerLevel, hevThreshold, true);
+				edgeFilter(uPlane, uv, 1, uvStride, 8, limit + 4, innerLevel, hevThreshold, true);
+				edgeFilter(vPlane, uv, 1, uvStride, 8, limit + 4, innerLevel, hevThreshold, true);
+			}
+			if (inner) {
+				for (int i = 4; i < 16; i += 4)
+					edgeFilter(yPlane, y + i, 1, yStride, 16, limit, innerLevel, hevThreshold, false);
+				edgeFilter(uPlane, uv + 4, 1, uvStride, 8, limit, innerLevel, hevThreshold, false);
+				edgeFilter(vPlane, uv + 4, 1, uvStride, 8, limit, innerLevel, hevThreshold, false);
+			}
+			if (mbY > 0) {
+				edgeFilter(yPlane, y, yStride, 1, 16, limit + 4, innerLevel, hevThreshold, true);
+				edgeFilter(uPlane, uv, uvStride, 1, 8, limit + 4, innerLevel, hevThreshold, true);
+				edgeFilter(vPlane, uv, uvStride, 1, 8, limit + 4, innerLevel, hevThreshold, true);
+			}
+			if (inner) {
+				for (int i = 4; i < 16; i += 4)
+					edgeFilter(yPlane, y + i * yStride, yStride, 1, 16, limit, innerLevel, hevThreshold, false);
+				edgeFilter(uPlane, uv + 4 * uvStride, uvStride, 1, 8, limit, innerLevel, hevThreshold, false);
+				edgeFilter(vPlane, uv + 4 * uvStride, uvStride, 1, 8, limit, innerLevel, hevThreshold, false);
+			}
+		}
+	}
+
+	private static void simpleFilter(byte[] p, int position, int step, int stride, int threshold) {
+		int threshold2 = 2 * threshold + 1;
+		for (int i = 0; i < 16; i++) {
+			int q = position + i * stride;
+			if (needsFilter(p, q, step, threshold2))
+				doFilter2(p, q, step);
+		}
+	}
+
+	private static void edgeFilter(byte[] p, int position, int step, int stride, int size, int threshold,
+			int innerLevel, int hevThreshold, boolean macroblockEdge) {
+		int threshold2 = 2 * threshold + 1;
+		for (int i = 0; i < size; i++) {
+			int q = position + i * stride;
+			if (needsFilter2(p, q, step, threshold2, innerLevel)) {
+				if (hev(p, q, step, hevThreshold))
+					doFilter2(p, q, step);
+				else if (macroblockEdge)
+					doFilter6(p, q, step);
+				else
+					doFilter4(p, q, step);
+			}
+		}
+	}
+
+	private static int sclip1(int v) {
+		return v < -128 ? -128 : v > 127 ? 127 : v;
+	}
+
+	private static int sclip2(int v) {
+		return v < -16 ? -16 : v > 15 ? 15 : v;
+	}
+
+	private static void doFilter2(byte[] p, int q, int step) {
+		int p1 = p[q - 2 * step] & 0xFF, p0 = p[q - step] & 0xFF, q0 = p[q] & 0xFF, q1 = p[q + step] & 0xFF;
+		int a = 3 * (q0 - p0) + sclip1(p1 - q1);
+		int a1 = sclip2((a + 4) >> 3);
+		int a2 = sclip2((a + 3) >> 3);
+		p[q - step] = (byte) clip255(p0 + a2);
+		p[q] = (byte) clip255(q0 - a1);
+	}
+
+	private static void doFilter4(byte[] p, int q, int step) {
+		int p1 = p[q - 2 * step] & 0xFF, p0 = p[q - step] & 0xFF, q0 = p[q] & 0xFF, q1 = p[q + step] & 0xFF;
+		int a = 3 * (q0 - p0);
+		int a1 = sclip2((a + 4) >> 3);
+		int a2 = sclip2((a + 3) >> 3);
+		int a3 = (a1 + 1) >> 1;
+		p[q - 2 * step] = (byte) clip255(p1 + a3);
+		p[q - step] = (byte) clip255(p0 + a2);
+		p[q] = (byte) clip255(q0 - a1);
+		p[q + step] = (byte) clip255(q1 - a3);
+	}
+
+	private static void doFilter6(byte[] p, int q, int step) {
+		int p2 = p[q - 3 * step] & 0xFF, p1 = p[q - 2 * step] & 0xFF, p0 = p[q - step] & 0xFF;
+		int q0 = p[q] & 0xFF, q1 = p[q + step] & 0xFF, q2 = p[q + 2 * step] & 0xFF;
+		int a = sclip1(3 * (q0 - p0) + sclip1(p1 - q1));
+		int a1 = (27 * a + 63) >> 7;
+		int a2 = (18 * a + 63) >> 7;
+		int a3 = (9 * a + 63) >> 7;
+		p[q - 3 * step] = (byte) clip255(p2 + a3);
+		p[q - 2 * step] = (byte) clip255(p1 + a2);
+		p[q - step] = (byte) clip255(p0 + a1);
+		p[q] = (byte) clip255(q0 - a1);
+		p[q + step] = (byte) clip255(q1 - a2);
+		p[q + 2 * step] = (byte) clip255(q2 - a3);
+	}
+
+	private static boolean hev(byte[] p, int q, int step, int threshold) {
+		int p1 = p[q - 2 * step] & 0xFF, p0 = p[q - step] & 0xFF, q0 = p[q] & 0xFF, q1 = p[q + step] & 0xFF;
+		return Math.abs(p1 - p0) > threshold || Math.abs(q1 - q0) > threshold;
+	}
+
+	private static boolean needsFilter(byte[] p, int q, int step, int threshold) {
+		int p1 = p[q - 2 * step] & 0xFF, p0 = p[q - step] & 0xFF, q0 = p[q] & 0xFF, q1 = p[q + step] & 0xFF;
+		return 4 * Math.abs(p0 - q0) + Math.abs(p1 - q1) <= threshold;
+	}
+
+	private static boolean needsFilter2(byte[] p, int q, int step, int threshold, int innerLevel) {
+		int p3 = p[q - 4 * step] & 0xFF, p2 = p[q - 3 * step] & 0xFF, p1 = p[q - 2 * step] & 0xFF;
+		int p0 = p[q - step] & 0xFF, q0 = p[q] & 0xFF;
+		int q1 = p[q + step] & 0xFF, q2 = p[q + 2 * step] & 0xFF, q3 = p[q + 3 * step] & 0xFF;
+		if (4 * Math.abs(p0 - q0) + Math.abs(p1 - q1) > threshold)
+			return false;
+		return Math.abs(p3 - p2) <= innerLevel && Math.abs(p2 - p1) <= innerLevel && Math.abs(p1 - p0) <= innerLevel
+				&& Math.abs(q3 - q2) <= innerLevel && Math.abs(q2 - q1) <= innerLevel
+				&& Math.abs(q1 - q0) <= innerLevel;
+	}
+
+}
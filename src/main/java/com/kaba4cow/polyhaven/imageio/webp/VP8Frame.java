@@ -0,0 +1,90 @@
+package com.kaba4cow.polyhaven.imageio.webp;
+
+/**
+ * The decoded Y, U and V planes of a VP8 frame. Rows are converted to RGB with
+ * the same fancy chroma upsampling and fixed-point coefficients as the
+ * reference decoder.
+ */
+final class VP8Frame {
+
+	private final int width;
+	private final int height;
+	private final byte[] y;
+	private final byte[] u;
+	private final byte[] v;
+	private final int yStride;
+	private final int uvStride;
+
+	private final int[] uRow;
+	private final int[] vRow;
+
+	VP8Frame(int width, int height, byte[] y, byte[] u, byte[] v, int yStride, int uvStride) {
+		this.width = width;
+		this.height = height;
+		this.y = y;
+		this.u = u;
+		this.v = v;
+		this.yStride = yStride;
+		this.uvStride = uvStride;
+		this.uRow = new int[width];
+		this.vRow = new int[width];
+	}
+
+	/**
+	 * Converts one row of the frame into opaque ARGB pixels.
+	 */
+	void getRow(int row, int[] argb) {
+		int chromaHeight = (height + 1) >> 1;
+		int near;
+		int far;
+		if ((row & 1) == 1) {
+			near = (row - 1) >> 1;
+			far = Math.min((row + 1) >> 1, chromaHeight - 1);
+		} else {
+			near = row >> 1;
+			far = Math.max(near - 1, 0);
+		}
+		upsample(u, near * uvStride, far * uvStride, uRow);
+		upsample(v, near * uvStride, far * uvStride, vRow);
+		int luma = row * yStride;
+		for (int x = 0; x < width; x++)
+			argb[x] = 0xFF000000 | toRgb(y[luma + x] & 0xFF, uRow[x], vRow[x]);
+	}
+
+	private void upsample(byte[] plane, int nearRow, int farRow, int[] out) {
+		int last = (width - 1) >> 1;
+		int tl = plane[nearRow] & 0xFF;
+		int l = plane[farRow] & 0xFF;
+		out[0] = (3 * tl + l + 2) >> 2;
+		for (int k = 1; k <= last; k++) {
+			int t = plane[nearRow + k] & 0xFF;
+			int b = plane[farRow + k] & 0xFF;
+			int sum = tl + t + l + b + 8;
+			int diagonal1 = (sum + 2 * (t + l)) >> 3;
+			int diagonal2 = (sum + 2 * (tl + b)) >> 3;
+			out[2 * k - 1] = (diagonal1 + tl) >> 1;
+			out[2 * k] = (diagonal2 + t) >> 1;
+			tl = t;
+			l = b;
+		}
+		if ((width & 1) == 0)
+			out[width - 1] = (3 * tl + l + 2) >> 2;
+	}
+
+	private static int multHi(int value, int coefficient) {
+		return (value * coefficient) >> 8;
+	}
+
+	private static int clip8(int value) {
+		return (value & ~16383) == 0 ? value >> 6 : value < 0 ? 0 : 255;
+	}
+
+	private static int toRgb(int y, int u, int v) {
+		int luma = multHi(y, 19077);
+		int r = clip8(luma + multHi(v, 26149) - 14234);
+		int g = clip8(luma - multHi(u, 6419) - multHi(v, 13320) + 8708);
+		int b = clip8(luma + multHi(u, 33050) - 17685);
+		return r << 16 | g << 8 | b;
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.kaba4cow.polyhaven.imageio.webp;
+
+/**
+ * Reads the least-significant-bit-first bit stream of VP8L images. Reading past
+ * the end of the data yields zero bits and marks the stream as overrun.
+ */
+final class VP8LBitReader {
+
+	private final byte[] data;
+	private final int end;
+
+	private int position;
+	private long buffer;
+	private int count;
+	private int padding;
+
+	VP8LBitReader(byte[] data, int offset, int length) {
+		this.data = data;
+		this.position = offset;
+		this.end = offset + length;
+		fill();
+	}
+
+	private void fill() {
+		while (count <= 56) {
+			if (position < end)
+				buffer |= (long) (data[position++] & 0xFF) << count;
+			else
+				padding++;
+			count += 8;
+		}
+	}
+
+	int peekBits(int bits) {
+		return (int) buffer & ((1 << bits) - 1);
+	}
+
+	void skipBits(int bits) {
+		buffer >>>= bits;
+		count -= bits;
+		if (count <= 56)
+			fill();
+	}
+
+	int readBits(int bits) {
+		int value = peekBits(bits);
+		skipBits(bits);
+		return value;
+	}
+
+	boolean isOverrun() {
+		return count < padding * 8;
+	}
+
+}
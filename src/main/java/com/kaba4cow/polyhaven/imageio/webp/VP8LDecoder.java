@@ -0,0 +1,473 @@
+package com.kaba4cow.polyhaven.imageio.webp;
+
+import java.io.IOException;
+
+import javax.imageio.IIOException;
+
+/**
+ * Decoder of VP8L, the lossless format of WebP. Decodes the entropy-coded ARGB
+ * image and undoes its predictor, cross-color, subtract-green and
+ * color-indexing transforms.
+ */
+final class VP8LDecoder {
+
+	private static final int SIGNATURE = 0x2F;
+
+	private static final int PREDICTOR_TRANSFORM = 0;
+	private static final int CROSS_COLOR_TRANSFORM = 1;
+	private static final int SUBTRACT_GREEN_TRANSFORM = 2;
+	private static final int COLOR_INDEXING_TRANSFORM = 3;
+
+	private static final int LITERALS = 256;
+	private static final int LENGTH_CODES = 24;
+	private static final int DISTANCE_CODES = 40;
+	private static final int CODE_LENGTH_CODES = 19;
+
+	private static final int[] CODE_LENGTH_ORDER = { 17, 18, 0, 1, 2, 3, 4, 5, 16, 6, 7, 8, 9, 10, 11, 12, 13, 14,
+			15 };
+	private static final int[] REPEAT_EXTRA_BITS = { 2, 3, 7 };
+	private static final int[] REPEAT_OFFSETS = { 3, 3, 11 };
+
+	private static final int[] CODE_TO_PLANE = { //
+			0x18, 0x07, 0x17, 0x19, 0x28, 0x06, 0x27, 0x29, 0x16, 0x1a, 0x26, 0x2a, 0x38, 0x05, 0x37, 0x39, //
+			0x15, 0x1b, 0x36, 0x3a, 0x25, 0x2b, 0x48, 0x04, 0x47, 0x49, 0x14, 0x1c, 0x35, 0x3b, 0x46, 0x4a, //
+			0x24, 0x2c, 0x58, 0x45, 0x4b, 0x34, 0x3c, 0x03, 0x57, 0x59, 0x13, 0x1d, 0x56, 0x5a, 0x23, 0x2d, //
+			0x44, 0x4c, 0x55, 0x5b, 0x33, 0x3d, 0x68, 0x02, 0x67, 0x69, 0x12, 0x1e, 0x66, 0x6a, 0x22, 0x2e, //
+			0x54, 0x5c, 0x43, 0x4d, 0x65, 0x6b, 0x32, 0x3e, 0x78, 0x01, 0x77, 0x79, 0x53, 0x5d, 0x11, 0x1f, //
+			0x64, 0x6c, 0x42, 0x4e, 0x76, 0x7a, 0x21, 0x2f, 0x75, 0x7b, 0x31, 0x3f, 0x63, 0x6d, 0x52, 0x5e, //
+			0x00, 0x74, 0x7c, 0x41, 0x4f, 0x10, 0x20, 0x62, 0x6e, 0x30, 0x73, 0x7d, 0x51, 0x5f, 0x40, 0x72, //
+			0x7e, 0x61, 0x6f, 0x50, 0x71, 0x7f, 0x60, 0x70 };
+
+	private final VP8LBitReader reader;
+
+	private int width;
+	private int height;
+	private boolean alpha;
+
+	private VP8LDecoder(VP8LBitReader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Creates a decoder of a VP8L bitstream that starts with its five-byte
+	 * header.
+	 */
+	static VP8LDecoder open(byte[] data, int offset, int length) throws IOException {
+		if (length < 5 || (data[offset] & 0xFF) != SIGNATURE)
+			throw new IIOException("Invalid VP8L signature");
+		VP8LDecoder decoder = new VP8LDecoder(new VP8LBitReader(data, offset + 1, length - 1));
+		decoder.width = decoder.reader.readBits(14) + 1;
+		decoder.height = decoder.reader.readBits(14) + 1;
+		decoder.alpha = decoder.reader.readBits(1) == 1;
+		if (decoder.reader.readBits(3) != 0)
+			throw new IIOException("Unsupported VP8L version");
+		return decoder;
+	}
+
+	/**
+	 * Creates a decoder of a headerless VP8L bitstream of the given size, as
+	 * stored in the alpha chunk of lossy images.
+	 */
+	static VP8LDecoder openHeaderless(byte[] data, int offset, int length, int width, int height) {
+		VP8LDecoder decoder = new VP8LDecoder(new VP8LBitReader(data, offset, length));
+		decoder.width = width;
+		decoder.height = height;
+		decoder.alpha = true;
+		return decoder;
+	}
+
+	int getWidth() {
+		return width;
+	}
+
+	int getHeight() {
+		return height;
+	}
+
+	boolean hasAlpha() {
+		return alpha;
+	}
+
+	/**
+	 * Decodes the first rows of the image into ARGB pixels. The returned array
+	 * holds the whole image, of which only the requested rows are filled.
+	 */
+	int[] decode(int rows) throws IOException {
+		rows = Math.max(1, Math.min(rows, height));
+		int xsize = width;
+		Transform[] transforms = new Transform[4];
+		int[] order = new int[4];
+		int count = 0;
+		while (reader.readBits(1) == 1) {
+			int type = reader.readBits(2);
+			if (transforms[type] != null)
+				throw new IIOException("Repeated VP8L transform");
+			Transform transform = new Transform(type, xsize);
+			switch (type) {
+			case PREDICTOR_TRANSFORM:
+			case CROSS_COLOR_TRANSFORM:
+				transform.bits = reader.readBits(3) + 2;
+				int blockYsize = subSampleSize(height, transform.bits);
+				transform.data = decodeImageStream(subSampleSize(xsize, transform.bits), blockYsize, false,
+						blockYsize);
+				break;
+			case COLOR_INDEXING_TRANSFORM: {
+				int colors = reader.readBits(8) + 1;
+				transform.bits = colors > 16 ? 0 : colors > 4 ? 1 : colors > 2 ? 2 : 3;
+				int[] palette = decodeImageStream(colors, 1, false, 1);
+				transform.data = new int[1 << (8 >> transform.bits)];
+				transform.data[0] = palette[0];
+				for (int i = 1; i < colors; i++)
+					transform.data[i] = addPixels(palette[i], transform.data[i - 1]);
+				xsize = subSampleSize(xsize, transform.bits);
+				break;
+			}
+			default:
+				break;
+			}
+			transforms[type] = transform;
+			order[count++] = type;
+		}
+		int[] pixels = decodeImageStream(xsize, height, true, rows);
+		for (int i = count - 1; i >= 0; i--) {
+			Transform transform = transforms[order[i]];
+			switch (transform.type) {
+			case PREDICTOR_TRANSFORM:
+				inversePredictor(transform, pixels, rows);
+				break;
+			case CROSS_COLOR_TRANSFORM:
+				inverseCrossColor(transform, pixels, rows);
+				break;
+			case SUBTRACT_GREEN_TRANSFORM:
+				addGreen(pixels, transform.xsize * rows);
+				break;
+			case COLOR_INDEXING_TRANSFORM:
+				pixels = inverseColorIndexing(transform, pixels, rows);
+				break;
+			}
+		}
+		return pixels;
+	}
+
+	private static int subSampleSize(int size, int bits) {
+		return (size + (1 << bits) - 1) >> bits;
+	}
+
+	private int[] decodeImageStream(int xsize, int ysize, boolean level0, int rows) throws IOException {
+		int cacheBits = 0;
+		if (reader.readBits(1) == 1) {
+			cacheBits = reader.readBits(4);
+			if (cacheBits < 1 || cacheBits > 11)
+				throw new IIOException("Invalid VP8L color cache size");
+		}
+		int huffmanBits = 0;
+		int[] huffmanImage = null;
+		int huffmanXsize = 0;
+		int groupCount = 1;
+		if (level0 && reader.readBits(1) == 1) {
+			huffmanBits = reader.readBits(3) + 2;
+			huffmanXsize = subSampleSize(xsize, huffmanBits);
+			int huffmanYsize = subSampleSize(ysize, huffmanBits);
+			huffmanImage = decodeImageStream(huffmanXsize, huffmanYsize, false, huffmanYsize);
+			for (int i = 0; i < huffmanImage.length; i++) {
+				huffmanImage[i] = (huffmanImage[i] >> 8) & 0xFFFF;
+				groupCount = Math.max(groupCount, huffmanImage[i] + 1);
+			}
+		}
+		int cacheSize = cacheBits > 0 ? 1 << cacheBits : 0;
+		HuffmanTable[][] groups = new HuffmanTable[groupCount][];
+		int[] alphabets = { LITERALS + LENGTH_CODES + cacheSize, LITERALS, LITERALS, LITERALS, DISTANCE_CODES };
+		for (int g = 0; g < groupCount; g++) {
+			groups[g] = new HuffmanTable[5];
+			for (int j = 0; j < 5; j++)
+				groups[g][j] = readHuffmanCode(alphabets[j]);
+		}
+
+		int[] data = new int[xsize * ysize];
+		int[] cache = cacheSize > 0 ? new int[cacheSize] : null;
+		int cacheShift = 32 - cacheBits;
+		int total = xsize * rows;
+		int position = 0;
+		int col = 0;
+		int row = 0;
+		while (position < total) {
+			HuffmanTable[] group = huffmanImage == null ? groups[0]
+					: groups[huffmanImage[(row >> huffmanBits) * huffmanXsize + (col >> huffmanBits)]];
+			int code = group[0].readSymbol(reader);
+			if (code < LITERALS) {
+				int red = group[1].readSymbol(reader);
+				int blue = group[2].readSymbol(reader);
+				int alpha = group[3].readSymbol(reader);
+				int argb = alpha << 24 | red << 16 | code << 8 | blue;
+				data[position++] = argb;
+				if (cache != null)
+					cache[(argb * 0x1E35A7BD) >>> cacheShift] = argb;
+				if (++col == xsize) {
+					col = 0;
+					row++;
+				}
+			} else if (code < LITERALS + LENGTH_CODES) {
+				int length = readCopyValue(code - LITERALS);
+				int distance = planeCodeToDistance(xsize, readCopyValue(group[4].readSymbol(reader)));
+				if (position < distance || data.length - position < length)
+					throw new IIOException("Invalid VP8L backward reference");
+				for (int i = 0; i < length; i++, position++) {
+					int argb = data[position - distance];
+					data[position] = argb;
+					if (cache != null)
+						cache[(argb * 0x1E35A7BD) >>> cacheShift] = argb;
+				}
+				col += length;
+				while (col >= xsize) {
+					col -= xsize;
+					row++;
+				}
+			} else {
+				if (cache == null)
+					throw new IIOException("Invalid VP8L color cache reference");
+				int argb = cache[code - LITERALS - LENGTH_CODES];
+				data[position++] = argb;
+				cache[(argb * 0x1E35A7BD) >>> cacheShift] = argb;
+				if (++col == xsize) {
+					col = 0;
+					row++;
+				}
+			}
+			if (reader.isOverrun())
+				throw new IIOException("VP8L bitstream is truncated");
+		}
+		return data;
+	}
+
+	private HuffmanTable readHuffmanCode(int size) throws IOException {
+		int[] lengths = new int[size];
+		if (reader.readBits(1) == 1) {
+			int symbols = reader.readBits(1) + 1;
+			int first = reader.readBits(reader.readBits(1) == 0 ? 1 : 8);
+			if (first >= size)
+				throw new IIOException("Invalid VP8L prefix code");
+			lengths[first] = 1;
+			if (symbols == 2) {
+				int second = reader.readBits(8);
+				if (second >= size)
+					throw new IIOException("Invalid VP8L prefix code");
+				lengths[second] = 1;
+			}
+		} else {
+			int[] codeLengthLengths = new int[CODE_LENGTH_CODES];
+			int codes = reader.readBits(4) + 4;
+			for (int i = 0; i < codes; i++)
+				codeLengthLengths[CODE_LENGTH_ORDER[i]] = reader.readBits(3);
+			readCodeLengths(HuffmanTable.build(codeLengthLengths, CODE_LENGTH_CODES), lengths, size);
+		}
+		return HuffmanTable.build(lengths, size);
+	}
+
+	private void readCodeLengths(HuffmanTable table, int[] lengths, int size) throws IOException {
+		int maxSymbol = size;
+		if (reader.readBits(1) == 1) {
+			int bits = 2 + 2 * reader.readBits(3);
+			maxSymbol = 2 + reader.readBits(bits);
+			if (maxSymbol > size)
+				throw new IIOException("Invalid VP8L code lengths");
+		}
+		int symbol = 0;
+		int previous = 8;
+		while (symbol < size) {
+			if (maxSymbol-- == 0)
+				break;
+			int length = table.readSymbol(reader);
+			if (length < 16) {
+				lengths[symbol++] = length;
+				if (length != 0)
+					previous = length;
+			} else {
+				int slot = length - 16;
+				int repeat = reader.readBits(REPEAT_EXTRA_BITS[slot]) + REPEAT_OFFSETS[slot];
+				if (symbol + repeat > size)
+					throw new IIOException("Invalid VP8L code lengths");
+				int value = length == 16 ? previous : 0;
+				while (repeat-- > 0)
+					lengths[symbol++] = value;
+			}
+		}
+	}
+
+	private int readCopyValue(int symbol) {
+		if (symbol < 4)
+			return symbol + 1;
+		int extraBits = (symbol - 2) >> 1;
+		int offset = (2 + (symbol & 1)) << extraBits;
+		return offset + reader.readBits(extraBits) + 1;
+	}
+
+	private static int planeCodeToDistance(int xsize, int code) {
+		if (code > 120)
+			return code - 120;
+		int value = CODE_TO_PLANE[code - 1];
+		int distance = (value >> 4) * xsize + (8 - (value & 0xF));
+		return distance >= 1 ? distance : 1;
+	}
+
+	private static int addPixels(int a, int b) {
+		int alphaGreen = (a & 0xFF00FF00) + (b & 0xFF00FF00);
+		int redBlue = (a & 0x00FF00FF) + (b & 0x00FF00FF);
+		return (alphaGreen & 0xFF00FF00) | (redBlue & 0x00FF00FF);
+	}
+
+	private static int average2(int a, int b) {
+		return (((a ^ b) & 0xFEFEFEFE) >>> 1) + (a & b);
+	}
+
+	private static int select(int a, int b, int c) {
+		int distance = 0;
+		for (int shift = 0; shift < 32; shift += 8) {
+			int ca = (a >>> shift) & 0xFF;
+			int cb = (b >>> shift) & 0xFF;
+			int cc = (c >>> shift) & 0xFF;
+			distance += Math.abs(cb - cc) - Math.abs(ca - cc);
+		}
+		return distance <= 0 ? a : b;
+	}
+
+	private static int clip255(int value) {
+		return value < 0 ? 0 : value > 255 ? 255 : value;
+	}
+
+	private static int clampedAddSubtractFull(int a, int b, int c) {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 8)
+			result |= clip255(((a >>> shift) & 0xFF) + ((b >>> shift) & 0xFF) - ((c >>> shift) & 0xFF)) << shift;
+		return result;
+	}
+
+	private static int clampedAddSubtractHalf(int a, int b) {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 8) {
+			int ca = (a >>> shift) & 0xFF;
+			int cb = (b >>> shift) & 0xFF;
+			result |= clip255(ca + (ca - cb) / 2) << shift;
+		}
+		return result;
+	}
+
+	private static int predict(int mode, int left, int top, int topRight, int topLeft) {
+		switch (mode) {
+		case 1:
+			return left;
+		case 2:
+			return top;
+		case 3:
+			return topRight;
+		case 4:
+			return topLeft;
+		case 5:
+			return average2(average2(left, topRight), top);
+		case 6:
+			return average2(left, topLeft);
+		case 7:
+			return average2(left, top);
+		case 8:
+			return average2(topLeft, top);
+		case 9:
+			return average2(top, topRight);
+		case 10:
+			return average2(average2(left, topLeft), average2(top, topRight));
+		case 11:
+			return select(top, left, topLeft);
+		case 12:
+			return clampedAddSubtractFull(left, top, topLeft);
+		case 13:
+			return clampedAddSubtractHalf(average2(left, top), topLeft);
+		default:
+			return 0xFF000000;
+		}
+	}
+
+	private static void inversePredictor(Transform transform, int[] pixels, int rows) {
+		int xsize = transform.xsize;
+		int blockXsize = subSampleSize(xsize, transform.bits);
+		pixels[0] = addPixels(pixels[0], 0xFF000000);
+		for (int x = 1; x < xsize; x++)
+			pixels[x] = addPixels(pixels[x], pixels[x - 1]);
+		for (int y = 1; y < rows; y++) {
+			int row = y * xsize;
+			pixels[row] = addPixels(pixels[row], pixels[row - xsize]);
+			int blocks = (y >> transform.bits) * blockXsize;
+			for (int x = 1; x < xsize; x++) {
+				int mode = (transform.data[blocks + (x >> transform.bits)] >> 8) & 0xF;
+				int i = row + x;
+				int top = i - xsize;
+				pixels[i] = addPixels(pixels[i],
+						predict(mode, pixels[i - 1], pixels[top], pixels[top + 1], pixels[top - 1]));
+			}
+		}
+	}
+
+	private static int colorTransformDelta(int predictor, int color) {
+		return ((byte) predictor * (byte) color) >> 5;
+	}
+
+	private static void inverseCrossColor(Transform transform, int[] pixels, int rows) {
+		int xsize = transform.xsize;
+		int blockXsize = subSampleSize(xsize, transform.bits);
+		for (int y = 0; y < rows; y++) {
+			int blocks = (y >> transform.bits) * blockXsize;
+			for (int x = 0; x < xsize; x++) {
+				int multipliers = transform.data[blocks + (x >> transform.bits)];
+				int greenToRed = multipliers & 0xFF;
+				int greenToBlue = (multipliers >> 8) & 0xFF;
+				int redToBlue = (multipliers >> 16) & 0xFF;
+				int i = y * xsize + x;
+				int argb = pixels[i];
+				int green = argb >> 8;
+				int red = (argb >> 16) & 0xFF;
+				int blue = argb & 0xFF;
+				red = (red + colorTransformDelta(greenToRed, green)) & 0xFF;
+				blue = (blue + colorTransformDelta(greenToBlue, green) + colorTransformDelta(redToBlue, red)) & 0xFF;
+				pixels[i] = (argb & 0xFF00FF00) | red << 16 | blue;
+			}
+		}
+	}
+
+	private static void addGreen(int[] pixels, int count) {
+		for (int i = 0; i < count; i++) {
+			int argb = pixels[i];
+			int green = (argb >> 8) & 0xFF;
+			int redBlue = ((argb & 0x00FF00FF) + (green << 16 | green)) & 0x00FF00FF;
+			pixels[i] = (argb & 0xFF00FF00) | redBlue;
+		}
+	}
+
+	private int[] inverseColorIndexing(Transform transform, int[] pixels, int rows) {
+		int xsize = transform.xsize;
+		int bits = transform.bits;
+		int packedXsize = subSampleSize(xsize, bits);
+		int[] palette = transform.data;
+		int[] out = new int[xsize * height];
+		int pixelBits = 8 >> bits;
+		int xMask = (1 << bits) - 1;
+		int indexMask = (1 << pixelBits) - 1;
+		for (int y = 0; y < rows; y++)
+			for (int x = 0; x < xsize; x++) {
+				int packed = (pixels[y * packedXsize + (x >> bits)] >> 8) & 0xFF;
+				out[y * xsize + x] = palette[(packed >> ((x & xMask) * pixelBits)) & indexMask];
+			}
+		return out;
+	}
+
+	private static class Transform {
+
+		private final int type;
+		private final int xsize;
+		private int bits;
+		private int[] data;
+
+		private Transform(int type, int xsize) {
+			this.type = type;
+			this.xsize = xsize;
+		}
+
+	}
+
+}
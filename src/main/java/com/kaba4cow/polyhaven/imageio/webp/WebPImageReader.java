@@ -0,0 +1,324 @@
+package com.kaba4cow.polyhaven.imageio.webp;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * An {@link ImageReader} of still WebP images, lossy (VP8) and lossless (VP8L),
+ * with or without alpha, written in pure Java. The decoded pixels match the
+ * output of the reference decoder.
+ *
+ * <p>
+ * Source regions and source subsampling are honoured while decoding: lossy
+ * images are decoded only down to the last macroblock row that the read
+ * touches, and only the sampled pixels are converted and stored. Rows are
+ * delivered to {@link javax.imageio.event.IIOReadUpdateListener update
+ * listeners} as soon as they are final, and reads can be aborted between rows.
+ * Animated images are not supported.
+ * </p>
+ */
+public class WebPImageReader extends ImageReader {
+
+	private static final int RIFF = 0x52494646;
+	private static final int WEBP = 0x57454250;
+	private static final int VP8 = 0x56503820;
+	private static final int VP8L = 0x5650384C;
+	private static final int VP8X = 0x56503858;
+	private static final int ALPH = 0x414C5048;
+	private static final int ANIM = 0x414E494D;
+
+	private static final int ANIMATION_FLAG = 0x02;
+
+	private byte[] data;
+	private int width;
+	private int height;
+	private boolean alpha;
+	private boolean lossless;
+	private int imageOffset;
+	private int imageLength;
+	private int alphaOffset;
+	private int alphaLength;
+
+	/**
+	 * Constructs a {@code WebPImageReader} created by the given provider.
+	 *
+	 * @param provider the provider that created this reader, or {@code null}
+	 */
+	public WebPImageReader(ImageReaderSpi provider) {
+		super(provider);
+	}
+
+	@Override
+	public void setInput(Object input, boolean seekForwardOnly, boolean ignoreMetadata) {
+		super.setInput(input, seekForwardOnly, ignoreMetadata);
+		data = null;
+	}
+
+	@Override
+	public int getNumImages(boolean allowSearch) throws IOException {
+		readHeader();
+		return 1;
+	}
+
+	@Override
+	public int getWidth(int imageIndex) throws IOException {
+		checkIndex(imageIndex);
+		return width;
+	}
+
+	@Override
+	public int getHeight(int imageIndex) throws IOException {
+		checkIndex(imageIndex);
+		return height;
+	}
+
+	@Override
+	public Iterator<ImageTypeSpecifier> getImageTypes(int imageIndex) throws IOException {
+		checkIndex(imageIndex);
+		return Collections.singletonList(ImageTypeSpecifier
+				.createFromBufferedImageType(alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB))
+				.iterator();
+	}
+
+	@Override
+	public IIOMetadata getStreamMetadata() {
+		return null;
+	}
+
+	@Override
+	public IIOMetadata getImageMetadata(int imageIndex) throws IOException {
+		checkIndex(imageIndex);
+		return null;
+	}
+
+	@Override
+	public BufferedImage read(int imageIndex, ImageReadParam param) throws IOException {
+		checkIndex(imageIndex);
+		BufferedImage image = getDestination(param, getImageTypes(imageIndex), width, height);
+		Rectangle source = new Rectangle();
+		Rectangle destination = new Rectangle();
+		computeRegions(param, width, height, image, source, destination);
+		int periodX = param == null ? 1 : param.getSourceXSubsampling();
+		int periodY = param == null ? 1 : param.getSourceYSubsampling();
+		int rows = source.y + (destination.height - 1) * periodY + 1;
+
+		clearAbortRequest();
+		processImageStarted(imageIndex);
+		RowWriter writer = new RowWriter(image, source, destination, periodX, periodY);
+		if (lossless) {
+			int[] pixels = VP8LDecoder.open(data, imageOffset, imageLength).decode(rows);
+			writer.write(pixels, 0, width, null, rows);
+		} else {
+			VP8Decoder decoder = new VP8Decoder(data, imageOffset, imageLength);
+			decoder.readHeader();
+			VP8Frame frame = decoder.begin();
+			byte[] alphaPlane = alphaOffset < 0 ? null
+					: AlphaDecoder.decode(data, alphaOffset, alphaLength, width, height, rows);
+			int[] row = new int[width];
+			int ready = 0;
+			while (writer.next < rows && decoder.hasMoreRows() && !abortRequested()) {
+				ready = decoder.decodeRow();
+				while (writer.next < Math.min(ready, rows) && !abortRequested()) {
+					frame.getRow(writer.next, row);
+					writer.write(row, 0, 0, alphaPlane, writer.next + 1);
+				}
+			}
+		}
+		if (abortRequested())
+			processReadAborted();
+		else
+			processImageComplete();
+		return image;
+	}
+
+	private void checkIndex(int imageIndex) throws IOException {
+		if (imageIndex != 0)
+			throw new IndexOutOfBoundsException("imageIndex must be 0");
+		readHeader();
+	}
+
+	private void readHeader() throws IOException {
+		if (data != null)
+			return;
+		if (input == null)
+			throw new IllegalStateException("No input set");
+		ImageInputStream stream = (ImageInputStream) input;
+		byte[] header = new byte[12];
+		stream.readFully(header);
+		if (readInt(header, 0) != RIFF || readInt(header, 8) != WEBP)
+			throw new IIOException("Not a WebP image");
+		long size = (header[4] & 0xFFL) | (header[5] & 0xFFL) << 8 | (header[6] & 0xFFL) << 16
+				| (header[7] & 0xFFL) << 24;
+		byte[] bytes = readFully(stream, size - 4L);
+		alphaOffset = -1;
+		imageOffset = -1;
+		int position = 0;
+		while (position + 8 <= bytes.length && imageOffset < 0) {
+			int fourCC = readInt(bytes, position);
+			int length = readLittleEndian(bytes, position + 4, 4);
+			int payload = position + 8;
+			if (length < 0 || length > bytes.length - payload)
+				throw new IIOException("WebP chunk is truncated");
+			switch (fourCC) {
+			case VP8X:
+				if (length < 10)
+					throw new IIOException("Invalid VP8X chunk");
+				if ((bytes[payload] & ANIMATION_FLAG) != 0)
+					throw new IIOException("Animated WebP images are not supported");
+				break;
+			case ANIM:
+				throw new IIOException("Animated WebP images are not supported");
+			case ALPH:
+				if (alphaOffset < 0) {
+					alphaOffset = payload;
+					alphaLength = length;
+				}
+				break;
+			case VP8:
+			case VP8L:
+				lossless = fourCC == VP8L;
+				imageOffset = payload;
+				imageLength = length;
+				break;
+			default:
+				break;
+			}
+			position = payload + length + (length & 1);
+		}
+		if (imageOffset < 0)
+			throw new IIOException("WebP image has no bitstream");
+		if (lossless) {
+			VP8LDecoder decoder = VP8LDecoder.open(bytes, imageOffset, imageLength);
+			width = decoder.getWidth();
+			height = decoder.getHeight();
+			alpha = decoder.hasAlpha();
+			alphaOffset = -1;
+		} else {
+			if (imageLength < 10)
+				throw new IIOException("VP8 frame is truncated");
+			width = readLittleEndian(bytes, imageOffset + 6, 2) & 0x3FFF;
+			height = readLittleEndian(bytes, imageOffset + 8, 2) & 0x3FFF;
+			alpha = alphaOffset >= 0;
+		}
+		data = bytes;
+	}
+
+	private static byte[] readFully(ImageInputStream stream, long size) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream((int) Math.min(Math.max(size, 0L), 1 << 20));
+		byte[] buffer = new byte[8192];
+		long left = size;
+		while (left > 0L) {
+			int count = stream.read(buffer, 0, (int) Math.min(buffer.length, left));
+			if (count < 0)
+				break;
+			output.write(buffer, 0, count);
+			left -= count;
+		}
+		return output.toByteArray();
+	}
+
+	private static int readInt(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8
+				| (bytes[offset + 3] & 0xFF);
+	}
+
+	private static int readLittleEndian(byte[] bytes, int offset, int count) {
+		int value = 0;
+		for (int i = count - 1; i >= 0; i--)
+			value = value << 8 | (bytes[offset + i] & 0xFF);
+		return value;
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		data = null;
+	}
+
+	@Override
+	public void dispose() {
+		data = null;
+	}
+
+	private class RowWriter {
+
+		private final BufferedImage image;
+		private final WritableRaster raster;
+		private final boolean direct;
+		private final Rectangle source;
+		private final Rectangle destination;
+		private final int periodX;
+		private final int periodY;
+		private final int[] bands;
+		private final int[] buffer;
+
+		private int next;
+		private int written;
+		private int reported;
+
+		private RowWriter(BufferedImage image, Rectangle source, Rectangle destination, int periodX, int periodY) {
+			this.image = image;
+			this.raster = image.getRaster();
+			this.direct = image.getType() == BufferedImage.TYPE_INT_ARGB
+					|| image.getType() == BufferedImage.TYPE_INT_RGB;
+			this.source = source;
+			this.destination = destination;
+			this.periodX = periodX;
+			this.periodY = periodY;
+			this.bands = new int[raster.getNumBands()];
+			for (int i = 0; i < bands.length; i++)
+				bands[i] = i;
+			this.buffer = new int[destination.width];
+			this.next = source.y;
+		}
+
+		/**
+		 * Writes the sampled source rows below the given limit, reading row
+		 * {@code y} at {@code offset + y * stride}, or at {@code offset} when the
+		 * stride is zero.
+		 */
+		private void write(int[] pixels, int offset, int stride, byte[] alphaPlane, int limit) {
+			while (next < limit && !abortRequested()) {
+				int start = offset + next * stride + source.x;
+				int alphaStart = next * width + source.x;
+				for (int i = 0; i < buffer.length; i++) {
+					int argb = pixels[start + i * periodX];
+					if (alphaPlane != null)
+						argb = (alphaPlane[alphaStart + i * periodX] & 0xFF) << 24 | (argb & 0xFFFFFF);
+					buffer[i] = argb;
+				}
+				int y = destination.y + written;
+				if (direct)
+					raster.setDataElements(destination.x, y, buffer.length, 1, buffer);
+				else
+					image.setRGB(destination.x, y, buffer.length, 1, buffer, 0, buffer.length);
+				written++;
+				next += periodY;
+				if (written == destination.height || (written & 15) == 0)
+					report();
+			}
+		}
+
+		private void report() {
+			processImageUpdate(image, destination.x, destination.y + reported, destination.width,
+					written - reported, 1, 1, bands);
+			processImageProgress(100.0f * written / destination.height);
+			reported = written;
+		}
+
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.kaba4cow.polyhaven.imageio.webp;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Locale;
+
+import javax.imageio.ImageReader;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * The service provider of {@link WebPImageReader}, registered through
+ * {@code META-INF/services} so that {@link javax.imageio.ImageIO} decodes WebP
+ * images without further setup.
+ */
+public class WebPImageReaderSpi extends ImageReaderSpi {
+
+	private static final String[] NAMES = { "webp", "WEBP" };
+	private static final String[] SUFFIXES = { "webp" };
+	private static final String[] MIME_TYPES = { "image/webp" };
+
+	/**
+	 * Constructs a {@code WebPImageReaderSpi}.
+	 */
+	public WebPImageReaderSpi() {
+		super("kaba4cow", "1.0", NAMES, SUFFIXES, MIME_TYPES, WebPImageReader.class.getName(),
+				new Class<?>[] { ImageInputStream.class }, null, false, null, null, null, null, false, null, null,
+				null, null);
+	}
+
+	@Override
+	public boolean canDecodeInput(Object source) throws IOException {
+		if (!(source instanceof ImageInputStream))
+			return false;
+		ImageInputStream stream = (ImageInputStream) source;
+		byte[] header = new byte[16];
+		stream.mark();
+		try {
+			stream.readFully(header);
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			stream.reset();
+		}
+		return header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F' //
+				&& header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P' //
+				&& header[12] == 'V' && header[13] == 'P' && header[14] == '8'
+				&& (header[15] == ' ' || header[15] == 'L' || header[15] == 'X');
+	}
+
+	@Override
+	public ImageReader createReaderInstance(Object extension) {
+		return new WebPImageReader(this);
+	}
+
+	@Override
+	public String getDescription(Locale locale) {
+		return "WebP image reader";
+	}
+
+}
@@ -0,0 +1,699 @@
+package com.kaba4cow.polyhaven.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.json.JSONObject;
+
+import com.kaba4cow.polyhaven.api.client.data.files.PolyhavenFileObject;
+import com.kaba4cow.polyhaven.api.client.http.HttpResponse;
+import com.kaba4cow.polyhaven.api.client.selection.VariantEnumerator;
+import com.kaba4cow.polyhaven.api.client.store.Checksums;
+import com.kaba4cow.polyhaven.api.client.store.ContentStore;
+import com.kaba4cow.polyhaven.api.client.store.LinkMode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A caching proxy for the Polyhaven API that serves a whole studio from one
+ * upstream connection. A {@code PolyhavenApiClient} uses it by pointing its URL
+ * at the proxy, e.g. {@code new PolyhavenApiClient("http://proxy:8080/")}.
+ * 
+ * <p>
+ * Metadata responses are cached in memory, up to {@value #MAX_METADATA_BYTES}
+ * bytes of response bodies, evicting the least recently used entries first.
+ * Once an entry is older than the time-to-live, it is revalidated upstream with
+ * {@code If-None-Match} and {@code If-Modified-Since}, and served stale if the
+ * upstream cannot be reached.
+ * </p>
+ * 
+ * <p>
+ * File URLs in {@code /files} responses are rewritten to point at the proxy's
+ * {@code /blob/md5/size/name} endpoint under its public URL, which is never
+ * taken from the {@code Host} header of the request. Blobs are served from a
+ * {@link ContentStore} with support for range requests. On a miss the blob is
+ * downloaded once into a temporary file of the store, and every request for it
+ * is served from that file as the bytes arrive, so clients do not wait for the
+ * whole download. The blob is added to the store once its checksum has been
+ * verified; if it does not match, the responses still in progress are aborted.
+ * Concurrent misses for the same blob, or for the same metadata entry, are
+ * coalesced into a single upstream request.
+ * </p>
+ * 
+ * <p>
+ * {@code HEAD} requests are answered with the headers of the corresponding
+ * {@code GET} request, without fetching a missing blob. Upstream failures,
+ * including malformed upstream responses, are answered with
+ * {@code 502 Bad Gateway}.
+ * </p>
+ */
+public class PolyhavenProxyServer {
+
+	private static final int RESPONSE_OK = 200;
+	private static final int RESPONSE_PARTIAL_CONTENT = 206;
+	private static final int RESPONSE_NOT_MODIFIED = 304;
+	private static final int RESPONSE_BAD_REQUEST = 400;
+	private static final int RESPONSE_FORBIDDEN = 403;
+	private static final int RESPONSE_NOT_FOUND = 404;
+	private static final int RESPONSE_METHOD_NOT_ALLOWED = 405;
+	private static final int RESPONSE_RANGE_NOT_SATISFIABLE = 416;
+	private static final int RESPONSE_SERVER_ERROR = 500;
+	private static final int RESPONSE_BAD_GATEWAY = 502;
+
+	private static final String BLOB_PATH = "/blob/";
+	private static final String FILES_PATH = "/files/";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final long MAX_METADATA_BYTES = 64L * 1024L * 1024L;
+
+	private final HttpServer server;
+	private final String publicUrl;
+	private final String upstream;
+	private final ContentStore store;
+	private final ExecutorService requests;
+	private final ExecutorService fills;
+	private final long metadataTtl;
+	private final Set<String> allowedHosts;
+
+	private final LinkedHashMap<String, MetadataEntry> metadata;
+	private final Map<String, CompletableFuture<MetadataEntry>> pendingMetadata;
+	private final Map<String, BlobFill> pendingBlobs;
+
+	private long metadataBytes;
+
+	/**
+	 * Constructs a {@code PolyhavenProxyServer} listening on the given port,
+	 * whose public URL is made of the host name of this machine and the bound
+	 * port. The server is not started until {@link #start()} is called.
+	 *
+	 * @param port         the port to listen on
+	 * @param upstream     the upstream API base URL, ending with {@code /}
+	 * @param store        the content store for downloaded files
+	 * @param metadataTtl  the time in milliseconds a metadata response is served
+	 *                     without revalidation
+	 * @param allowedHosts the upstream hosts files may be downloaded from
+	 * @throws IOException if the server cannot be bound to the port
+	 */
+	public PolyhavenProxyServer(int port, String upstream, ContentStore store, long metadataTtl,
+			Collection<String> allowedHosts) throws IOException {
+		this(port, null, upstream, store, metadataTtl, allowedHosts);
+	}
+
+	/**
+	 * Constructs a {@code PolyhavenProxyServer} listening on the given port. The
+	 * server is not started until {@link #start()} is called.
+	 *
+	 * @param port         the port to listen on
+	 * @param publicUrl    the base URL clients reach the proxy at, e.g.
+	 *                     {@code http://proxy:8080}, used for rewritten file
+	 *                     URLs, or {@code null} to use the host name of this
+	 *                     machine and the bound port
+	 * @param upstream     the upstream API base URL, ending with {@code /}
+	 * @param store        the content store for downloaded files
+	 * @param metadataTtl  the time in milliseconds a metadata response is served
+	 *                     without revalidation
+	 * @param allowedHosts the upstream hosts files may be downloaded from
+	 * @throws IOException if the server cannot be bound to the port
+	 */
+	public PolyhavenProxyServer(int port, String publicUrl, String upstream, ContentStore store, long metadataTtl,
+			Collection<String> allowedHosts) throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress(port), 0);
+		this.publicUrl = publicUrl == null ? "http://" + getHostName() + ":" + server.getAddress().getPort()
+				: publicUrl.replaceAll("/+$", "");
+		this.upstream = upstream;
+		this.store = store;
+		this.requests = Executors.newCachedThreadPool(runnable -> new Thread(runnable, "polyhaven-proxy"));
+		this.fills = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "polyhaven-proxy-fill");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.metadataTtl = metadataTtl;
+		this.allowedHosts = new HashSet<>(allowedHosts);
+		this.metadata = new LinkedHashMap<>(16, 0.75f, true);
+		this.pendingMetadata = new ConcurrentHashMap<>();
+		this.pendingBlobs = new ConcurrentHashMap<>();
+		this.metadataBytes = 0L;
+		server.createContext("/", this::handle);
+		server.setExecutor(requests);
+	}
+
+	private static String getHostName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (UnknownHostException e) {
+			return "localhost";
+		}
+	}
+
+	/**
+	 * Starts serving requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops serving requests and shuts down the threads of the server.
+	 */
+	public void stop() {
+		server.stop(0);
+		requests.shutdownNow();
+		fills.shutdownNow();
+	}
+
+	/**
+	 * Returns the port the server is listening on.
+	 *
+	 * @return the port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns the base URL rewritten file URLs point at.
+	 *
+	 * @return the public URL, without a trailing {@code /}
+	 */
+	public String getPublicUrl() {
+		return publicUrl;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		boolean head = exchange.getRequestMethod().equals("HEAD");
+		try {
+			if (!head && !exchange.getRequestMethod().equals("GET")) {
+				exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+				send(exchange, RESPONSE_METHOD_NOT_ALLOWED, "text/plain", "Method not allowed".getBytes(), false);
+				return;
+			}
+			String path = exchange.getRequestURI().getRawPath();
+			if (path.startsWith(BLOB_PATH))
+				handleBlob(exchange, head);
+			else
+				handleMetadata(exchange, head);
+		} catch (IOException | RuntimeException e) {
+			try {
+				send(exchange, RESPONSE_BAD_GATEWAY, "text/plain", String.valueOf(e.getMessage()).getBytes(), head);
+			} catch (IOException sendException) {
+				// the response was already started, the client sees a truncated body
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void handleMetadata(HttpExchange exchange, boolean head) throws IOException {
+		URI uri = exchange.getRequestURI();
+		String key = uri.getRawPath().substring(1) + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+		MetadataEntry entry = getMetadata(key);
+		byte[] body = entry.body;
+		if (entry.code == RESPONSE_OK && uri.getRawPath().startsWith(FILES_PATH))
+			body = rewriteFiles(new JSONObject(new String(body, StandardCharsets.UTF_8)), publicUrl).toString()
+					.getBytes(StandardCharsets.UTF_8);
+		send(exchange, entry.code, entry.contentType, body, head);
+	}
+
+	/**
+	 * Returns the cached metadata entry for the given key, revalidating or
+	 * fetching it upstream if needed. Concurrent requests for the same key share
+	 * one upstream request.
+	 */
+	private MetadataEntry getMetadata(String key) throws IOException {
+		MetadataEntry cached = getCached(key);
+		if (cached != null && System.currentTimeMillis() - cached.time < metadataTtl)
+			return cached;
+		CompletableFuture<MetadataEntry> future = new CompletableFuture<>();
+		CompletableFuture<MetadataEntry> pending = pendingMetadata.putIfAbsent(key, future);
+		if (pending != null)
+			return await(pending);
+		try {
+			MetadataEntry entry = fetchMetadata(key, cached);
+			if (cached != null && entry.code >= RESPONSE_SERVER_ERROR)
+				entry = cached;
+			else
+				putCached(key, entry);
+			future.complete(entry);
+			return entry;
+		} catch (IOException e) {
+			if (cached != null) {
+				future.complete(cached);
+				return cached;
+			}
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			pendingMetadata.remove(key);
+		}
+	}
+
+	private MetadataEntry getCached(String key) {
+		synchronized (metadata) {
+			return metadata.get(key);
+		}
+	}
+
+	/**
+	 * Caches the entry and evicts the least recently used entries while the
+	 * cached bodies exceed {@value #MAX_METADATA_BYTES} bytes.
+	 */
+	private void putCached(String key, MetadataEntry entry) {
+		synchronized (metadata) {
+			MetadataEntry previous = metadata.put(key, entry);
+			if (previous != null)
+				metadataBytes -= previous.body.length;
+			metadataBytes += entry.body.length;
+			Iterator<MetadataEntry> iterator = metadata.values().iterator();
+			while (metadataBytes > MAX_METADATA_BYTES && metadata.size() > 1) {
+				metadataBytes -= iterator.next().body.length;
+				iterator.remove();
+			}
+		}
+	}
+
+	private MetadataEntry fetchMetadata(String key, MetadataEntry cached) throws IOException {
+		Map<String, String> headers = new HashMap<>();
+		if (cached != null && cached.etag != null)
+			headers.put("If-None-Match", cached.etag);
+		if (cached != null && cached.lastModified != null)
+			headers.put("If-Modified-Since", cached.lastModified);
+		HttpResponse response = new HttpResponse(upstream + key, headers);
+		if (cached != null && response.getCode() == RESPONSE_NOT_MODIFIED) {
+			response.disconnect();
+			return new MetadataEntry(cached.code, cached.contentType, cached.body, cached.etag,
+					cached.lastModified);
+		}
+		byte[] body;
+		try (InputStream input = response.getCode() < RESPONSE_BAD_REQUEST ? response.getInputStream()
+				: InputStream.nullInputStream()) {
+			body = input.readAllBytes();
+		}
+		String contentType = response.getHeader("Content-Type");
+		return new MetadataEntry(response.getCode(), contentType == null ? "application/json" : contentType, body,
+				response.getHeader("ETag"), response.getHeader("Last-Modified"));
+	}
+
+	/**
+	 * Rewrites every file URL of a file tree JSON object, including the URLs of
+	 * dependent files, to the proxy's blob endpoint.
+	 */
+	private JSONObject rewriteFiles(JSONObject json, String proxy) {
+		for (String key : json.keySet()) {
+			Object value = json.get(key);
+			if (value instanceof JSONObject)
+				rewriteFiles((JSONObject) value, proxy);
+		}
+		if (PolyhavenFileObject.isFile(json)) {
+			String url = json.getString("url");
+			json.put("url",
+					proxy + BLOB_PATH + json.getString("md5") + "/" + json.getLong("size") + "/"
+							+ VariantEnumerator.getFileName(url) + "?src="
+							+ URLEncoder.encode(url, StandardCharsets.UTF_8));
+		}
+		return json;
+	}
+
+	private void handleBlob(HttpExchange exchange, boolean head) throws IOException {
+		URI uri = exchange.getRequestURI();
+		String[] elements = uri.getRawPath().substring(BLOB_PATH.length()).split("/");
+		String source = getQueryParameter(uri.getRawQuery(), "src");
+		if (elements.length < 2 || !elements[0].matches("[0-9a-fA-F]{32}") || !elements[1].matches("\\d{1,18}")) {
+			send(exchange, RESPONSE_BAD_REQUEST, "text/plain", "Malformed blob path".getBytes(), head);
+			return;
+		}
+		String md5 = elements[0].toLowerCase();
+		if (store.contains(md5)) {
+			sendStored(exchange, md5, head);
+			return;
+		}
+		if (source == null) {
+			send(exchange, RESPONSE_NOT_FOUND, "text/plain", "Unknown blob".getBytes(), head);
+			return;
+		}
+		String host = URI.create(source).getHost();
+		if (host == null || !allowedHosts.contains(host)) {
+			send(exchange, RESPONSE_FORBIDDEN, "text/plain", "Host not allowed".getBytes(), head);
+			return;
+		}
+		long size = Long.parseLong(elements[1]);
+		if (head) {
+			sendBlob(exchange, md5, size, true, null);
+			return;
+		}
+		BlobFill fill = getFill(md5, size, source);
+		if (!fill.acquire()) {
+			if (!store.contains(md5))
+				throw new IOException("Could not fetch blob " + md5);
+			sendStored(exchange, md5, false);
+			return;
+		}
+		try {
+			sendBlob(exchange, md5, fill.size, false, fill::write);
+		} finally {
+			fill.release();
+		}
+	}
+
+	/**
+	 * Returns the download of the blob in progress, starting it if there is
+	 * none. Concurrent misses for the same blob share one download.
+	 */
+	private BlobFill getFill(String md5, long size, String source) throws IOException {
+		BlobFill fill = pendingBlobs.get(md5);
+		if (fill != null)
+			return fill;
+		fill = new BlobFill(md5, size, source);
+		BlobFill pending = pendingBlobs.putIfAbsent(md5, fill);
+		if (pending != null) {
+			fill.release();
+			return pending;
+		}
+		fills.execute(fill);
+		return fill;
+	}
+
+	private void sendStored(HttpExchange exchange, String md5, boolean head) throws IOException {
+		Path path = store.getPath(md5);
+		sendBlob(exchange, md5, Files.size(path), head, (output, from, end) -> {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				WritableByteChannel target = Channels.newChannel(output);
+				for (long position = from; position < end;)
+					position += channel.transferTo(position, Math.min(BUFFER_SIZE * 16L, end - position), target);
+			}
+		});
+	}
+
+	private void sendBlob(HttpExchange exchange, String md5, long size, boolean head, BlobBody body)
+			throws IOException {
+		long from = 0L;
+		long to = size - 1L;
+		int code = RESPONSE_OK;
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		if (range != null && range.startsWith("bytes=") && !range.contains(",")) {
+			String[] bounds = range.substring(6).split("-", -1);
+			try {
+				if (bounds[0].isEmpty())
+					from = Math.max(0L, size - Long.parseLong(bounds[1]));
+				else {
+					from = Long.parseLong(bounds[0]);
+					if (!bounds[1].isEmpty())
+						to = Math.min(to, Long.parseLong(bounds[1]));
+				}
+			} catch (NumberFormatException e) {
+				send(exchange, RESPONSE_BAD_REQUEST, "text/plain", "Malformed range".getBytes(), head);
+				return;
+			}
+			if (from > to) {
+				exchange.getResponseHeaders().set("Content-Range", "bytes */" + size);
+				send(exchange, RESPONSE_RANGE_NOT_SATISFIABLE, "text/plain", new byte[0], head);
+				return;
+			}
+			code = RESPONSE_PARTIAL_CONTENT;
+			exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + size);
+		}
+		exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+		exchange.getResponseHeaders().set("ETag", "\"" + md5 + "\"");
+		exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+		long length = to - from + 1L;
+		if (head || length == 0L) {
+			exchange.getResponseHeaders().set("Content-Length", Long.toString(length));
+			exchange.sendResponseHeaders(code, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(code, length);
+		// closed only on success: closing the exchange with bytes missing aborts
+		// the connection, so the client sees a truncated response
+		OutputStream output = exchange.getResponseBody();
+		body.write(output, from, to + 1L);
+		output.close();
+	}
+
+	private static void send(HttpExchange exchange, int code, String contentType, byte[] body, boolean head)
+			throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		if (head || body.length == 0) {
+			exchange.getResponseHeaders().set("Content-Length", Integer.toString(body.length));
+			exchange.sendResponseHeaders(code, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(code, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	private static String getQueryParameter(String query, String name) {
+		if (query == null)
+			return null;
+		for (String parameter : query.split("&")) {
+			int index = parameter.indexOf('=');
+			if (index > 0 && parameter.substring(0, index).equals(name))
+				return URLDecoder.decode(parameter.substring(index + 1), StandardCharsets.UTF_8);
+		}
+		return null;
+	}
+
+	private static <T> T await(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for upstream", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+		}
+	}
+
+	@FunctionalInterface
+	private interface BlobBody {
+
+		void write(OutputStream output, long from, long end) throws IOException;
+
+	}
+
+	/**
+	 * A blob being downloaded into a temporary file of the store. The download
+	 * holds one reference to the file and every response served from it holds
+	 * another; the file is closed and deleted once the last one is released.
+	 */
+	private class BlobFill implements Runnable {
+
+		private final String md5;
+		private final long size;
+		private final String source;
+		private final Path temp;
+		private final FileChannel channel;
+
+		private long written;
+		private boolean complete;
+		private IOException failure;
+		private int references;
+
+		private BlobFill(String md5, long size, String source) throws IOException {
+			this.md5 = md5;
+			this.size = size;
+			this.source = source;
+			this.temp = store.getRoot().resolve("tmp").resolve(UUID.randomUUID() + ".download");
+			this.channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			this.written = 0L;
+			this.complete = false;
+			this.failure = null;
+			this.references = 1;
+		}
+
+		@Override
+		public void run() {
+			try {
+				download();
+				store.put(md5, temp, LinkMode.HARD_LINK);
+				finish(null);
+			} catch (IOException e) {
+				finish(e);
+			} catch (RuntimeException e) {
+				finish(new IOException(e));
+			} finally {
+				pendingBlobs.remove(md5, this);
+				release();
+			}
+		}
+
+		private void download() throws IOException {
+			MessageDigest digest;
+			try {
+				digest = MessageDigest.getInstance("MD5");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IOException(e);
+			}
+			HttpResponse response = new HttpResponse(source);
+			if (response.getCode() != RESPONSE_OK) {
+				response.disconnect();
+				throw new IOException("Upstream responded with " + response.getCode() + " for " + source);
+			}
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long position = 0L;
+			try (InputStream input = response.getInputStream()) {
+				int read;
+				while ((read = input.read(buffer)) >= 0) {
+					if (position + read > size)
+						throw new IOException("Blob " + md5 + " is larger than " + size + " bytes");
+					digest.update(buffer, 0, read);
+					ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+					while (data.hasRemaining())
+						position += channel.write(data, position);
+					advance(position);
+				}
+			}
+			if (position != size)
+				throw new IOException("Blob " + md5 + " ended after " + position + " of " + size + " bytes");
+			String actual = Checksums.toHex(digest.digest());
+			if (!actual.equals(md5))
+				throw new IOException(String.format("MD5 mismatch for %s: got %s", md5, actual));
+			channel.force(false);
+		}
+
+		private synchronized void advance(long position) {
+			written = position;
+			notifyAll();
+		}
+
+		private synchronized void finish(IOException failure) {
+			this.complete = true;
+			this.failure = failure;
+			notifyAll();
+		}
+
+		/**
+		 * Waits until the byte at the given position has been written, returning
+		 * the number of bytes written so far. The end of the blob is only returned
+		 * once its checksum has been verified, so a response covering it is
+		 * aborted before its last bytes if the checksum does not match.
+		 */
+		private synchronized long await(long position) throws IOException {
+			try {
+				while ((written <= position || written == size) && !complete)
+					wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for upstream", e);
+			}
+			if (failure != null)
+				throw new IOException(failure.getMessage(), failure);
+			if (written <= position)
+				throw new IOException("Blob " + md5 + " ended after " + written + " bytes");
+			return written;
+		}
+
+		private void write(OutputStream output, long from, long end) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			long position = from;
+			while (position < end) {
+				long available = Math.min(await(position), end);
+				buffer.clear();
+				buffer.limit((int) Math.min(buffer.capacity(), available - position));
+				int read = channel.read(buffer, position);
+				if (read < 0)
+					throw new IOException("Blob " + md5 + " ended after " + position + " bytes");
+				output.write(buffer.array(), 0, read);
+				position += read;
+			}
+		}
+
+		private synchronized boolean acquire() {
+			if (references == 0)
+				return false;
+			references++;
+			return true;
+		}
+
+		private void release() {
+			synchronized (this) {
+				if (--references > 0)
+					return;
+			}
+			try {
+				channel.close();
+				Files.deleteIfExists(temp);
+			} catch (IOException e) {
+				// the file is left in the temporary directory of the store
+			}
+		}
+
+	}
+
+	private static class MetadataEntry {
+
+		private final int code;
+		private final String contentType;
+		private final byte[] body;
+		private final String etag;
+		private final String lastModified;
+		private final long time;
+
+		private MetadataEntry(int code, String contentType, byte[] body, String etag, String lastModified) {
+			this.code = code;
+			this.contentType = contentType;
+			this.body = body;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.time = System.currentTimeMillis();
+		}
+
+	}
+
+	/**
+	 * Starts a proxy server.
+	 * 
+	 * <p>
+	 * Usage:
+	 * {@code PolyhavenProxyServer [port] [store directory] [upstream url] [public url]}
+	 * </p>
+	 *
+	 * @param args the command-line arguments
+	 * @throws IOException if the server cannot be started
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		Path root = Paths.get(args.length > 1 ? args[1] : "polyhaven-store");
+		String upstream = args.length > 2 ? args[2] : "https://api.polyhaven.com/";
+		String publicUrl = args.length > 3 ? args[3] : null;
+		PolyhavenProxyServer proxy = new PolyhavenProxyServer(port, publicUrl, upstream, new ContentStore(root),
+				5L * 60L * 1000L, Arrays.asList("dl.polyhaven.org", "cdn.polyhaven.com"));
+		proxy.start();
+		System.out.println("Polyhaven proxy listening on port " + proxy.getPort() + " as " + proxy.getPublicUrl());
+	}
+
+}
@@ -0,0 +1,202 @@
+package com.kaba4cow.polyhaven.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.kaba4cow.polyhaven.api.client.PolyhavenApiClient;
+import com.kaba4cow.polyhaven.api.client.http.EndpointSelector;
+import com.kaba4cow.polyhaven.api.client.http.HttpException;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Command-line check of the endpoint failover of {@link PolyhavenApiClient}
+ * against local stand-in servers started with
+ * {@link com.sun.net.httpserver.HttpServer}.
+ *
+ * <p>
+ * The scenarios cover a primary endpoint answering with server errors, an
+ * endpoint refusing connections, a fast primary endpoint winning its traffic
+ * back from a slow healthy one once its error rate has decayed on a manual
+ * clock, and every endpoint failing. The check prints one line per scenario and exits with status 1 if
+ * any scenario fails.
+ * </p>
+ *
+ * <pre>
+ * EndpointFailoverCheck
+ * </pre>
+ */
+public class EndpointFailoverCheck {
+
+	private static final String TYPES = "[\"hdris\",\"textures\",\"models\"]";
+	private static final long SLOW_DELAY = 200L;
+
+	private int failures;
+
+	private EndpointFailoverCheck() {
+		failures = 0;
+	}
+
+	/**
+	 * Runs every scenario.
+	 *
+	 * @param args ignored
+	 * @throws IOException if a stand-in server cannot be started
+	 */
+	public static void main(String[] args) throws IOException {
+		EndpointFailoverCheck check = new EndpointFailoverCheck();
+		check.checkServerErrorFailover();
+		check.checkConnectionFailover();
+		check.checkRecovery();
+		check.checkAllFailing();
+		System.out.println(check.failures == 0 ? "All scenarios passed" : check.failures + " scenario(s) failed");
+		if (check.failures > 0)
+			System.exit(1);
+	}
+
+	private void checkServerErrorFailover() throws IOException {
+		StandIn primary = new StandIn(503);
+		StandIn secondary = new StandIn(200);
+		try {
+			AtomicLong clock = new AtomicLong();
+			EndpointSelector selector = new EndpointSelector(0.5d, clock::get, primary.getUrl(), secondary.getUrl());
+			PolyhavenApiClient client = new PolyhavenApiClient(selector);
+			boolean served = Arrays.asList(client.getAssetTypes()).contains("hdris");
+			client.getAssetTypes();
+			report("server error failover", served && primary.getRequests() == 1 && secondary.getRequests() == 2
+					&& selector.getBestEndpoint().getUrl().equals(secondary.getUrl()));
+		} catch (HttpException e) {
+			report("server error failover", false);
+		} finally {
+			primary.stop();
+			secondary.stop();
+		}
+	}
+
+	private void checkConnectionFailover() throws IOException {
+		String closed = getClosedUrl();
+		StandIn secondary = new StandIn(200);
+		try {
+			AtomicLong clock = new AtomicLong();
+			EndpointSelector selector = new EndpointSelector(0.5d, clock::get, closed, secondary.getUrl());
+			PolyhavenApiClient client = new PolyhavenApiClient(selector);
+			boolean served = client.getAssetTypes().length == 3;
+			report("connection failover", served && secondary.getRequests() == 1
+					&& selector.getBestEndpoint().getUrl().equals(secondary.getUrl()));
+		} catch (HttpException e) {
+			report("connection failover", false);
+		} finally {
+			secondary.stop();
+		}
+	}
+
+	private void checkRecovery() throws IOException {
+		StandIn primary = new StandIn(500);
+		StandIn secondary = new StandIn(200, SLOW_DELAY);
+		try {
+			AtomicLong clock = new AtomicLong(1L);
+			EndpointSelector selector = new EndpointSelector(0.9d, clock::get, primary.getUrl(), secondary.getUrl());
+			PolyhavenApiClient client = new PolyhavenApiClient(selector);
+			client.getAssetTypes();
+			primary.setCode(200);
+			client.getAssetTypes();
+			boolean avoided = primary.getRequests() == 1;
+			clock.addAndGet(EndpointSelector.RETRY_DELAY + 10L * EndpointSelector.ERROR_HALF_LIFE);
+			client.getAssetTypes();
+			boolean recovered = primary.getRequests() == 2 && secondary.getRequests() == 2
+					&& selector.getBestEndpoint().getUrl().equals(primary.getUrl());
+			report("recovery of a fast endpoint", avoided && recovered);
+		} catch (HttpException e) {
+			report("recovery of a fast endpoint", false);
+		} finally {
+			primary.stop();
+			secondary.stop();
+		}
+	}
+
+	private void checkAllFailing() throws IOException {
+		StandIn primary = new StandIn(500);
+		StandIn secondary = new StandIn(502);
+		try {
+			AtomicLong clock = new AtomicLong();
+			EndpointSelector selector = new EndpointSelector(0.5d, clock::get, primary.getUrl(), secondary.getUrl());
+			PolyhavenApiClient client = new PolyhavenApiClient(selector);
+			client.getAssetTypes();
+			report("every endpoint failing", false);
+		} catch (HttpException e) {
+			report("every endpoint failing", e.getMessage().startsWith("Error 50") && primary.getRequests() == 1
+					&& secondary.getRequests() == 1);
+		} finally {
+			primary.stop();
+			secondary.stop();
+		}
+	}
+
+	private void report(String scenario, boolean passed) {
+		System.out.println((passed ? "PASS " : "FAIL ") + scenario);
+		if (!passed)
+			failures++;
+	}
+
+	private static String getClosedUrl() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return "http://127.0.0.1:" + socket.getLocalPort() + "/";
+		}
+	}
+
+	private static class StandIn {
+
+		private final HttpServer server;
+		private final AtomicInteger code;
+		private final AtomicInteger requests;
+
+		private StandIn(int code) throws IOException {
+			this(code, 0L);
+		}
+
+		private StandIn(int code, long delay) throws IOException {
+			this.code = new AtomicInteger(code);
+			this.requests = new AtomicInteger();
+			this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+			server.createContext("/", exchange -> {
+				requests.incrementAndGet();
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				byte[] body = (this.code.get() == 200 ? TYPES : "{\"error\":\"unavailable\"}")
+						.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "application/json");
+				exchange.sendResponseHeaders(this.code.get(), body.length);
+				try (OutputStream output = exchange.getResponseBody()) {
+					output.write(body);
+				}
+			});
+			server.start();
+		}
+
+		private String getUrl() {
+			return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+		}
+
+		private int getRequests() {
+			return requests.get();
+		}
+
+		private void setCode(int code) {
+			this.code.set(code);
+		}
+
+		private void stop() {
+			server.stop(0);
+		}
+
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.kaba4cow.polyhaven.bench;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import com.kaba4cow.polyhaven.browser.imageloader.ImageScaler;
+
+/**
+ * Command-line benchmark comparing {@link Image#getScaledInstance(int, int, int)}
+ * with {@link ImageScaler} on the thumbnail downscaling done by the image
+ * loader.
+ *
+ * <p>
+ * The images are read from the given directory with {@link ImageIO}, or
+ * generated as opaque and translucent noise of typical thumbnail sizes when no
+ * directory is given. Every image is scaled to the given height keeping its
+ * aspect ratio, after a warm-up. The result of {@code getScaledInstance} is
+ * drawn into a {@link BufferedImage}, since the scaled instance is only
+ * filtered when it is first drawn. The benchmark prints the average time per
+ * image of both scalers.
+ * </p>
+ *
+ * <pre>
+ * ScalerBenchmark [height [directory]]
+ * </pre>
+ */
+public class ScalerBenchmark {
+
+	private static final int DEFAULT_HEIGHT = 64;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 20;
+
+	private ScalerBenchmark() {
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args the target height and the directory of images, both optional
+	 * @throws IOException if an image of the directory cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		int height = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_HEIGHT;
+		List<BufferedImage> images = args.length > 1 ? readImages(new File(args[1])) : generateImages();
+		if (images.isEmpty()) {
+			System.out.println("No readable images");
+			System.exit(1);
+		}
+		System.out.println(String.format("%d images scaled to a height of %d", images.size(), height));
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			scaleInstances(images, height);
+			scaleImages(images, height);
+		}
+		long instances = 0L;
+		long scaled = 0L;
+		for (int i = 0; i < ROUNDS; i++) {
+			instances += scaleInstances(images, height);
+			scaled += scaleImages(images, height);
+		}
+		int count = ROUNDS * images.size();
+		System.out.println(String.format("getScaledInstance %8.3f ms", instances / 1e6d / count));
+		System.out.println(String.format("ImageScaler       %8.3f ms", scaled / 1e6d / count));
+	}
+
+	private static long scaleInstances(List<BufferedImage> images, int height) {
+		long start = System.nanoTime();
+		for (BufferedImage image : images) {
+			int width = getWidth(image, height);
+			Image instance = image.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+			BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+			Graphics2D graphics = target.createGraphics();
+			graphics.drawImage(instance, 0, 0, null);
+			graphics.dispose();
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static long scaleImages(List<BufferedImage> images, int height) {
+		long start = System.nanoTime();
+		for (BufferedImage image : images)
+			ImageScaler.scale(image, getWidth(image, height), height);
+		return System.nanoTime() - start;
+	}
+
+	private static int getWidth(BufferedImage image, int height) {
+		return Math.max(1, image.getWidth() * height / image.getHeight());
+	}
+
+	private static List<BufferedImage> readImages(File directory) throws IOException {
+		List<BufferedImage> images = new ArrayList<>();
+		File[] files = directory.listFiles();
+		if (files == null)
+			throw new IOException("Cannot list " + directory);
+		for (File file : files) {
+			BufferedImage image = file.isFile() ? ImageIO.read(file) : null;
+			if (image != null)
+				images.add(image);
+		}
+		return images;
+	}
+
+	private static List<BufferedImage> generateImages() {
+		List<BufferedImage> images = new ArrayList<>();
+		Random random = new Random(0L);
+		int[][] sizes = { { 256, 256 }, { 512, 256 }, { 1024, 512 }, { 2048, 1024 } };
+		for (int[] size : sizes) {
+			images.add(generateImage(random, size[0], size[1], BufferedImage.TYPE_INT_RGB));
+			images.add(generateImage(random, size[0], size[1], BufferedImage.TYPE_INT_ARGB));
+		}
+		return images;
+	}
+
+	private static BufferedImage generateImage(Random random, int width, int height, int type) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				image.setRGB(x, y, random.nextInt());
+		return image;
+	}
+
+}
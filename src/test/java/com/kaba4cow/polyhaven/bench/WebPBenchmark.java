@@ -0,0 +1,95 @@
+package com.kaba4cow.polyhaven.bench;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kaba4cow.polyhaven.browser.imageloader.ImageDecoder;
+import com.kaba4cow.polyhaven.imageio.webp.WebPImageReader;
+
+/**
+ * Command-line benchmark of the decoding throughput of
+ * {@link WebPImageReader}.
+ *
+ * <p>
+ * Every {@code .webp} file of the given directory, such as a directory of
+ * downloaded Poly Haven thumbnails, is read into memory and decoded with
+ * {@link ImageDecoder}, the way the image loader decodes thumbnails. The files
+ * are decoded at full size and subsampled to the given height, each after a
+ * warm-up. The benchmark prints the images and megapixels decoded per second
+ * in both modes.
+ * </p>
+ *
+ * <pre>
+ * WebPBenchmark directory [height]
+ * </pre>
+ */
+public class WebPBenchmark {
+
+	private static final int DEFAULT_HEIGHT = 64;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final long MIN_TIME = 2L * 1000L * 1000L * 1000L;
+
+	private WebPBenchmark() {
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args the directory of images and the thumbnail height, which is
+	 *             optional
+	 * @throws IOException if a file cannot be read or decoded
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: WebPBenchmark directory [height]");
+			System.exit(1);
+		}
+		int height = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_HEIGHT;
+		List<byte[]> files = new ArrayList<>();
+		long pixels = 0L;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(args[0]), "*.webp")) {
+			for (Path file : stream) {
+				byte[] data = Files.readAllBytes(file);
+				Dimension size = ImageDecoder.getSize(data);
+				pixels += (long) size.width * size.height;
+				files.add(data);
+			}
+		}
+		if (files.isEmpty()) {
+			System.out.println("No .webp files in " + args[0]);
+			System.exit(1);
+		}
+		System.out.println(String.format("%d files, %.1f megapixels", files.size(), pixels / 1e6d));
+		run("full size", files, 0, pixels);
+		run("height " + height, files, height, pixels);
+	}
+
+	private static void run(String mode, List<byte[]> files, int height, long pixels) throws IOException {
+		for (int i = 0; i < WARMUP_ROUNDS; i++)
+			decode(files, height);
+		int rounds = 0;
+		long start = System.nanoTime();
+		long time;
+		do {
+			decode(files, height);
+			rounds++;
+			time = System.nanoTime() - start;
+		} while (time < MIN_TIME);
+		double seconds = time / 1e9d;
+		System.out.println(String.format("%-12s %10.1f images/s %10.1f source megapixels/s", mode,
+				rounds * files.size() / seconds, rounds * pixels / 1e6d / seconds));
+	}
+
+	private static void decode(List<byte[]> files, int height) throws IOException {
+		for (byte[] data : files)
+			if (ImageDecoder.decode(data, height) == null)
+				throw new IOException("No reader for a file");
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.kaba4cow.polyhaven.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.imageio.ImageIO;
+
+import com.kaba4cow.polyhaven.api.client.store.Checksums;
+import com.kaba4cow.polyhaven.imageio.webp.WebPImageReader;
+
+/**
+ * Command-line check of {@link WebPImageReader} against the output of the
+ * reference decoder, libwebp.
+ *
+ * <p>
+ * The directory holds WebP images and a {@code reference.txt} file listing,
+ * for every image, its width, its height and the MD5 of the RGBA bytes that
+ * libwebp decodes it to. Every image is read through {@link ImageIO}, and its
+ * pixels are hashed in the same RGBA layout. The check prints every image that
+ * differs and exits with status 1 if any does. Without an argument, the images
+ * of the {@code webp} test resource directory are checked; they cover lossy and
+ * lossless images, alpha planes, loop filter types and sharpness, segments,
+ * partitions, alpha filters and lossless transforms. The check runs from the
+ * test classes after {@code mvn test-compile}:
+ * </p>
+ * 
+ * <pre>
+ * java -cp target/classes:target/test-classes com.kaba4cow.polyhaven.bench.WebPConformanceCheck
+ * </pre>
+ *
+ * <pre>
+ * WebPConformanceCheck [directory]
+ * </pre>
+ */
+public class WebPConformanceCheck {
+
+	private static final String REFERENCE_FILE = "reference.txt";
+	private static final String REFERENCE_RESOURCE = "/webp/" + REFERENCE_FILE;
+
+	private WebPConformanceCheck() {
+	}
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args the directory of images, the test resources by default
+	 * @throws IOException              if the reference file cannot be read
+	 * @throws NoSuchAlgorithmException if MD5 is not available
+	 * @throws URISyntaxException       if the test resources cannot be located
+	 */
+	public static void main(String[] args) throws IOException, NoSuchAlgorithmException, URISyntaxException {
+		Path directory = args.length > 0 ? Paths.get(args[0]) : getResourceDirectory();
+		int checked = 0;
+		int failures = 0;
+		for (String line : Files.readAllLines(directory.resolve(REFERENCE_FILE), StandardCharsets.UTF_8)) {
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			String[] fields = line.split(" ");
+			String result = check(directory.resolve(fields[0]), Integer.parseInt(fields[1]),
+					Integer.parseInt(fields[2]), fields[3]);
+			checked++;
+			if (result != null) {
+				System.out.println("FAIL " + fields[0] + ": " + result);
+				failures++;
+			}
+		}
+		System.out.println(String.format("%d of %d images match the reference", checked - failures, checked));
+		if (failures > 0 || checked == 0)
+			System.exit(1);
+	}
+
+	private static Path getResourceDirectory() throws IOException, URISyntaxException {
+		URL reference = WebPConformanceCheck.class.getResource(REFERENCE_RESOURCE);
+		if (reference == null)
+			throw new IOException("Test resource " + REFERENCE_RESOURCE + " is not on the class path");
+		return Paths.get(reference.toURI()).getParent();
+	}
+
+	private static String check(Path file, int width, int height, String md5)
+			throws IOException, NoSuchAlgorithmException {
+		BufferedImage image;
+		try {
+			image = ImageIO.read(file.toFile());
+		} catch (IOException e) {
+			return e.getMessage();
+		}
+		if (image == null)
+			return "no reader";
+		else if (image.getWidth() != width || image.getHeight() != height)
+			return "size " + image.getWidth() + "x" + image.getHeight();
+		MessageDigest digest = MessageDigest.getInstance("MD5");
+		int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+		byte[] rgba = new byte[4 * pixels.length];
+		for (int i = 0; i < pixels.length; i++) {
+			rgba[4 * i] = (byte) (pixels[i] >>> 16);
+			rgba[4 * i + 1] = (byte) (pixels[i] >>> 8);
+			rgba[4 * i + 2] = (byte) pixels[i];
+			rgba[4 * i + 3] = (byte) (pixels[i] >>> 24);
+		}
+		String actual = Checksums.toHex(digest.digest(rgba));
+		return actual.equals(md5) ? null : "pixels differ, MD5 " + actual;
+	}
+
+}